@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.benchmarks;
+
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of building a GetFeedsRequest, which includes building and parsing the request URL
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildRequestBenchmark {
+
+    @Benchmark
+    public GetFeedsRequest buildMinimal() {
+        return new GetFeedsRequest.Builder("dummyApiKey").build();
+    }
+
+    @Benchmark
+    public GetFeedsRequest buildAllParameters() {
+        return new GetFeedsRequest.Builder("dummyApiKey")
+                .setLocation("31")
+                .setDescendants("1")
+                .setPage(3)
+                .setLimit(100)
+                .setType("gtfsrealtime")
+                .build();
+    }
+}
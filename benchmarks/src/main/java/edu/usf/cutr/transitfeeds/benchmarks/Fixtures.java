@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.benchmarks;
+
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response bodies for the benchmarks, and a transport that serves them from memory
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Reads a GetFeeds response bundled from the library's test resources
+     *
+     * @param name the resource name (e.g., "get-feeds.json")
+     * @return the contents of the resource
+     */
+    static byte[] read(String name) throws IOException {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Generates a GetFeeds response containing a single page with the given number of feeds.  Feeds alternate
+     * between GTFS feeds with a latest version and GTFS-realtime feeds without one, and are spread over 500
+     * locations, similar to the real catalog.
+     *
+     * @param numFeeds the number of feeds in the page
+     * @return the response body
+     */
+    static byte[] syntheticPage(int numFeeds) {
+        StringBuilder json = new StringBuilder(numFeeds * 400);
+        json.append("{\"status\":\"OK\",\"ts\":1506522116,\"results\":{")
+                .append("\"total\":").append(numFeeds)
+                .append(",\"limit\":").append(numFeeds)
+                .append(",\"page\":1,\"numPages\":1,\"feeds\":[");
+        for (int i = 0; i < numFeeds; i++) {
+            int location = i % 500;
+            boolean realtime = i % 2 == 1;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"agency-").append(i / 2).append('/').append(i).append('"')
+                    .append(",\"ty\":\"").append(realtime ? "gtfsrealtime" : "gtfs").append('"')
+                    .append(",\"t\":\"Agency ").append(i / 2).append(realtime ? " Trip Updates" : " GTFS").append('"')
+                    .append(",\"l\":{\"id\":").append(1000 + location)
+                    .append(",\"pid\":").append(100 + location / 50)
+                    .append(",\"t\":\"City ").append(location).append(", Region, Country\"")
+                    .append(",\"n\":\"City ").append(location).append('"')
+                    .append(",\"lat\":").append(-60 + (location * 0.24))
+                    .append(",\"lng\":").append(-180 + (location * 0.72)).append('}')
+                    .append(",\"u\":{\"i\":\"http://agency-").append(i / 2).append(".example.com/developers\"");
+            if (realtime) {
+                json.append(",\"d\":\"http://agency-").append(i / 2).append(".example.com/realtime/trip-updates\"}");
+            } else {
+                json.append(",\"d\":\"http://agency-").append(i / 2).append(".example.com/gtfs.zip\"}")
+                        .append(",\"latest\":{\"ts\":").append(1500000000 + i).append('}');
+            }
+            json.append('}');
+        }
+        json.append("]}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An HttpTransport that answers every request with the same body, so benchmarks of the request path don't
+     * include any network time
+     */
+    static class MemoryTransport implements HttpTransport {
+
+        private final byte[] mBody;
+
+        MemoryTransport(byte[] body) {
+            mBody = body;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            return new HttpResponse(200, null, new ByteArrayInputStream(mBody));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.benchmarks;
+
+import edu.usf.cutr.transitfeeds.BufferPool;
+import edu.usf.cutr.transitfeeds.FeedField;
+import edu.usf.cutr.transitfeeds.FeedIterator;
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import edu.usf.cutr.transitfeeds.GetFeedsResponse;
+import edu.usf.cutr.transitfeeds.TransitFeedsClient;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of synthetic pages much larger than the real API returns, to show how parsing cost and
+ * allocation scale with the number of feeds
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LargePageBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numFeeds;
+
+    private GetFeedsRequest mRequest;
+    private GetFeedsRequest mShortKeyRequest;
+    private GetFeedsRequest mIdAndLatestRequest;
+    private GetFeedsRequest mPooledRequest;
+
+    @Setup
+    public void setUp() {
+        byte[] body = Fixtures.syntheticPage(numFeeds);
+        mRequest = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new Fixtures.MemoryTransport(body))
+                .build();
+        mShortKeyRequest = new TransitFeedsClient.Builder("dummyApiKey")
+                .setTransport(new Fixtures.MemoryTransport(body))
+                .setShortKeyDeserializer(true)
+                .build()
+                .newGetFeedsRequest()
+                .build();
+        mIdAndLatestRequest = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new Fixtures.MemoryTransport(body))
+                .setFields(EnumSet.of(FeedField.ID, FeedField.LATEST))
+                .build();
+        mPooledRequest = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new Fixtures.MemoryTransport(body))
+                .setBufferPool(new BufferPool.Builder().setMaxRetainedSize(64 * 1024 * 1024).build())
+                .build();
+    }
+
+    @Benchmark
+    public GetFeedsResponse call() throws IOException {
+        return mRequest.call();
+    }
+
+    @Benchmark
+    public GetFeedsResponse callShortKeys() throws IOException {
+        return mShortKeyRequest.call();
+    }
+
+    @Benchmark
+    public GetFeedsResponse callIdAndLatest() throws IOException {
+        return mIdAndLatestRequest.call();
+    }
+
+    @Benchmark
+    public GetFeedsResponse callPooledBuffer() throws IOException {
+        return mPooledRequest.call();
+    }
+
+    @Benchmark
+    public void callStreaming(Blackhole blackhole) throws IOException {
+        try (FeedIterator feeds = mRequest.callStreaming()) {
+            while (feeds.hasNext()) {
+                Feed feed = feeds.next();
+                blackhole.consume(feed);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import edu.usf.cutr.transitfeeds.GetFeedsResponse;
+import edu.usf.cutr.transitfeeds.TransitFeedsClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the GetFeeds responses used by the library tests, through GetFeedsRequest.call() (with an
+ * in-memory transport) using both annotation-based binding and the hand-written ShortKeyModule deserializers, and
+ * directly through an ObjectReader as a baseline
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseFixturesBenchmark {
+
+    @Param({"get-feeds.json", "get-feeds-realtime.json", "get-feeds-realtime-url-array.json"})
+    public String fixture;
+
+    private byte[] mBody;
+    private GetFeedsRequest mRequest;
+    private GetFeedsRequest mShortKeyRequest;
+    private ObjectReader mReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBody = Fixtures.read(fixture);
+        mRequest = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new Fixtures.MemoryTransport(mBody))
+                .build();
+        mShortKeyRequest = new TransitFeedsClient.Builder("dummyApiKey")
+                .setTransport(new Fixtures.MemoryTransport(mBody))
+                .setShortKeyDeserializer(true)
+                .build()
+                .newGetFeedsRequest()
+                .build();
+        // Same configuration as the library's default reader (see GetFeedsRequest.newReader()), without which the
+        // empty "u" arrays of the url-array fixture can't be bound
+        mReader = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true)
+                .readerFor(GetFeedsResponse.class);
+    }
+
+    @Benchmark
+    public GetFeedsResponse call() throws IOException {
+        return mRequest.call();
+    }
+
+    @Benchmark
+    public GetFeedsResponse callShortKeys() throws IOException {
+        return mShortKeyRequest.call();
+    }
+
+    @Benchmark
+    public GetFeedsResponse objectReader() throws IOException {
+        return mReader.readValue(mBody);
+    }
+}
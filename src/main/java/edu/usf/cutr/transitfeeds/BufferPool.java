@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of byte arrays that GetFeedsRequest reads response bodies into, so each response can be parsed
+ * directly from bytes without allocating new buffers for every request.  Share a single BufferPool between all
+ * requests in an application via GetFeedsRequest.Builder.setBufferPool() or TransitFeedsClient.Builder.setBufferPool().
+ * <p>
+ * A buffer starts at the initial size and is doubled while reading a body that doesn't fit, so the pool comes to
+ * hold buffers large enough for typical responses.  Buffers are returned to the pool once the response has been
+ * parsed, unless the pool is full or the buffer has grown past the maximum retained size, in which case it's left for
+ * the garbage collector.  The pool therefore holds at most maxBuffers * maxRetainedSize bytes.  This class is
+ * threadsafe.
+ */
+public class BufferPool {
+
+    /**
+     * Default size in bytes of new buffers
+     */
+    public static final int DEFAULT_INITIAL_SIZE = 64 * 1024;
+
+    /**
+     * Default size in bytes of the largest buffer kept in the pool
+     */
+    public static final int DEFAULT_MAX_RETAINED_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Default number of buffers kept in the pool
+     */
+    public static final int DEFAULT_MAX_BUFFERS = 16;
+
+    private final int mInitialSize;
+    private final int mMaxRetainedSize;
+    private final BlockingQueue<byte[]> mBuffers;
+    private final AtomicLong mAllocatedCount = new AtomicLong();
+
+    private BufferPool(Builder builder) {
+        mInitialSize = builder.mInitialSize;
+        mMaxRetainedSize = builder.mMaxRetainedSize;
+        mBuffers = new ArrayBlockingQueue<>(builder.mMaxBuffers);
+    }
+
+    /**
+     * Takes a buffer from the pool, or allocates a new one if the pool is empty
+     *
+     * @return a buffer of at least the initial size
+     */
+    byte[] acquire() {
+        byte[] buffer = mBuffers.poll();
+        if (buffer == null) {
+            mAllocatedCount.incrementAndGet();
+            buffer = new byte[mInitialSize];
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer twice the size of the given full buffer, containing its contents.  The given buffer is
+     * discarded rather than released, so the pool keeps the buffers that were large enough for recent responses.
+     *
+     * @param buffer the full buffer
+     * @return a larger buffer containing the contents of the given buffer
+     */
+    byte[] grow(byte[] buffer) {
+        if (buffer.length > Integer.MAX_VALUE / 2) {
+            throw new OutOfMemoryError("Response body is too large for a byte array");
+        }
+        mAllocatedCount.incrementAndGet();
+        byte[] larger = new byte[buffer.length * 2];
+        System.arraycopy(buffer, 0, larger, 0, buffer.length);
+        return larger;
+    }
+
+    /**
+     * Returns a buffer to the pool.  The buffer must not be used after it has been released.
+     *
+     * @param buffer the buffer to return to the pool
+     */
+    void release(byte[] buffer) {
+        if (buffer.length <= mMaxRetainedSize) {
+            mBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of buffers currently in the pool
+     *
+     * @return the number of buffers currently in the pool
+     */
+    public int size() {
+        return mBuffers.size();
+    }
+
+    /**
+     * Returns the number of buffers that have been allocated because the pool was empty or a buffer had to grow.  If
+     * this keeps increasing, the pool is too small for the number of concurrent requests or the size of responses.
+     *
+     * @return the number of buffers that have been allocated
+     */
+    public long getAllocatedCount() {
+        return mAllocatedCount.get();
+    }
+
+    public static class Builder {
+        private int mInitialSize = DEFAULT_INITIAL_SIZE;
+        private int mMaxRetainedSize = DEFAULT_MAX_RETAINED_SIZE;
+        private int mMaxBuffers = DEFAULT_MAX_BUFFERS;
+
+        /**
+         * Sets the size in bytes of new buffers.  Default is {@link #DEFAULT_INITIAL_SIZE}.
+         *
+         * @param initialSize the size in bytes of new buffers
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setInitialSize(int initialSize) {
+            if (initialSize < 1) {
+                throw new IllegalArgumentException("initialSize must be >= 1");
+            }
+            mInitialSize = initialSize;
+            return this;
+        }
+
+        /**
+         * Sets the size in bytes of the largest buffer kept in the pool.  Buffers that grew larger while reading an
+         * unusually large response are discarded after use.  Default is {@link #DEFAULT_MAX_RETAINED_SIZE}.
+         *
+         * @param maxRetainedSize the size in bytes of the largest buffer kept in the pool
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxRetainedSize(int maxRetainedSize) {
+            if (maxRetainedSize < 1) {
+                throw new IllegalArgumentException("maxRetainedSize must be >= 1");
+            }
+            mMaxRetainedSize = maxRetainedSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of buffers kept in the pool, which should be about the number of concurrent requests.
+         * Default is {@link #DEFAULT_MAX_BUFFERS}.
+         *
+         * @param maxBuffers the number of buffers kept in the pool
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxBuffers(int maxBuffers) {
+            if (maxBuffers < 1) {
+                throw new IllegalArgumentException("maxBuffers must be >= 1");
+            }
+            mMaxBuffers = maxBuffers;
+            return this;
+        }
+
+        /**
+         * Builds the BufferPool using the specified parameters
+         *
+         * @return the BufferPool using the specified parameters
+         */
+        public BufferPool build() {
+            return new BufferPool(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Limits the number of requests in flight at once, and adjusts the limit based on how the server responds using
+ * additive-increase/multiplicative-decrease (AIMD).  Each successful request raises the limit by 1/limit (i.e., by
+ * about 1 for each limit's worth of requests), while each failed request, or each request with a latency more than
+ * latencyTolerance times the recent minimum latency, multiplies the limit by backoffRatio.  Bulk jobs can therefore
+ * issue as many concurrent requests as they like and converge on the highest concurrency the server sustains.
+ * <p>
+ * Share a single ConcurrencyLimiter between all requests to the same server via
+ * GetFeedsRequest.Builder.setConcurrencyLimiter().  This class is threadsafe.
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * Default initial limit
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 4;
+
+    /**
+     * Default minimum limit
+     */
+    public static final int DEFAULT_MIN_LIMIT = 1;
+
+    /**
+     * Default maximum limit
+     */
+    public static final int DEFAULT_MAX_LIMIT = 64;
+
+    /**
+     * Default factor the limit is multiplied by when the server is overloaded
+     */
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    /**
+     * Default multiple of the minimum latency above which a request is considered a sign of overload
+     */
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * Number of samples after which the minimum latency is re-measured, so the baseline follows lasting changes in
+     * network conditions
+     */
+    private static final int LATENCY_WINDOW = 100;
+
+    private final int mMinLimit;
+    private final int mMaxLimit;
+    private final double mBackoffRatio;
+    private final double mLatencyTolerance;
+
+    private double mLimit;
+    private int mInFlight;
+    private long mMinLatency = Long.MAX_VALUE;
+    private long mWindowMinLatency = Long.MAX_VALUE;
+    private int mWindowSamples;
+
+    private ConcurrencyLimiter(Builder builder) {
+        mMinLimit = builder.mMinLimit;
+        mMaxLimit = builder.mMaxLimit;
+        mBackoffRatio = builder.mBackoffRatio;
+        mLatencyTolerance = builder.mLatencyTolerance;
+        mLimit = Math.max(mMinLimit, Math.min(mMaxLimit, builder.mInitialLimit));
+    }
+
+    /**
+     * Waits until fewer than limit requests are in flight, and then counts the caller's request as in flight.  Every
+     * call to acquire() must be followed by a call to {@link #release(long, boolean)}.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedIOException {
+        while (mInFlight >= (int) mLimit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a concurrency permit");
+            }
+        }
+        mInFlight++;
+    }
+
+    /**
+     * Records the outcome of a request that was started with {@link #acquire()}, adjusts the limit, and allows
+     * another request to start
+     *
+     * @param latencyNanos the time the request took, in nanoseconds
+     * @param dropped      true if the request failed in a way that indicates the server is overloaded (e.g., a
+     *                     timeout or an HTTP 429 or 5xx response), false if it succeeded
+     */
+    public synchronized void release(long latencyNanos, boolean dropped) {
+        int inFlight = mInFlight--;
+        if (dropped) {
+            backOff();
+        } else {
+            updateMinLatency(latencyNanos);
+            if (latencyNanos > mLatencyTolerance * mMinLatency) {
+                backOff();
+            } else if (inFlight >= mLimit / 2) {
+                // Only grow if the limit is actually being used, so an idle client doesn't ramp up to the maximum
+                mLimit = Math.min(mMaxLimit, mLimit + 1 / mLimit);
+            }
+        }
+        notifyAll();
+    }
+
+    private void backOff() {
+        mLimit = Math.max(mMinLimit, mLimit * mBackoffRatio);
+    }
+
+    private void updateMinLatency(long latencyNanos) {
+        mMinLatency = Math.min(mMinLatency, latencyNanos);
+        mWindowMinLatency = Math.min(mWindowMinLatency, latencyNanos);
+        if (++mWindowSamples >= LATENCY_WINDOW) {
+            mMinLatency = mWindowMinLatency;
+            mWindowMinLatency = Long.MAX_VALUE;
+            mWindowSamples = 0;
+        }
+    }
+
+    /**
+     * Returns the current limit on the number of requests in flight
+     *
+     * @return the current limit on the number of requests in flight
+     */
+    public synchronized int getLimit() {
+        return (int) mLimit;
+    }
+
+    /**
+     * Returns the number of requests currently in flight
+     *
+     * @return the number of requests currently in flight
+     */
+    public synchronized int getInFlight() {
+        return mInFlight;
+    }
+
+    public static class Builder {
+        private int mInitialLimit = DEFAULT_INITIAL_LIMIT;
+        private int mMinLimit = DEFAULT_MIN_LIMIT;
+        private int mMaxLimit = DEFAULT_MAX_LIMIT;
+        private double mBackoffRatio = DEFAULT_BACKOFF_RATIO;
+        private double mLatencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+
+        /**
+         * Sets the limit used before any requests have completed.  Default is {@link #DEFAULT_INITIAL_LIMIT}.
+         *
+         * @param initialLimit the limit used before any requests have completed
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setInitialLimit(int initialLimit) {
+            if (initialLimit < 1) {
+                throw new IllegalArgumentException("initialLimit must be >= 1");
+            }
+            mInitialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the range the limit is kept within.  Defaults are {@link #DEFAULT_MIN_LIMIT} and
+         * {@link #DEFAULT_MAX_LIMIT}.
+         *
+         * @param minLimit the lowest the limit can go when backing off
+         * @param maxLimit the highest the limit can go when ramping up
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setLimitRange(int minLimit, int maxLimit) {
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+            }
+            mMinLimit = minLimit;
+            mMaxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets the factor the limit is multiplied by when the server is overloaded.  Default is
+         * {@link #DEFAULT_BACKOFF_RATIO}.
+         *
+         * @param backoffRatio the factor the limit is multiplied by, greater than 0 and less than 1
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setBackoffRatio(double backoffRatio) {
+            if (!(backoffRatio > 0 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("backoffRatio must be > 0 and < 1");
+            }
+            mBackoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Sets the multiple of the recent minimum latency above which a successful request is treated as a sign of
+         * overload.  Default is {@link #DEFAULT_LATENCY_TOLERANCE}.
+         *
+         * @param latencyTolerance the multiple of the recent minimum latency, at least 1
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setLatencyTolerance(double latencyTolerance) {
+            if (!(latencyTolerance >= 1)) {
+                throw new IllegalArgumentException("latencyTolerance must be >= 1");
+            }
+            mLatencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * Builds the ConcurrencyLimiter using the specified parameters
+         *
+         * @return the ConcurrencyLimiter using the specified parameters
+         */
+        public ConcurrencyLimiter build() {
+            return new ConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when a call doesn't complete (including any retries) within the deadline set by its {@link RetryPolicy}
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long mDeadlineMillis;
+
+    /**
+     * Creates a new exception
+     *
+     * @param deadlineMillis the deadline that was exceeded, in milliseconds
+     * @param lastError      the error from the last attempt, or null if the last attempt was still in progress
+     */
+    public DeadlineExceededException(long deadlineMillis, Throwable lastError) {
+        super("Call did not complete within the deadline of " + deadlineMillis + " ms");
+        mDeadlineMillis = deadlineMillis;
+        if (lastError != null) {
+            initCause(lastError);
+        }
+    }
+
+    /**
+     * Returns the deadline that was exceeded, in milliseconds
+     *
+     * @return the deadline that was exceeded, in milliseconds
+     */
+    public long getDeadlineMillis() {
+        return mDeadlineMillis;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+/**
+ * The fields of a {@link edu.usf.cutr.transitfeeds.model.Feed} that can be selected with
+ * GetFeedsRequest.Builder.setFields().  Fields that aren't selected are skipped in the response without being bound,
+ * so they are null in the returned feeds.
+ */
+public enum FeedField {
+    /**
+     * The feed ID ("id")
+     */
+    ID("id"),
+    /**
+     * The feed type ("ty")
+     */
+    TYPE("ty"),
+    /**
+     * The feed title ("t")
+     */
+    TITLE("t"),
+    /**
+     * The feed location ("l")
+     */
+    LOCATION("l"),
+    /**
+     * The feed info and download URLs ("u")
+     */
+    URLS("u"),
+    /**
+     * The latest version of the feed ("latest")
+     */
+    LATEST("latest");
+
+    private final String mKey;
+
+    FeedField(String key) {
+        mKey = key;
+    }
+
+    /**
+     * Returns the key for this field in the JSON response
+     *
+     * @return the key for this field in the JSON response
+     */
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * Returns the field for a key in the JSON response
+     *
+     * @param key the key in the JSON response
+     * @return the field for the key, or null if the key isn't a known Feed field
+     */
+    static FeedField forKey(String key) {
+        switch (key) {
+            case "id":
+                return ID;
+            case "ty":
+                return TYPE;
+            case "t":
+                return TITLE;
+            case "l":
+                return LOCATION;
+            case "u":
+                return URLS;
+            case "latest":
+                return LATEST;
+            default:
+                return null;
+        }
+    }
+}
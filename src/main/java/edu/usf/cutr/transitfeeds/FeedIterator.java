@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the feeds in a GetFeeds API response as they are parsed, binding one Feed at a time instead of
+ * materializing the entire feeds array.  Returned by GetFeedsRequest.callStreaming().
+ * <p>
+ * The response envelope (status, timestamp, total, numPages, etc.) is available from {@link #getResponse()}.  Fields
+ * that appear before the feeds array (as they do in responses from TransitFeeds.com) are available as soon as the
+ * iterator is returned; any fields that appear after the feeds array are filled in once iteration has finished.
+ * <p>
+ * The iterator must be closed to release the underlying connection - it is closed automatically once the last feed
+ * has been read.  Errors encountered while iterating are thrown as {@link UncheckedIOException}.
+ */
+public class FeedIterator implements Iterator<Feed>, Closeable {
+
+    private final JsonParser mParser;
+    private final ObjectReader mFeedReader;
+    private final ObjectReader mValueReader;
+    private final Closeable mSource;
+    private final GetFeedsResponse mResponse = new GetFeedsResponse();
+
+    private boolean mInResults;
+    private boolean mInFeeds;
+    private boolean mClosed;
+    private Feed mNext;
+
+    /**
+     * @param parser the parser for the response body
+     * @param reader the reader configured with the same features as the non-streaming request path
+     * @param source the resource to close once the response has been consumed
+     */
+    FeedIterator(JsonParser parser, ObjectReader reader, Closeable source) throws IOException {
+        mParser = parser;
+        mFeedReader = reader.forType(Feed.class);
+        mValueReader = reader.forType(Object.class);
+        mSource = source;
+        try {
+            if (mParser.nextToken() != JsonToken.START_OBJECT) {
+                throw JsonMappingException.from(mParser, "Expected a JSON object for the GetFeeds response");
+            }
+            mInFeeds = readEnvelope();
+            if (!mInFeeds) {
+                close();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the response envelope.  Note that the feeds are not included in getResults().getFeeds() - they are
+     * only returned by this iterator.
+     *
+     * @return the response envelope
+     */
+    public GetFeedsResponse getResponse() {
+        return mResponse;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (mNext != null) {
+            return true;
+        }
+        if (!mInFeeds) {
+            return false;
+        }
+        try {
+            JsonToken token = mParser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) {
+                mInFeeds = false;
+                // Pick up any envelope fields after the feeds array
+                readEnvelope();
+                close();
+                return false;
+            }
+            mNext = mFeedReader.readValue(mParser);
+            return true;
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Feed next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Feed feed = mNext;
+        mNext = null;
+        return feed;
+    }
+
+    /**
+     * Returns a sequential Stream over the remaining feeds.  Closing the stream closes this iterator.
+     *
+     * @return a sequential Stream over the remaining feeds
+     */
+    public Stream<Feed> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::closeQuietly);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mInFeeds = false;
+        try {
+            mParser.close();
+        } finally {
+            mSource.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // Ignore - we're already done with the response
+        }
+    }
+
+    /**
+     * Reads envelope fields until the parser is positioned at the start of the feeds array, or the end of the
+     * response is reached
+     *
+     * @return true if the parser is positioned at the start of the feeds array, false if the end of the response was
+     * reached
+     */
+    private boolean readEnvelope() throws IOException {
+        JsonToken token;
+        while ((token = mParser.nextToken()) != null) {
+            if (token == JsonToken.END_OBJECT) {
+                if (mInResults) {
+                    mInResults = false;
+                    continue;
+                }
+                return false;
+            }
+            String name = mParser.getCurrentName();
+            token = mParser.nextToken();
+            if (mInResults) {
+                Results results = mResponse.getResults();
+                switch (name) {
+                    case "input":
+                        results.setInput(mParser.getValueAsString());
+                        break;
+                    case "total":
+                        results.setTotal(readInteger(token));
+                        break;
+                    case "limit":
+                        results.setLimit(readInteger(token));
+                        break;
+                    case "page":
+                        results.setPage(readInteger(token));
+                        break;
+                    case "numPages":
+                        results.setNumPages(readInteger(token));
+                        break;
+                    case "feeds":
+                        if (token == JsonToken.START_ARRAY) {
+                            return true;
+                        }
+                        break;
+                    default:
+                        results.setAdditionalProperty(name, mValueReader.readValue(mParser));
+                }
+            } else {
+                switch (name) {
+                    case "status":
+                        mResponse.setStatus(mParser.getValueAsString());
+                        break;
+                    case "ts":
+                        mResponse.setTimestamp(readInteger(token));
+                        break;
+                    case "msg":
+                        mResponse.setErrorDescription(mParser.getValueAsString());
+                        break;
+                    case "results":
+                        if (token == JsonToken.START_OBJECT) {
+                            mResponse.setResults(new Results());
+                            mInResults = true;
+                        } else {
+                            // E.g., an empty array when there are no results
+                            mParser.skipChildren();
+                        }
+                        break;
+                    default:
+                        mResponse.setAdditionalProperty(name, mValueReader.readValue(mParser));
+                }
+            }
+        }
+        return false;
+    }
+
+    private Integer readInteger(JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : mParser.getIntValue();
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of GetFeeds API responses, keyed on the request URL.  Set on a request via GetFeedsRequest.Builder.setCache().
+ * <p>
+ * Parsed responses are held in a size-bounded LRU cache in memory, and the raw response bodies can optionally also be
+ * persisted to a directory on disk so they survive restarts.  Entries younger than the TTL are returned without
+ * contacting the server.  Older entries are revalidated using the ETag (If-None-Match) and Last-Modified
+ * (If-Modified-Since) headers returned with the original response - if the server responds with 304 Not Modified,
+ * the cached response is returned without being parsed again.
+ * <p>
+ * Cached GetFeedsResponse instances are shared by all callers that hit the cache, and should be treated as read-only.
+ */
+public class GetFeedsCache {
+
+    /**
+     * Default maximum number of responses held in memory
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final int DISK_FORMAT_VERSION = 1;
+    private static final String DISK_SUFFIX = ".cache";
+
+    private final Map<String, Entry> mMemory;
+    private final File mDirectory;
+    private final long mTtlMillis;
+    private final int mMaxEntries;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mRevalidatedCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    private GetFeedsCache(Builder builder) {
+        mDirectory = builder.mDirectory;
+        mTtlMillis = builder.mTtlMillis;
+        mMaxEntries = builder.mMaxEntries;
+        mMemory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > mMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of requests answered from the cache without contacting the server
+     *
+     * @return the number of requests answered from the cache without contacting the server
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * Returns the number of requests answered from the cache after the server responded with 304 Not Modified
+     *
+     * @return the number of requests answered from the cache after the server responded with 304 Not Modified
+     */
+    public long getRevalidatedCount() {
+        return mRevalidatedCount.get();
+    }
+
+    /**
+     * Returns the number of requests for which the response had to be downloaded and parsed
+     *
+     * @return the number of requests for which the response had to be downloaded and parsed
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * Returns the number of responses currently held in memory
+     *
+     * @return the number of responses currently held in memory
+     */
+    public synchronized int size() {
+        return mMemory.size();
+    }
+
+    /**
+     * Removes all responses from memory and from disk
+     */
+    public void clear() {
+        synchronized (this) {
+            mMemory.clear();
+        }
+        if (mDirectory != null) {
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(DISK_SUFFIX)) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached entry for the given URL, loading it from disk if it isn't in memory, or null if the URL
+     * isn't cached
+     */
+    Entry get(String url, ObjectReader reader) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = mMemory.get(url);
+        }
+        if (entry == null && mDirectory != null) {
+            entry = readFromDisk(url, reader);
+            if (entry != null) {
+                synchronized (this) {
+                    mMemory.put(url, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns true if the entry is younger than the TTL and can be returned without revalidation, recording a hit
+     */
+    boolean isFresh(Entry entry) {
+        if (System.currentTimeMillis() - entry.mFetchedAt < mTtlMillis) {
+            mHitCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that the server confirmed the entry for the given URL is still valid
+     */
+    void revalidated(String url, Entry entry) {
+        mRevalidatedCount.incrementAndGet();
+        entry.mFetchedAt = System.currentTimeMillis();
+        if (mDirectory != null && entry.mBody != null) {
+            writeToDisk(url, entry);
+        }
+    }
+
+    /**
+     * Caches a newly downloaded response
+     */
+    void put(String url, GetFeedsResponse response, byte[] body, String etag, String lastModified) {
+        mMissCount.incrementAndGet();
+        Entry entry = new Entry(response, mDirectory != null ? body : null, etag, lastModified,
+                System.currentTimeMillis());
+        synchronized (this) {
+            mMemory.put(url, entry);
+        }
+        if (mDirectory != null) {
+            writeToDisk(url, entry);
+        }
+    }
+
+    private Entry readFromDisk(String url, ObjectReader reader) throws IOException {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != DISK_FORMAT_VERSION || !url.equals(in.readUTF())) {
+                return null;
+            }
+            String etag = emptyToNull(in.readUTF());
+            String lastModified = emptyToNull(in.readUTF());
+            long fetchedAt = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > file.length()) {
+                // Corrupt - a length this large would fail with an OutOfMemoryError rather than an IOException
+                return null;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            GetFeedsResponse response = reader.readValue(new ByteArrayInputStream(body));
+            return new Entry(response, body, etag, lastModified, fetchedAt);
+        } catch (IOException e) {
+            // Corrupt or truncated - treat it as a miss, and it will be replaced on the next download
+            return null;
+        }
+    }
+
+    /**
+     * Persists the entry to disk.  Failures (e.g., a full disk or a deleted directory) only skip the disk tier - the
+     * entry is still held in memory, and the response is still returned to the caller.
+     */
+    private void writeToDisk(String url, Entry entry) {
+        File file = fileFor(url);
+        File temp = null;
+        try {
+            temp = File.createTempFile(file.getName(), ".tmp", mDirectory);
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+                out.writeInt(DISK_FORMAT_VERSION);
+                out.writeUTF(url);
+                out.writeUTF(entry.mEtag != null ? entry.mEtag : "");
+                out.writeUTF(entry.mLastModified != null ? entry.mLastModified : "");
+                out.writeLong(entry.mFetchedAt);
+                out.writeInt(entry.mBody.length);
+                out.write(entry.mBody);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not persisted - it will be downloaded again after a restart
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the cache file for the URL.  The URL is hashed since it contains the API key.
+     */
+    private File fileFor(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + DISK_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(mDirectory, name.append(DISK_SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on all Java platforms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * A cached response, along with the validators needed to revalidate it
+     */
+    static class Entry {
+        private final GetFeedsResponse mResponse;
+        private final byte[] mBody;
+        private final String mEtag;
+        private final String mLastModified;
+        private volatile long mFetchedAt;
+
+        Entry(GetFeedsResponse response, byte[] body, String etag, String lastModified, long fetchedAt) {
+            mResponse = response;
+            mBody = body;
+            mEtag = etag;
+            mLastModified = lastModified;
+            mFetchedAt = fetchedAt;
+        }
+
+        GetFeedsResponse getResponse() {
+            return mResponse;
+        }
+
+        String getEtag() {
+            return mEtag;
+        }
+
+        String getLastModified() {
+            return mLastModified;
+        }
+    }
+
+    public static class Builder {
+        private int mMaxEntries = DEFAULT_MAX_ENTRIES;
+        private long mTtlMillis = 0;
+        private File mDirectory;
+
+        /**
+         * Sets the maximum number of responses held in memory.  When the limit is reached, the least recently used
+         * response is evicted.  Default is {@link #DEFAULT_MAX_ENTRIES}.
+         *
+         * @param maxEntries the maximum number of responses held in memory
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be >= 1");
+            }
+            mMaxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Sets how long a cached response is returned without contacting the server.  After the TTL has expired, the
+         * response is revalidated with the server on the next request.  Default is 0, which revalidates on every
+         * request.
+         *
+         * @param ttl  how long a cached response is returned without contacting the server
+         * @param unit the unit of ttl
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTtl(long ttl, TimeUnit unit) {
+            if (ttl < 0) {
+                throw new IllegalArgumentException("ttl must be >= 0");
+            }
+            mTtlMillis = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * Sets a directory in which responses are also persisted, so they can be revalidated (rather than downloaded
+         * again) after a restart.  By default responses are only cached in memory.
+         *
+         * @param directory the directory in which responses are persisted.  It is created if it doesn't exist.
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setDirectory(File directory) {
+            mDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Builds the GetFeedsCache using the specified parameters
+         *
+         * @return the GetFeedsCache using the specified parameters
+         * @throws IllegalStateException if the cache directory could not be created
+         */
+        public GetFeedsCache build() {
+            if (mDirectory != null && !mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IllegalStateException("Could not create cache directory " + mDirectory);
+            }
+            return new GetFeedsCache(this);
+        }
+    }
+}
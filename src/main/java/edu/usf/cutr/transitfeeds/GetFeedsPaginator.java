@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Results;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fetches all pages of a GetFeeds query.  The first page is fetched to learn the number of pages, and the remaining
+ * pages are then fetched concurrently (using GetFeedsRequest.callAsync()), with at most parallelism requests in
+ * flight at once.
+ */
+public class GetFeedsPaginator {
+
+    /**
+     * Default maximum number of pages fetched at once
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private static final String STATUS_OK = "OK";
+
+    private final GetFeedsRequest.Builder mBuilder;
+    private final int mParallelism;
+
+    /**
+     * Creates a paginator that fetches at most {@link #DEFAULT_PARALLELISM} pages at once
+     *
+     * @param builder the builder for the query.  The page set on the builder is ignored and overwritten.
+     */
+    public GetFeedsPaginator(GetFeedsRequest.Builder builder) {
+        this(builder, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Creates a paginator
+     *
+     * @param builder     the builder for the query.  The page set on the builder is ignored and overwritten.
+     * @param parallelism the maximum number of pages fetched at once
+     */
+    public GetFeedsPaginator(GetFeedsRequest.Builder builder, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1");
+        }
+        mBuilder = builder;
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Fetches all pages of the query and returns the feeds from all pages, in page order.  If any page fails, or if
+     * the total number of feeds changes between pages, no further pages are requested and an exception is thrown.
+     *
+     * @return the feeds from all pages, in page order
+     * @throws IOException           if a page could not be fetched or the API returned a status other than OK
+     * @throws TotalChangedException if the total number of feeds changed while pages were being fetched
+     */
+    public List<Feed> fetchAll() throws IOException {
+        Results first = checkStatus(mBuilder.setPage(1).build().call(), 1);
+        final int total = first.getTotal() != null ? first.getTotal() : 0;
+        int numPages = first.getNumPages() != null ? first.getNumPages() : 1;
+
+        final Semaphore permits = new Semaphore(mParallelism);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        List<CompletableFuture<GetFeedsResponse>> futures = new ArrayList<>(numPages);
+        for (int page = 2; page <= numPages; page++) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (CompletableFuture<GetFeedsResponse> future : futures) {
+                    future.cancel(false);
+                }
+                throw new InterruptedIOException("Interrupted while fetching page " + page);
+            }
+            if (failure.get() != null) {
+                permits.release();
+                break;
+            }
+            final int currentPage = page;
+            CompletableFuture<GetFeedsResponse> future = mBuilder.setPage(page).build().callAsync();
+            future.whenComplete((response, t) -> {
+                try {
+                    if (t != null) {
+                        failure.compareAndSet(null, toIOException(t));
+                        return;
+                    }
+                    Results results = checkStatus(response, currentPage);
+                    if (results.getTotal() == null || results.getTotal() != total) {
+                        failure.compareAndSet(null, new TotalChangedException(total,
+                                results.getTotal() != null ? results.getTotal() : 0, currentPage));
+                    }
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    // Released last, so a failure is always visible once all permits are back
+                    permits.release();
+                }
+            });
+            futures.add(future);
+        }
+
+        // Wait for in-flight pages so none are left running after we return
+        permits.acquireUninterruptibly(mParallelism);
+        permits.release(mParallelism);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        List<Feed> feeds = new ArrayList<>(total);
+        addFeeds(feeds, first);
+        for (CompletableFuture<GetFeedsResponse> future : futures) {
+            addFeeds(feeds, future.join().getResults());
+        }
+        return feeds;
+    }
+
+    private static Results checkStatus(GetFeedsResponse response, int page) throws IOException {
+        if (!STATUS_OK.equals(response.getStatus()) || response.getResults() == null) {
+            throw new IOException("Page " + page + " returned status " + response.getStatus() + ": "
+                    + response.getErrorDescription());
+        }
+        return response.getResults();
+    }
+
+    private static void addFeeds(List<Feed> feeds, Results results) {
+        if (results.getFeeds() != null) {
+            feeds.addAll(results.getFeeds());
+        }
+    }
+
+    private static IOException toIOException(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof IOException ? (IOException) t : new IOException(t);
+    }
+}
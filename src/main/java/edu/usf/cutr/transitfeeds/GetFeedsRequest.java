@@ -18,24 +18,70 @@ package edu.usf.cutr.transitfeeds;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.http.UrlConnectionTransport;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Encapsulates a request to the Mapzen Pelias Search API - https://mapzen.com/documentation/search/search/
  */
 public class GetFeedsRequest {
 
-    private static ObjectMapper mMapper = new ObjectMapper()
-            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
-            .configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true);
-    private static ObjectReader mReader = mMapper.readerFor(GetFeedsResponse.class);
+    private static volatile ObjectReader mReader = newReader(false, false);
+    /**
+     * The transport used by requests that don't set their own, shared with GetLocationsRequest so that together they
+     * are bounded by a single connection limit
+     */
+    static final HttpTransport DEFAULT_TRANSPORT = new UrlConnectionTransport.Builder().build();
+    private static final String STATUS_OK = "OK";
 
     private URL mUrl;
+    private HttpTransport mTransport;
+    private Executor mExecutor;
+    private GetFeedsCache mCache;
+    private RequestCoalescer mCoalescer;
+    private RequestListener mListener;
+    private RateLimiter mRateLimiter;
+    private ConcurrencyLimiter mConcurrencyLimiter;
+    private String mRateLimitKey;
+    private RetryPolicy mRetryPolicy;
+    private BufferPool mBufferPool;
+    private ObjectReader mClientReader;
+    private Set<FeedField> mFields;
+    private String mKey;
 
-    private GetFeedsRequest(String url) {
+    private GetFeedsRequest(String url, Builder builder) {
+        mTransport = builder.mTransport;
+        mExecutor = builder.mExecutor;
+        mCache = builder.mCache;
+        mCoalescer = builder.mCoalescer;
+        mListener = builder.mListener;
+        mRateLimiter = builder.mRateLimiter;
+        mConcurrencyLimiter = builder.mConcurrencyLimiter;
+        mRateLimitKey = builder.mApiKey + "@" + builder.mApiEndPoint;
+        mRetryPolicy = builder.mRetryPolicy;
+        mBufferPool = builder.mBufferPool;
+        mClientReader = builder.mReader;
+        mFields = builder.mFields;
+        // Responses bound with different fields can't be shared by the coalescer or cache
+        mKey = mFields == null ? url : url + "#fields=" + mFields;
         try {
             mUrl = new URL(url);
         } catch (MalformedURLException e) {
@@ -44,15 +90,58 @@ public class GetFeedsRequest {
     }
 
     /**
-     * Sets the Jackson value for "fail on unknown properties" for all GetFeedsRequest instances.  Note that while this
-     * method is threadsafe, it does not guarantee that existing instances of GetFeedsRequest using the ObjectReader won't
-     * be negatively impacted / interrupted.  Default is false.
+     * Creates a reader for GetFeeds responses with the settings used by this library
+     *
+     * @param failOnUnknownProperties true if Jackson should fail on unknown properties, false if it should not
+     * @param shortKeyDeserializer    true to parse with the hand-written deserializers in {@link ShortKeyModule},
+     *                                false to use the annotation-based binding
+     * @return a new reader for GetFeeds responses
+     */
+    static ObjectReader newReader(boolean failOnUnknownProperties, boolean shortKeyDeserializer) {
+        ObjectMapper mapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, failOnUnknownProperties)
+                .configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true);
+        if (shortKeyDeserializer) {
+            mapper.registerModule(new ShortKeyModule());
+        }
+        return mapper.readerFor(GetFeedsResponse.class);
+    }
+
+    /**
+     * Sets the Jackson value for "fail on unknown properties" for all GetFeedsRequest instances that weren't created
+     * from a {@link TransitFeedsClient}.  The shared ObjectReader is immutable and is replaced rather than
+     * reconfigured, so requests already in progress finish with the previous setting.  Default is false.
+     * <p>
+     * Prefer TransitFeedsClient.Builder.setFailOnUnknownProperties(), which doesn't affect other clients.
      *
      * @param value true if Jackson should fail on unknown properties, false of it should not (default is false)
      */
     public synchronized static void setFailOnUnknownProperties(boolean value) {
-        mMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, value);
-        mReader = mMapper.readerFor(GetFeedsResponse.class);
+        mReader = value ? mReader.with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES) :
+                mReader.without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Returns the reader used to parse responses - the client's reader if this request was created from a
+     * TransitFeedsClient, otherwise the shared reader.  If fields were selected, a {@link ShortKeyModule} reader with
+     * the same "fail on unknown properties" setting is used instead, as only it can skip the other fields.
+     */
+    private ObjectReader reader() {
+        ObjectReader reader = mClientReader != null ? mClientReader : mReader;
+        if (mFields == null) {
+            return reader;
+        }
+        reader = reader.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES) ?
+                ProjectionReaders.STRICT : ProjectionReaders.LENIENT;
+        return reader.withAttribute(ShortKeyModule.FIELDS_ATTRIBUTE, mFields);
+    }
+
+    /**
+     * Holds the readers used for requests with selected fields, so they are only created if fields are selected
+     */
+    private static class ProjectionReaders {
+        static final ObjectReader LENIENT = newReader(false, true);
+        static final ObjectReader STRICT = newReader(true, true);
     }
 
     /**
@@ -68,10 +157,340 @@ public class GetFeedsRequest {
      * Makes the request to the Pelias Search API, and returns a SearchResponse parsed from the returned JSON
      *
      * @return a SearchResponse parsed from the returned JSON
-     * @throws IOException if there is an exception making the request or reading the response from the server
+     * @throws IOException if there is an exception making the request or reading the response from the server, or
+     *                     an {@link HttpResponseException} if the server responded with an HTTP error status code
      */
     public GetFeedsResponse call() throws IOException {
-        return mReader.readValue(mUrl.openStream());
+        if (mCoalescer != null) {
+            return mCoalescer.execute(mKey, this::fetch);
+        }
+        return fetch();
+    }
+
+    private GetFeedsResponse fetch() throws IOException {
+        if (mListener == null) {
+            return fetchWithRetries();
+        }
+        long start = System.nanoTime();
+        try {
+            GetFeedsResponse response = fetchWithRetries();
+            mListener.onPhase(RequestListener.Phase.TOTAL, System.nanoTime() - start);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            mListener.onError(e);
+            throw e;
+        }
+    }
+
+    private GetFeedsResponse fetchWithRetries() throws IOException {
+        if (mRetryPolicy == null) {
+            return fetchResponse();
+        }
+        return mRetryPolicy.execute(this::fetchResponse, mListener);
+    }
+
+    private GetFeedsResponse fetchResponse() throws IOException {
+        if (mCache != null) {
+            return callWithCache();
+        }
+        return limit(this::fetchFromServer);
+    }
+
+    private GetFeedsResponse fetchFromServer() throws IOException {
+        HttpResponse response = execute(new HttpRequest(mUrl));
+        try {
+            ObjectReader reader = reader();
+            if (mBufferPool != null) {
+                return parsePooled(response, reader);
+            }
+            if (mListener == null) {
+                return reader.readValue(response.getBody());
+            }
+            reportNetwork(response);
+            TimedInputStream body = new TimedInputStream(response.getBody());
+            long start = System.nanoTime();
+            GetFeedsResponse result = reader.readValue(body);
+            long elapsed = System.nanoTime() - start;
+            mListener.onPhase(RequestListener.Phase.TRANSFER, body.mNanos);
+            mListener.onPhase(RequestListener.Phase.PARSE, elapsed - body.mNanos);
+            reportResponse(result, body.mBytes);
+            return result;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Reads the response body into a buffer from the pool and parses it directly from the bytes, returning the buffer
+     * to the pool afterwards.  The connection is released before parsing rather than being held until the parse
+     * finishes.
+     */
+    private GetFeedsResponse parsePooled(HttpResponse response, ObjectReader reader) throws IOException {
+        reportNetwork(response);
+        InputStream in = response.getBody();
+        byte[] buffer = mBufferPool.acquire();
+        try {
+            long start = System.nanoTime();
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length) {
+                    buffer = mBufferPool.grow(buffer);
+                }
+            }
+            long transferred = System.nanoTime();
+            // The body has been read, so the connection can go back to the transport's pool while parsing
+            response.close();
+            GetFeedsResponse result = reader.readValue(buffer, 0, length);
+            if (mListener != null) {
+                mListener.onPhase(RequestListener.Phase.TRANSFER, transferred - start);
+                mListener.onPhase(RequestListener.Phase.PARSE, System.nanoTime() - transferred);
+                reportResponse(result, length);
+            }
+            return result;
+        } finally {
+            mBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Makes the request to the TransitFeeds.com GetFeeds API, and returns an iterator that parses feeds one at a time
+     * as they are read from the response, so the entire feeds array is never held in memory at once.  The caller
+     * must close the returned iterator (or consume all feeds) to release the connection.  Streaming calls are subject
+     * to the rate limiter, but not the cache, coalescer, or concurrency limiter.
+     * <p>
+     * An iterator that is never closed holds one of the transport's connections forever (see
+     * {@link UrlConnectionTransport.Builder#setMaxConnections(int)}).  The default transport is shared by all
+     * requests that don't set their own, so leaked iterators eventually cause every request to time out waiting for
+     * a connection.  Use try-with-resources.
+     *
+     * @return an iterator over the feeds in the response, which also exposes the response envelope
+     * @throws IOException if there is an exception making the request or reading the start of the response
+     */
+    public FeedIterator callStreaming() throws IOException {
+        if (mRateLimiter != null) {
+            mRateLimiter.acquire(mRateLimitKey);
+        }
+        HttpResponse response = execute(new HttpRequest(mUrl));
+        try {
+            ObjectReader reader = reader();
+            return new FeedIterator(reader.getFactory().createParser(response.getBody()), reader, response);
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+    }
+
+    private GetFeedsResponse callWithCache() throws IOException {
+        String key = mKey;
+        ObjectReader reader = reader();
+        GetFeedsCache.Entry entry = mCache.get(key, reader);
+        if (entry != null && mCache.isFresh(entry)) {
+            reportResponse(entry.getResponse(), 0);
+            return entry.getResponse();
+        }
+        return limit(() -> revalidate(key, entry, reader));
+    }
+
+    private GetFeedsResponse revalidate(String key, GetFeedsCache.Entry entry, ObjectReader reader)
+            throws IOException {
+        HttpRequest request = new HttpRequest(mUrl);
+        if (entry != null) {
+            if (entry.getEtag() != null) {
+                request.setHeader("If-None-Match", entry.getEtag());
+            }
+            if (entry.getLastModified() != null) {
+                request.setHeader("If-Modified-Since", entry.getLastModified());
+            }
+        }
+        HttpResponse response = execute(request);
+        try {
+            reportNetwork(response);
+            if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+                mCache.revalidated(key, entry);
+                reportResponse(entry.getResponse(), 0);
+                return entry.getResponse();
+            }
+            long start = System.nanoTime();
+            byte[] body = readFully(response.getBody());
+            long transferred = System.nanoTime();
+            GetFeedsResponse result = reader.readValue(body);
+            if (mListener != null) {
+                mListener.onPhase(RequestListener.Phase.TRANSFER, transferred - start);
+                mListener.onPhase(RequestListener.Phase.PARSE, System.nanoTime() - transferred);
+                reportResponse(result, body.length);
+            }
+            if (response.getStatusCode() == HttpURLConnection.HTTP_OK && STATUS_OK.equals(result.getStatus())) {
+                mCache.put(key, result, body, response.getHeader("ETag"), response.getHeader("Last-Modified"));
+            }
+            return result;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Runs a fetch that contacts the server within the rate and concurrency limits, if they were set.  The rate limit
+     * is waited for first so time spent waiting for a token isn't counted as request latency by the concurrency
+     * limiter.
+     */
+    private GetFeedsResponse limit(RequestCoalescer.Fetch<GetFeedsResponse> fetch) throws IOException {
+        if (mRateLimiter != null) {
+            mRateLimiter.acquire(mRateLimitKey);
+        }
+        if (mConcurrencyLimiter == null) {
+            return fetch.fetch();
+        }
+        mConcurrencyLimiter.acquire();
+        long start = System.nanoTime();
+        boolean dropped = false;
+        try {
+            return fetch.fetch();
+        } catch (IOException e) {
+            dropped = isOverloaded(e);
+            throw e;
+        } finally {
+            mConcurrencyLimiter.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    /**
+     * Returns true if the exception indicates the server or network is overloaded - a timeout, a failed connection,
+     * or an HTTP 429 or 5xx response - rather than a problem with the request or the response body itself
+     */
+    private static boolean isOverloaded(IOException e) {
+        if (e instanceof HttpResponseException) {
+            int status = ((HttpResponseException) e).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        // ConnectException, NoRouteToHostException, connection resets, etc. are all SocketExceptions
+        return e instanceof SocketTimeoutException || e instanceof SocketException;
+    }
+
+    private HttpResponse execute(HttpRequest request) throws IOException {
+        HttpResponse response = mTransport.execute(request);
+        if (response.getStatusCode() >= 400) {
+            response.close();
+            throw new HttpResponseException(response.getStatusCode(), mUrl);
+        }
+        return response;
+    }
+
+    private void reportNetwork(HttpResponse response) {
+        if (mListener == null) {
+            return;
+        }
+        if (response.getConnectNanos() >= 0) {
+            mListener.onPhase(RequestListener.Phase.CONNECT, response.getConnectNanos());
+        }
+        if (response.getFirstByteNanos() >= 0) {
+            mListener.onPhase(RequestListener.Phase.FIRST_BYTE, response.getFirstByteNanos());
+        }
+    }
+
+    private void reportResponse(GetFeedsResponse response, long bytes) {
+        if (mListener == null) {
+            return;
+        }
+        int numFeeds = response.getResults() != null && response.getResults().getFeeds() != null ?
+                response.getResults().getFeeds().size() : 0;
+        mListener.onResponse(response.getStatus(), bytes, numFeeds);
+    }
+
+    /**
+     * Counts the bytes read from the response body and the time spent blocked reading them, so transfer time can be
+     * separated from parse time when parsing directly from the connection
+     */
+    private static class TimedInputStream extends FilterInputStream {
+
+        long mBytes;
+        long mNanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            mNanos += System.nanoTime() - start;
+            if (b != -1) {
+                mBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int read = super.read(b, off, len);
+            mNanos += System.nanoTime() - start;
+            if (read > 0) {
+                mBytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            long skipped = super.skip(n);
+            mNanos += System.nanoTime() - start;
+            mBytes += skipped;
+            return skipped;
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Makes the request to the TransitFeeds.com GetFeeds API without blocking the calling thread.  The request is
+     * executed on the Executor set via Builder.setExecutor(), or {@link RequestExecutors#defaultExecutor()} if none
+     * was set.
+     *
+     * @return a future that completes with the GetFeedsResponse parsed from the returned JSON, or completes
+     * exceptionally with the IOException thrown by {@link #call()}
+     */
+    public CompletableFuture<GetFeedsResponse> callAsync() {
+        return callAsync(mExecutor != null ? mExecutor : RequestExecutors.defaultExecutor());
+    }
+
+    /**
+     * Makes the request to the TransitFeeds.com GetFeeds API on the provided executor
+     *
+     * @param executor the executor on which the request is executed
+     * @return a future that completes with the GetFeedsResponse parsed from the returned JSON, or completes
+     * exceptionally with the IOException thrown by {@link #call()}
+     */
+    public CompletableFuture<GetFeedsResponse> callAsync(Executor executor) {
+        final CompletableFuture<GetFeedsResponse> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // Cancelled before it started
+                    return;
+                }
+                try {
+                    future.complete(call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            // E.g., RejectedExecutionException from a shut down executor
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     public static class Builder {
@@ -82,6 +501,17 @@ public class GetFeedsRequest {
         private Integer mPage;
         private Integer mLimit;
         private String mType;
+        private HttpTransport mTransport = DEFAULT_TRANSPORT;
+        private Executor mExecutor;
+        private GetFeedsCache mCache;
+        private RequestCoalescer mCoalescer;
+        private RequestListener mListener;
+        private RateLimiter mRateLimiter;
+        private ConcurrencyLimiter mConcurrencyLimiter;
+        private RetryPolicy mRetryPolicy;
+        private BufferPool mBufferPool;
+        private ObjectReader mReader;
+        private Set<FeedField> mFields;
 
         /**
          * A Builder for making a request to the TransitFeeds.com GetFeeds API
@@ -165,6 +595,156 @@ public class GetFeedsRequest {
             return this;
         }
 
+        /**
+         * Sets the transport used to execute the HTTP request.  By default a shared {@link UrlConnectionTransport} is
+         * used, which reuses persistent connections and requests gzip-compressed responses.
+         *
+         * @param transport the transport used to execute the HTTP request
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTransport(HttpTransport transport) {
+            if (transport == null) {
+                throw new IllegalArgumentException("transport cannot be null");
+            }
+            mTransport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the executor used to run the request when callAsync() is called.  By default
+         * {@link RequestExecutors#defaultExecutor()} is used, which runs requests on virtual threads when the JVM
+         * supports them.  Use {@link RequestExecutors#virtualThreadExecutor()} to require virtual threads.
+         *
+         * @param executor the executor used to run the request when callAsync() is called
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setExecutor(Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the cache used to store and revalidate responses to this request.  By default responses are not
+         * cached.  Note that only call() (and callAsync()) use the cache - callStreaming() always downloads the
+         * response.
+         * <p>
+         * A cached response is returned as the same GetFeedsResponse instance to every call that hits the cache, not
+         * as a copy.  Callers must treat it as read-only - a change made by one caller is seen by all the others.
+         *
+         * @param cache the cache used to store and revalidate responses to this request
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setCache(GetFeedsCache cache) {
+            mCache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the coalescer used to share a single in-flight request between concurrent identical calls.  By
+         * default each call contacts the server.
+         * <p>
+         * Calls that share a request all receive the same GetFeedsResponse instance, not a copy.  Callers must treat
+         * it as read-only - a change made by one caller is seen by all the others.
+         *
+         * @param coalescer the coalescer used to share a single in-flight request between concurrent identical calls
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setCoalescer(RequestCoalescer coalescer) {
+            mCoalescer = coalescer;
+            return this;
+        }
+
+        /**
+         * Sets a listener that is notified of the latency of each phase, the response size and status, and any
+         * errors for each call.  By default, no listener is set and calls aren't instrumented.
+         *
+         * @param listener the listener to notify, or null to not instrument calls
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setListener(RequestListener listener) {
+            mListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the rate limiter that each request to the server must take a token from first.  Requests are limited
+         * per API key and endpoint.  Responses served from a cache don't use a token.  By default requests aren't
+         * rate limited.
+         *
+         * @param rateLimiter the rate limiter to use, or null to not rate limit requests
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setRateLimiter(RateLimiter rateLimiter) {
+            mRateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the limiter that bounds the number of concurrent requests to the server, adapting the bound to the
+         * server's latency and errors.  By default the number of concurrent requests is only bounded by the
+         * transport.
+         *
+         * @param concurrencyLimiter the concurrency limiter to use, or null to not limit concurrency
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+            mConcurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the policy for retrying failed calls, enforcing a deadline, and hedging slow calls.  Each retry or hedge
+         * goes through the cache, rate limiter and concurrency limiter like the first attempt.  By default calls are
+         * attempted once.
+         *
+         * @param retryPolicy the retry policy to use, or null to attempt calls once
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            mRetryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the pool of buffers that response bodies are read into before being parsed directly from the bytes,
+         * instead of being parsed from the connection's stream.  Sharing a pool between requests avoids allocating
+         * new buffers for every response.  Responses that are cached are read into their own arrays, as the cache
+         * keeps them, and callStreaming() always parses from the stream.  By default no pool is used.
+         *
+         * @param bufferPool the pool of buffers to read response bodies into, or null to parse from the stream
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setBufferPool(BufferPool bufferPool) {
+            mBufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * Sets the fields of each Feed to bind from the response, e.g., EnumSet.of(FeedField.ID, FeedField.LATEST) to
+         * check which feeds have changed.  The other fields and any additional properties are skipped while parsing
+         * without being allocated, and are null in the returned feeds.  The response envelope is always bound.  By
+         * default all fields are bound.
+         *
+         * @param fields the fields of each Feed to bind, or null to bind all fields
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setFields(Set<FeedField> fields) {
+            mFields = fields == null ? null : Collections.unmodifiableSet(fields.isEmpty() ?
+                    EnumSet.noneOf(FeedField.class) : EnumSet.copyOf(fields));
+            return this;
+        }
+
+        /**
+         * Sets the reader used to parse responses.  Set by TransitFeedsClient - by default the shared reader is used.
+         *
+         * @param reader the reader used to parse responses
+         * @return this same Builder so Builder calls can be chained
+         */
+        Builder setReader(ObjectReader reader) {
+            mReader = reader;
+            return this;
+        }
+
         /**
          * Builds the GetFeedsRequest using the specified parameters
          *
@@ -201,7 +781,7 @@ public class GetFeedsRequest {
                 builder.append(mType);
             }
 
-            return new GetFeedsRequest(builder.toString());
+            return new GetFeedsRequest(builder.toString(), this);
         }
     }
 }
@@ -16,8 +16,10 @@
 package edu.usf.cutr.transitfeeds;
 
 import com.fasterxml.jackson.annotation.*;
+import edu.usf.cutr.transitfeeds.model.LazyProperties;
 import edu.usf.cutr.transitfeeds.model.Results;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,7 +44,7 @@ public class GetFeedsResponse {
     @JsonProperty("results")
     private Results results;
     @JsonIgnore
-    private Map<String, Object> additionalProperties = new HashMap<String, Object>();
+    private volatile Map<String, Object> additionalProperties;
 
     /**
      * Indicates the success status of this request. The following values are possible:
@@ -108,14 +110,34 @@ public class GetFeedsResponse {
         this.results = results;
     }
 
+    /**
+     * Returns the fields that don't map to a property of this class.  The map is only created the first time it's
+     * needed, under this object's lock, so objects shared between threads (e.g., by a cache) all see the same map.
+     *
+     * @return the fields that don't map to a property of this class
+     */
     @JsonAnyGetter
-    public Map<String, Object> getAdditionalProperties() {
+    public synchronized Map<String, Object> getAdditionalProperties() {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<String, Object>();
+        }
         return this.additionalProperties;
     }
 
     @JsonAnySetter
     public void setAdditionalProperty(String name, Object value) {
-        this.additionalProperties.put(name, value);
+        getAdditionalProperties().put(name, value);
+    }
+
+    /**
+     * Replaces all additional properties, e.g., with a {@link LazyProperties} that binds the unknown fields when
+     * they are first accessed
+     *
+     * @param additionalProperties the additional properties
+     */
+    @JsonIgnore
+    public synchronized void setAdditionalProperties(Map<String, Object> additionalProperties) {
+        this.additionalProperties = additionalProperties;
     }
 
     @Override
@@ -125,7 +147,8 @@ public class GetFeedsResponse {
                 ", timestamp=" + timestamp +
                 ", errorDescription='" + errorDescription + '\'' +
                 ", results=" + results +
-                ", additionalProperties=" + additionalProperties +
+                ", additionalProperties=" +
+                (additionalProperties != null ? additionalProperties : Collections.emptyMap()) +
                 '}';
     }
 }
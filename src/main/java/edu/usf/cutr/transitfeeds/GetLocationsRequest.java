@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.http.UrlConnectionTransport;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Encapsulates a request to the TransitFeeds.com GetLocations API, which returns every location that has feeds -
+ * http://transitfeeds.com/api/swagger/#!/default/getLocations
+ * <p>
+ * The list of locations changes rarely, so rather than calling the API each time a location ID is needed, load it
+ * into a {@link edu.usf.cutr.transitfeeds.catalog.LocationDictionary}, or a
+ * {@link edu.usf.cutr.transitfeeds.catalog.LocationDictionaryCache} that keeps the dictionary up to date in the
+ * background.
+ */
+public class GetLocationsRequest {
+
+    private static final ObjectReader READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true)
+            .readerFor(GetLocationsResponse.class);
+
+    private URL mUrl;
+    private HttpTransport mTransport;
+
+    private GetLocationsRequest(String url, Builder builder) {
+        mTransport = builder.mTransport;
+        try {
+            mUrl = new URL(url);
+        } catch (MalformedURLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the URL that will be used in the API request
+     *
+     * @return the URL that will be used in the API request
+     */
+    URL getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Makes the request to the TransitFeeds.com GetLocations API, and returns a GetLocationsResponse parsed from the
+     * returned JSON.  The request can be made again with the same instance to get the current list of locations.
+     *
+     * @return a GetLocationsResponse parsed from the returned JSON
+     * @throws IOException if there is an exception making the request or reading the response from the server, or
+     *                     an {@link HttpResponseException} if the server responded with an HTTP error status code
+     */
+    public GetLocationsResponse call() throws IOException {
+        HttpResponse response = mTransport.execute(new HttpRequest(mUrl));
+        try {
+            if (response.getStatusCode() >= 400) {
+                throw new HttpResponseException(response.getStatusCode(), mUrl);
+            }
+            return READER.readValue(response.getBody());
+        } finally {
+            response.close();
+        }
+    }
+
+    public static class Builder {
+        private final String mApiKey;
+        private String mApiEndPoint = "http://api.transitfeeds.com/v1/getLocations";
+        private HttpTransport mTransport = GetFeedsRequest.DEFAULT_TRANSPORT;
+
+        /**
+         * A Builder for making a request to the TransitFeeds.com GetLocations API
+         *
+         * @param apiKey the API key to be used in the request
+         */
+        public Builder(String apiKey) {
+            mApiKey = apiKey;
+        }
+
+        /**
+         * Sets the API endpoint that will be used for the API call.  By default
+         * http://api.transitfeeds.com/v1/getLocations will be used.
+         *
+         * @param apiEndpoint the API endpoint to be used in the API call
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setApiEndpoint(String apiEndpoint) {
+            mApiEndPoint = apiEndpoint;
+            return this;
+        }
+
+        /**
+         * Sets the transport used to execute the HTTP request.  By default the {@link UrlConnectionTransport} shared
+         * with GetFeedsRequest is used, which reuses persistent connections and requests gzip-compressed responses.
+         *
+         * @param transport the transport used to execute the HTTP request
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTransport(HttpTransport transport) {
+            if (transport == null) {
+                throw new IllegalArgumentException("transport cannot be null");
+            }
+            mTransport = transport;
+            return this;
+        }
+
+        /**
+         * Builds the GetLocationsRequest using the specified parameters
+         *
+         * @return the GetLocationsRequest using the specified parameters
+         */
+        public GetLocationsRequest build() {
+            return new GetLocationsRequest(mApiEndPoint + "?key=" + mApiKey, this);
+        }
+    }
+}
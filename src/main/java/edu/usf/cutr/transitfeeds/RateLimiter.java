@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket rate limiter that keeps a separate bucket for each key.  GetFeedsRequest uses the API key and
+ * endpoint as the key, so all requests made with the same API key share one request budget, regardless of how many
+ * threads or GetFeedsRequest instances make them.  Share a single RateLimiter between all requests in an application
+ * via GetFeedsRequest.Builder.setRateLimiter().
+ * <p>
+ * Each bucket holds up to burst tokens and is refilled at a fixed rate.  A caller that finds the bucket empty
+ * reserves the next token and sleeps until it is available, so waiting callers are spaced out evenly rather than
+ * all waking at once.  This class is threadsafe.
+ */
+public class RateLimiter {
+
+    /**
+     * Default number of requests that can be made per second
+     */
+    public static final double DEFAULT_PERMITS_PER_SECOND = 10;
+
+    /**
+     * Default number of requests that can be made at once after a period of inactivity
+     */
+    public static final int DEFAULT_BURST = 10;
+
+    private final double mPermitsPerNano;
+    private final int mBurst;
+    private final ConcurrentMap<String, Bucket> mBuckets = new ConcurrentHashMap<>();
+
+    private RateLimiter(Builder builder) {
+        mPermitsPerNano = builder.mPermitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        mBurst = builder.mBurst;
+    }
+
+    /**
+     * Takes a token from the bucket for the given key, sleeping until one is available if necessary
+     *
+     * @param key the key identifying the request budget (e.g., an API key)
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(String key) throws InterruptedIOException {
+        long waitNanos = bucket(key).reserve(System.nanoTime());
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit for " + key);
+            }
+        }
+    }
+
+    /**
+     * Takes a token from the bucket for the given key if one is available immediately
+     *
+     * @param key the key identifying the request budget (e.g., an API key)
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public boolean tryAcquire(String key) {
+        return bucket(key).tryTake(System.nanoTime());
+    }
+
+    private Bucket bucket(String key) {
+        Bucket bucket = mBuckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(mBurst, System.nanoTime());
+            Bucket existing = mBuckets.putIfAbsent(key, bucket);
+            if (existing != null) {
+                bucket = existing;
+            }
+        }
+        return bucket;
+    }
+
+    private final class Bucket {
+
+        private double mTokens;
+        private long mLastRefill;
+
+        Bucket(double tokens, long now) {
+            mTokens = tokens;
+            mLastRefill = now;
+        }
+
+        /**
+         * Takes a token, going into debt if none are available, and returns how long the caller must wait for the
+         * token it took
+         */
+        synchronized long reserve(long now) {
+            refill(now);
+            mTokens -= 1;
+            return mTokens >= 0 ? 0 : (long) Math.ceil(-mTokens / mPermitsPerNano);
+        }
+
+        synchronized boolean tryTake(long now) {
+            refill(now);
+            if (mTokens < 1) {
+                return false;
+            }
+            mTokens -= 1;
+            return true;
+        }
+
+        private void refill(long now) {
+            if (now > mLastRefill) {
+                mTokens = Math.min(mBurst, mTokens + (now - mLastRefill) * mPermitsPerNano);
+                mLastRefill = now;
+            }
+        }
+    }
+
+    public static class Builder {
+        private double mPermitsPerSecond = DEFAULT_PERMITS_PER_SECOND;
+        private int mBurst = DEFAULT_BURST;
+
+        /**
+         * Sets the sustained number of requests that can be made per second for each key.  Default is
+         * {@link #DEFAULT_PERMITS_PER_SECOND}.
+         *
+         * @param permitsPerSecond the number of requests that can be made per second, which may be fractional
+         *                         (e.g., 0.5 for one request every 2 seconds)
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setPermitsPerSecond(double permitsPerSecond) {
+            if (!(permitsPerSecond > 0)) {
+                throw new IllegalArgumentException("permitsPerSecond must be > 0");
+            }
+            mPermitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets the number of requests that can be made at once for each key after a period of inactivity.  Default is
+         * {@link #DEFAULT_BURST}.
+         *
+         * @param burst the number of requests that can be made at once after a period of inactivity
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setBurst(int burst) {
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be >= 1");
+            }
+            mBurst = burst;
+            return this;
+        }
+
+        /**
+         * Builds the RateLimiter using the specified parameters
+         *
+         * @return the RateLimiter using the specified parameters
+         */
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent identical requests, so that when several threads make the same request (i.e., the same URL)
+ * at the same time only one of them contacts the server, and the others wait for and share its result.  Set on a
+ * request via GetFeedsRequest.Builder.setCoalescer().  The same coalescer should be shared by all requests that might
+ * be duplicates of each other.
+ * <p>
+ * Requests are only coalesced while they are in flight - once a request completes, the next identical request
+ * contacts the server again.  If the shared request fails, all waiting callers receive the same exception.
+ * <p>
+ * A result shared between callers is the same instance, not a copy, and the model classes are mutable.  Callers must
+ * treat it as read-only - a change made by one caller (e.g., to a Feed in a GetFeedsResponse) is seen by every other
+ * caller that shared the request, and by the cache if one is set.  Results are not copied because a GetFeedsResponse
+ * can hold thousands of feeds, and copying it for every waiter would cost more than the duplicate request saved.
+ */
+public class RequestCoalescer {
+
+    /**
+     * A fetch that might be shared between callers
+     *
+     * @param <T> the type of the result
+     */
+    public interface Fetch<T> {
+        T fetch() throws IOException;
+    }
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> mInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong mCallCount = new AtomicLong();
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+
+    /**
+     * Performs the fetch, unless a fetch with the same key is already in flight, in which case its result is
+     * returned instead
+     *
+     * @param key   the key identifying identical requests (e.g., the request URL)
+     * @param fetch the fetch to perform if no identical fetch is in flight
+     * @param <T>   the type of the result
+     * @return the result of the fetch, or of the identical fetch that was already in flight
+     * @throws IOException if the fetch (or the identical fetch that was already in flight) failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Fetch<T> fetch) throws IOException {
+        mCallCount.incrementAndGet();
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = mInFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            mCoalescedCount.incrementAndGet();
+            return (T) await(existing);
+        }
+        try {
+            T result = fetch.fetch();
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            mInFlight.remove(key, mine);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Returns the total number of calls made through this coalescer
+     *
+     * @return the total number of calls made through this coalescer
+     */
+    public long getCallCount() {
+        return mCallCount.get();
+    }
+
+    /**
+     * Returns the number of calls that shared the result of an identical in-flight call instead of contacting the
+     * server
+     *
+     * @return the number of calls that shared the result of an identical in-flight call
+     */
+    public long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    /**
+     * Returns the number of distinct requests currently in flight
+     *
+     * @return the number of distinct requests currently in flight
+     */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for running asynchronous API requests (e.g., GetFeedsRequest.callAsync())
+ */
+public final class RequestExecutors {
+
+    private static final ExecutorService VIRTUAL_THREAD_EXECUTOR = createVirtualThreadExecutor();
+
+    private RequestExecutors() {
+    }
+
+    /**
+     * Returns true if the running JVM supports virtual threads (JDK 21 or higher), false if it does not
+     *
+     * @return true if the running JVM supports virtual threads (JDK 21 or higher), false if it does not
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Returns an executor that runs each request on its own virtual thread, so thousands of blocking requests can be
+     * in flight without a platform thread each.  Requires JDK 21 or higher.
+     *
+     * @return an executor that runs each request on its own virtual thread
+     * @throws UnsupportedOperationException if the running JVM doesn't support virtual threads
+     */
+    public static ExecutorService virtualThreadExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or higher, running on "
+                    + System.getProperty("java.version"));
+        }
+        return VIRTUAL_THREAD_EXECUTOR;
+    }
+
+    /**
+     * Returns a new executor that runs requests on a cached pool of daemon platform threads
+     *
+     * @return a new executor that runs requests on a cached pool of daemon platform threads
+     */
+    public static ExecutorService newPlatformThreadExecutor() {
+        return Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    /**
+     * Returns the executor used by requests that don't specify their own - virtual threads if the running JVM
+     * supports them, otherwise a shared cached pool of daemon platform threads
+     *
+     * @return the executor used by requests that don't specify their own
+     */
+    public static ExecutorService defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor() reflectively so the library still runs on JDK 8
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static class DefaultExecutorHolder {
+        static final ExecutorService INSTANCE = VIRTUAL_THREAD_EXECUTOR != null ?
+                VIRTUAL_THREAD_EXECUTOR : newPlatformThreadExecutor();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "transitfeeds-request-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.IOException;
+
+/**
+ * Receives measurements for each GetFeeds API call made by {@link GetFeedsRequest#call()} (and therefore
+ * {@link GetFeedsRequest#callAsync()}).  Set a listener with GetFeedsRequest.Builder.setListener() -
+ * {@link RequestMetrics} is an in-memory implementation.
+ * <p>
+ * Callbacks are made on the thread executing the request, and only take primitive and existing values so reporting
+ * doesn't allocate.  Implementations must be threadsafe and should return quickly.  Calls that are coalesced into
+ * another caller's request by a {@link RequestCoalescer} are only reported once.
+ */
+public interface RequestListener {
+
+    /**
+     * Phases of an API call that are timed
+     */
+    enum Phase {
+        /**
+         * Establishing the connection (near zero when a kept-alive connection is reused)
+         */
+        CONNECT,
+        /**
+         * From the connection being established to the response headers being received
+         */
+        FIRST_BYTE,
+        /**
+         * Reading the response body from the connection
+         */
+        TRANSFER,
+        /**
+         * Parsing the response body, excluding time spent waiting for it to be transferred
+         */
+        PARSE,
+        /**
+         * The entire call, including cache lookups
+         */
+        TOTAL
+    }
+
+    /**
+     * Called when a phase of an API call has been timed.  CONNECT and FIRST_BYTE are only reported if the
+     * {@link edu.usf.cutr.transitfeeds.http.HttpTransport} measured them, and the network phases aren't reported
+     * for responses served from a cache.
+     *
+     * @param phase the phase that was timed
+     * @param nanos the duration of the phase, in nanoseconds
+     */
+    default void onPhase(Phase phase, long nanos) {
+    }
+
+    /**
+     * Called when an API call returns a response
+     *
+     * @param status   the status of the response (e.g., "OK", "EMPTYKEY", or "INVALIDINPUT")
+     * @param bytes    the size of the response body, in bytes (after decompression), or 0 if it was served from a
+     *                 cache without reading a body
+     * @param numFeeds the number of feeds in the response
+     */
+    default void onResponse(String status, long bytes, int numFeeds) {
+    }
+
+    /**
+     * Called when an API call fails
+     *
+     * @param error the exception thrown by the call
+     */
+    default void onError(Exception error) {
+    }
+
+    /**
+     * Called when an attempt of an API call failed and will be retried according to the request's
+     * {@link RetryPolicy}
+     *
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @param error   the error from the failed attempt
+     */
+    default void onRetry(int attempt, IOException error) {
+    }
+
+    /**
+     * Called when a hedged request is sent because an attempt is taking longer than usual
+     */
+    default void onHedge() {
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RequestListener} that keeps metrics in memory - a latency {@link Histogram} for each
+ * {@link RequestListener.Phase}, histograms of response sizes and feeds per response, and counts of response statuses,
+ * errors, retries and hedged requests.  A single instance can be shared by every request in an application.
+ * <p>
+ * All histograms and counters are allocated up front (or on the first occurrence of a new status or error type), so
+ * recording doesn't allocate.
+ */
+public class RequestMetrics implements RequestListener {
+
+    private final Histogram[] mPhases = new Histogram[Phase.values().length];
+    private final Histogram mResponseBytes = new Histogram();
+    private final Histogram mFeeds = new Histogram();
+    private final ConcurrentMap<String, LongAdder> mStatuses = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> mErrors = new ConcurrentHashMap<>();
+    private final LongAdder mErrorCount = new LongAdder();
+    private final LongAdder mRetryCount = new LongAdder();
+    private final LongAdder mHedgeCount = new LongAdder();
+
+    public RequestMetrics() {
+        for (int i = 0; i < mPhases.length; i++) {
+            mPhases[i] = new Histogram();
+        }
+    }
+
+    @Override
+    public void onPhase(Phase phase, long nanos) {
+        mPhases[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onResponse(String status, long bytes, int numFeeds) {
+        mResponseBytes.record(bytes);
+        mFeeds.record(numFeeds);
+        mStatuses.computeIfAbsent(String.valueOf(status), k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onError(Exception error) {
+        mErrorCount.increment();
+        mErrors.computeIfAbsent(error.getClass().getName(), k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onRetry(int attempt, IOException error) {
+        mRetryCount.increment();
+    }
+
+    @Override
+    public void onHedge() {
+        mHedgeCount.increment();
+    }
+
+    /**
+     * Returns the latency histogram for the given phase, in nanoseconds
+     *
+     * @param phase the phase of the API call
+     * @return the latency histogram for the given phase, in nanoseconds
+     */
+    public Histogram getLatency(Phase phase) {
+        return mPhases[phase.ordinal()];
+    }
+
+    /**
+     * Returns the histogram of response body sizes, in bytes
+     *
+     * @return the histogram of response body sizes, in bytes
+     */
+    public Histogram getResponseBytes() {
+        return mResponseBytes;
+    }
+
+    /**
+     * Returns the histogram of the number of feeds in each response
+     *
+     * @return the histogram of the number of feeds in each response
+     */
+    public Histogram getFeeds() {
+        return mFeeds;
+    }
+
+    /**
+     * Returns the number of responses with the given status
+     *
+     * @param status the response status (e.g., "OK", "EMPTYKEY", or "INVALIDINPUT")
+     * @return the number of responses with the given status
+     */
+    public long getStatusCount(String status) {
+        LongAdder count = mStatuses.get(status);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * Returns the number of responses with each status
+     *
+     * @return a map of response status to the number of responses with that status
+     */
+    public Map<String, Long> getStatusCounts() {
+        return snapshot(mStatuses);
+    }
+
+    /**
+     * Returns the number of calls that failed
+     *
+     * @return the number of calls that failed
+     */
+    public long getErrorCount() {
+        return mErrorCount.sum();
+    }
+
+    /**
+     * Returns the number of calls that failed with each type of exception
+     *
+     * @return a map of exception class name to the number of calls that failed with that exception
+     */
+    public Map<String, Long> getErrorCounts() {
+        return snapshot(mErrors);
+    }
+
+    /**
+     * Returns the number of failed attempts that were retried
+     *
+     * @return the number of failed attempts that were retried
+     */
+    public long getRetryCount() {
+        return mRetryCount.sum();
+    }
+
+    /**
+     * Returns the number of hedged requests sent
+     *
+     * @return the number of hedged requests sent
+     */
+    public long getHedgeCount() {
+        return mHedgeCount.sum();
+    }
+
+    /**
+     * Clears all metrics
+     */
+    public void reset() {
+        for (Histogram histogram : mPhases) {
+            histogram.reset();
+        }
+        mResponseBytes.reset();
+        mFeeds.reset();
+        mStatuses.clear();
+        mErrors.clear();
+        mErrorCount.reset();
+        mRetryCount.reset();
+        mHedgeCount.reset();
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RequestMetrics{");
+        for (Phase phase : Phase.values()) {
+            builder.append(phase).append('=').append(getLatency(phase)).append(", ");
+        }
+        return builder.append("responseBytes=").append(mResponseBytes)
+                .append(", feeds=").append(mFeeds)
+                .append(", statuses=").append(getStatusCounts())
+                .append(", errors=").append(getErrorCounts())
+                .append(", retries=").append(getRetryCount())
+                .append(", hedges=").append(getHedgeCount())
+                .append('}')
+                .toString();
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Controls how GetFeedsRequest.call() recovers from failed and slow requests.  Set on a request via
+ * GetFeedsRequest.Builder.setRetryPolicy().  A policy should be shared by all requests to the same server, since
+ * hedging is based on the latency of previous calls made with the policy.
+ * <ul>
+ * <li><b>Retries</b> - failed attempts are retried up to maxAttempts times in total, waiting a random delay between
+ * 0 and min(maxDelay, baseDelay * 2^(attempt - 1)) before each retry ("full jitter"), so clients that fail at the same
+ * time don't retry in lockstep.  Client errors (HTTP 4xx other than 408 and 429) aren't retried.</li>
+ * <li><b>Deadline</b> - if set, the whole call, including retries and backoff, fails with a
+ * {@link DeadlineExceededException} once the deadline passes, even if an attempt is stuck.</li>
+ * <li><b>Hedging</b> - if enabled, when an attempt hasn't completed within the hedgePercentile latency of previous
+ * calls, a duplicate request is sent and whichever answers successfully first is used.  Hedging only starts after
+ * enough calls have completed to estimate the latency.</li>
+ * </ul>
+ * When a deadline or hedging is used, attempts run on the policy's executor (by default
+ * {@link RequestExecutors#defaultExecutor()}) while the calling thread waits.  If the executor is bounded and also
+ * runs the calls themselves (e.g., via callAsync()), every thread can end up waiting on an attempt that no thread is
+ * free to run, so a caller that would otherwise wait without a deadline runs attempts that haven't started within
+ * 10 ms itself, newest (i.e., the hedge) first.  With a deadline, such a call fails once the deadline passes.
+ * <p>
+ * An attempt that is abandoned because of the deadline or because its hedge won continues in the background until
+ * the transport's read timeout, since blocking reads can't be interrupted.
+ */
+public class RetryPolicy {
+
+    /**
+     * Default maximum number of attempts per call, including the first
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * Default base delay before the first retry, in milliseconds
+     */
+    public static final long DEFAULT_BASE_DELAY_MS = 100;
+
+    /**
+     * Default maximum delay between retries, in milliseconds
+     */
+    public static final long DEFAULT_MAX_DELAY_MS = 5000;
+
+    /**
+     * Default percentile of previous latencies after which a hedged request is sent
+     */
+    public static final double DEFAULT_HEDGE_PERCENTILE = 95;
+
+    /**
+     * Number of completed attempts required before hedging starts
+     */
+    static final int MIN_HEDGE_SAMPLES = 20;
+
+    /**
+     * Time, in milliseconds, after which a caller waiting without a deadline runs attempts the executor hasn't started
+     */
+    static final long QUEUED_GRACE_MS = 10;
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayNanos;
+    private final long mMaxDelayNanos;
+    private final long mDeadlineNanos;
+    private final boolean mHedging;
+    private final double mHedgePercentile;
+    private final Histogram mLatencies;
+    private final Executor mExecutor;
+
+    private RetryPolicy(Builder builder) {
+        mMaxAttempts = builder.mMaxAttempts;
+        mBaseDelayNanos = builder.mBaseDelayNanos;
+        mMaxDelayNanos = builder.mMaxDelayNanos;
+        mDeadlineNanos = builder.mDeadlineNanos;
+        mHedging = builder.mHedging;
+        mHedgePercentile = builder.mHedgePercentile;
+        mLatencies = new Histogram();
+        mExecutor = builder.mExecutor;
+    }
+
+    private RetryPolicy(RetryPolicy policy, Executor executor) {
+        mMaxAttempts = policy.mMaxAttempts;
+        mBaseDelayNanos = policy.mBaseDelayNanos;
+        mMaxDelayNanos = policy.mMaxDelayNanos;
+        mDeadlineNanos = policy.mDeadlineNanos;
+        mHedging = policy.mHedging;
+        mHedgePercentile = policy.mHedgePercentile;
+        mLatencies = policy.mLatencies;
+        mExecutor = executor;
+    }
+
+    /**
+     * Returns this policy if its executor was set via Builder.setExecutor(), otherwise a policy with the same settings
+     * that runs attempts on the given executor.  The returned policy shares this policy's latencies, so hedging is
+     * still based on all calls made with either.
+     *
+     * @param executor the executor to use if none was set, or null to keep the default
+     * @return this policy, or a policy that runs attempts on the given executor
+     */
+    RetryPolicy withDefaultExecutor(Executor executor) {
+        return mExecutor != null || executor == null ? this : new RetryPolicy(this, executor);
+    }
+
+    private Executor executor() {
+        return mExecutor != null ? mExecutor : RequestExecutors.defaultExecutor();
+    }
+
+    /**
+     * Performs the fetch according to this policy
+     *
+     * @param fetch    the fetch to perform
+     * @param listener the listener to notify of retries and hedges, or null
+     * @param <T>      the type of the result
+     * @return the result of the first successful attempt
+     * @throws IOException the error from the last attempt if all attempts failed, or a
+     *                     {@link DeadlineExceededException} if the deadline passed
+     */
+    <T> T execute(RequestCoalescer.Fetch<T> fetch, RequestListener listener) throws IOException {
+        long start = System.nanoTime();
+        long deadline = mDeadlineNanos > 0 ? start + mDeadlineNanos : Long.MAX_VALUE;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (mDeadlineNanos > 0 || mHedging) {
+                    return attemptAsync(fetch, listener, deadline);
+                }
+                long attemptStart = System.nanoTime();
+                T result = fetch.fetch();
+                mLatencies.record(System.nanoTime() - attemptStart);
+                return result;
+            } catch (DeadlineExceededException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= mMaxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                long delay = backoffNanos(attempt);
+                if (System.nanoTime() + delay >= deadline) {
+                    throw new DeadlineExceededException(TimeUnit.NANOSECONDS.toMillis(mDeadlineNanos), e);
+                }
+                if (listener != null) {
+                    listener.onRetry(attempt, e);
+                }
+                sleep(delay);
+            }
+        }
+    }
+
+    private <T> T attemptAsync(RequestCoalescer.Fetch<T> fetch, RequestListener listener, long deadline)
+            throws IOException {
+        Race<T> race = new Race<>(fetch, executor(), mLatencies);
+        long hedgeDelay = mHedging ? getHedgeDelayNanos() : -1;
+        if (hedgeDelay >= 0 && System.nanoTime() + hedgeDelay < deadline) {
+            try {
+                return race.mResult.get(hedgeDelay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Not hedged if the first attempt failed just now - the failure is returned below and retried like
+                // any other
+                if (race.hedge() && listener != null) {
+                    listener.onHedge();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                return unwrap(e);
+            }
+        }
+        try {
+            while (deadline == Long.MAX_VALUE) {
+                // Nothing bounds the wait, so attempts still waiting for a thread are run on this one instead
+                try {
+                    return race.mResult.get(QUEUED_GRACE_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    race.runQueued();
+                }
+            }
+            return race.mResult.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(TimeUnit.NANOSECONDS.toMillis(mDeadlineNanos), null);
+        } catch (InterruptedException | ExecutionException e) {
+            return unwrap(e);
+        }
+    }
+
+    /**
+     * Runs copies of the same fetch concurrently, completing with the first success, or with the last failure if
+     * all copies fail.  The latency of the winning copy, measured from its own start, is recorded, so that hedged
+     * calls don't add the hedge delay to the latencies the hedge delay is computed from.
+     */
+    private static class Race<T> {
+
+        final CompletableFuture<T> mResult = new CompletableFuture<>();
+        private final RequestCoalescer.Fetch<T> mFetch;
+        private final Executor mExecutor;
+        private final Histogram mLatencies;
+        // Copies still running - once it reaches 0 the race has failed and no more copies can join
+        private final AtomicInteger mRunning = new AtomicInteger(1);
+        private final AtomicBoolean mWon = new AtomicBoolean();
+        // Copies submitted to the executor that haven't started yet, oldest first
+        private final Deque<Attempt> mQueued = new ConcurrentLinkedDeque<>();
+
+        /**
+         * Starts the race with the first copy of the fetch
+         */
+        Race(RequestCoalescer.Fetch<T> fetch, Executor executor, Histogram latencies) {
+            mFetch = fetch;
+            mExecutor = executor;
+            mLatencies = latencies;
+            submit();
+        }
+
+        /**
+         * Starts another copy of the fetch, unless every copy has already failed
+         *
+         * @return true if another copy was started, false if the race has already failed
+         */
+        boolean hedge() {
+            int running;
+            do {
+                running = mRunning.get();
+                if (running == 0 || mResult.isDone()) {
+                    return false;
+                }
+            } while (!mRunning.compareAndSet(running, running + 1));
+            submit();
+            return true;
+        }
+
+        /**
+         * Runs the copies that the executor hasn't started yet on the calling thread, newest first, until the race
+         * is decided
+         */
+        void runQueued() {
+            Attempt attempt;
+            while (!mResult.isDone() && (attempt = mQueued.pollLast()) != null) {
+                attempt.run();
+            }
+        }
+
+        private void submit() {
+            Attempt attempt = new Attempt();
+            mQueued.add(attempt);
+            try {
+                mExecutor.execute(attempt);
+            } catch (RuntimeException e) {
+                // E.g., RejectedExecutionException - runQueued() might already have run it
+                if (attempt.start()) {
+                    fail(e);
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (mRunning.decrementAndGet() == 0) {
+                mResult.completeExceptionally(t);
+            }
+        }
+
+        /**
+         * A single copy of the fetch, which runs at most once, on whichever thread starts it first
+         */
+        private class Attempt implements Runnable {
+
+            private final AtomicBoolean mStarted = new AtomicBoolean();
+
+            boolean start() {
+                if (!mStarted.compareAndSet(false, true)) {
+                    return false;
+                }
+                mQueued.remove(this);
+                return true;
+            }
+
+            @Override
+            public void run() {
+                if (!start() || mResult.isDone()) {
+                    // Already run by the caller, or started after the race was decided
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    T result = mFetch.fetch();
+                    if (mWon.compareAndSet(false, true)) {
+                        // Recorded before completing so the sample is visible once the caller has the result
+                        mLatencies.record(System.nanoTime() - start);
+                        mResult.complete(result);
+                    }
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }
+        }
+    }
+
+    private static <T> T unwrap(Exception e) throws IOException {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        }
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IOException(cause);
+    }
+
+    /**
+     * Returns true if a failed attempt should be retried.  Errors caused by the request itself (HTTP 4xx other than
+     * 408 Request Timeout and 429 Too Many Requests) would fail again, so they aren't retried.
+     *
+     * @param e the error from the failed attempt
+     * @return true if a failed attempt should be retried
+     */
+    static boolean isRetryable(IOException e) {
+        if (e instanceof HttpResponseException) {
+            int status = ((HttpResponseException) e).getStatusCode();
+            return status == 408 || status == 429 || status >= 500;
+        }
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    long backoffNanos(int attempt) {
+        long ceiling = mBaseDelayNanos << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > mMaxDelayNanos) {
+            ceiling = mMaxDelayNanos;
+        }
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Returns the delay after which a hedged request is sent, based on the latency of previous successful attempts,
+     * or -1 if hedging is disabled or not enough attempts have completed yet
+     *
+     * @return the delay after which a hedged request is sent, in nanoseconds, or -1
+     */
+    public long getHedgeDelayNanos() {
+        if (!mHedging || mLatencies.getCount() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return mLatencies.getValueAtPercentile(mHedgePercentile);
+    }
+
+    /**
+     * Returns the latencies of successful attempts made with this policy, in nanoseconds
+     *
+     * @return the latencies of successful attempts made with this policy, in nanoseconds
+     */
+    public Histogram getLatencies() {
+        return mLatencies;
+    }
+
+    public static class Builder {
+        private int mMaxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long mBaseDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BASE_DELAY_MS);
+        private long mMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_DELAY_MS);
+        private long mDeadlineNanos;
+        private boolean mHedging;
+        private double mHedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+        private Executor mExecutor;
+
+        /**
+         * Sets the maximum number of attempts per call, including the first.  1 disables retries.  Default is
+         * {@link #DEFAULT_MAX_ATTEMPTS}.
+         *
+         * @param maxAttempts the maximum number of attempts per call
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be >= 1");
+            }
+            mMaxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the delays used between retries.  Defaults are {@link #DEFAULT_BASE_DELAY_MS} and
+         * {@link #DEFAULT_MAX_DELAY_MS} milliseconds.
+         *
+         * @param baseDelay the upper bound of the random delay before the first retry, which doubles for each
+         *                  subsequent retry
+         * @param maxDelay  the largest upper bound for the random delay
+         * @param unit      the unit of baseDelay and maxDelay
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setBackoff(long baseDelay, long maxDelay, TimeUnit unit) {
+            if (baseDelay < 0 || maxDelay < baseDelay) {
+                throw new IllegalArgumentException("Delays must satisfy 0 <= baseDelay <= maxDelay");
+            }
+            mBaseDelayNanos = unit.toNanos(baseDelay);
+            mMaxDelayNanos = unit.toNanos(maxDelay);
+            return this;
+        }
+
+        /**
+         * Sets the total time allowed for a call, including all attempts and the delays between them.  0 means no
+         * deadline, which is the default.
+         *
+         * @param deadline the total time allowed for a call
+         * @param unit     the unit of deadline
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setDeadline(long deadline, TimeUnit unit) {
+            if (deadline < 0) {
+                throw new IllegalArgumentException("deadline must be >= 0");
+            }
+            mDeadlineNanos = unit.toNanos(deadline);
+            return this;
+        }
+
+        /**
+         * Sets whether a duplicate request is sent when an attempt takes longer than the hedge percentile of previous
+         * latencies.  Default is false.
+         *
+         * @param hedging true to send hedged requests, false to not
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setHedging(boolean hedging) {
+            mHedging = hedging;
+            return this;
+        }
+
+        /**
+         * Sets the percentile of previous latencies after which a hedged request is sent.  Lower values cut tail
+         * latency further at the cost of more duplicate requests.  Default is {@link #DEFAULT_HEDGE_PERCENTILE}.
+         *
+         * @param hedgePercentile the percentile, greater than 0 and at most 100
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setHedgePercentile(double hedgePercentile) {
+            if (!(hedgePercentile > 0 && hedgePercentile <= 100)) {
+                throw new IllegalArgumentException("hedgePercentile must be > 0 and <= 100");
+            }
+            mHedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /**
+         * Sets the executor on which attempts run when a deadline or hedging is used.  By default the executor of
+         * the {@link TransitFeedsClient} the policy is set on is used, or {@link RequestExecutors#defaultExecutor()}
+         * if there isn't one.
+         *
+         * @param executor the executor on which attempts run
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setExecutor(Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("executor cannot be null");
+            }
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Builds the RetryPolicy using the specified parameters
+         *
+         * @return the RetryPolicy using the specified parameters
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
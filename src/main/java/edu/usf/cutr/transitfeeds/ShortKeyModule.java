@@ -0,0 +1,465 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.LazyProperties;
+import edu.usf.cutr.transitfeeds.model.Latest;
+import edu.usf.cutr.transitfeeds.model.Location;
+import edu.usf.cutr.transitfeeds.model.Results;
+import edu.usf.cutr.transitfeeds.model.Urls;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Jackson module with hand-written deserializers for GetFeedsResponse and the model classes.  Instead of binding
+ * properties through the @JsonProperty annotations, the deserializers read tokens directly from the JsonParser and
+ * switch on the API's short keys (e.g., "ty", "t", "l", "u", "pid", "n", "ts").  Unrecognized keys are still stored
+ * as additional properties, and the result is the same as the annotation-based binding for the same input.
+ * <p>
+ * The values of unrecognized keys are buffered as tokens in a {@link LazyProperties} map, and are only bound to
+ * Maps, Lists, etc. if getAdditionalProperties() is accessed.
+ * <p>
+ * Enable it with TransitFeedsClient.Builder.setShortKeyDeserializer(), or register it with your own ObjectMapper.
+ * <p>
+ * If the reader has a Set of {@link FeedField} as the attribute {@link #FIELDS_ATTRIBUTE}, only those fields of
+ * each Feed are bound - the others, and any additional properties, are skipped with skipChildren() without being
+ * allocated.  GetFeedsRequest.Builder.setFields() sets this attribute.
+ */
+public class ShortKeyModule extends SimpleModule {
+
+    /**
+     * The reader attribute that holds the Set of {@link FeedField} to bind, e.g.,
+     * reader.withAttribute(ShortKeyModule.FIELDS_ATTRIBUTE, EnumSet.of(FeedField.ID, FeedField.LATEST))
+     */
+    public static final Object FIELDS_ATTRIBUTE = FeedField.class;
+
+    private static final long serialVersionUID = 1L;
+
+    public ShortKeyModule() {
+        super("ShortKeyModule");
+        addDeserializer(GetFeedsResponse.class, new StdDeserializer<GetFeedsResponse>(GetFeedsResponse.class) {
+            @Override
+            public GetFeedsResponse deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return readResponse(p, ctxt);
+            }
+        });
+        addDeserializer(Results.class, new StdDeserializer<Results>(Results.class) {
+            @Override
+            public Results deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return readResults(p, ctxt);
+            }
+        });
+        addDeserializer(Feed.class, new StdDeserializer<Feed>(Feed.class) {
+            @Override
+            public Feed deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return readFeed(p, ctxt, fields(ctxt));
+            }
+        });
+        addDeserializer(Location.class, new StdDeserializer<Location>(Location.class) {
+            @Override
+            public Location deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return readLocation(p, ctxt);
+            }
+        });
+        addDeserializer(Urls.class, new StdDeserializer<Urls>(Urls.class) {
+            @Override
+            public Urls deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return readUrls(p, ctxt);
+            }
+        });
+        addDeserializer(Latest.class, new StdDeserializer<Latest>(Latest.class) {
+            @Override
+            public Latest deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                return readLatest(p, ctxt);
+            }
+        });
+    }
+
+    static GetFeedsResponse readResponse(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startObject(p, ctxt, GetFeedsResponse.class)) {
+            return null;
+        }
+        GetFeedsResponse response = new GetFeedsResponse();
+        TokenBuffer unknown = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "status":
+                    response.setStatus(readString(p, ctxt));
+                    break;
+                case "ts":
+                    response.setTimestamp(readInteger(p, ctxt));
+                    break;
+                case "msg":
+                    response.setErrorDescription(readString(p, ctxt));
+                    break;
+                case "results":
+                    response.setResults(readResults(p, ctxt));
+                    break;
+                default:
+                    unknown = buffer(unknown, name, p, ctxt);
+            }
+        }
+        if (unknown != null) {
+            response.setAdditionalProperties(lazy(unknown, p, ctxt));
+        }
+        return response;
+    }
+
+    static Results readResults(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startObject(p, ctxt, Results.class)) {
+            return null;
+        }
+        Results results = new Results();
+        TokenBuffer unknown = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "input":
+                    results.setInput(readString(p, ctxt));
+                    break;
+                case "total":
+                    results.setTotal(readInteger(p, ctxt));
+                    break;
+                case "limit":
+                    results.setLimit(readInteger(p, ctxt));
+                    break;
+                case "page":
+                    results.setPage(readInteger(p, ctxt));
+                    break;
+                case "numPages":
+                    results.setNumPages(readInteger(p, ctxt));
+                    break;
+                case "feeds":
+                    results.setFeeds(readFeeds(p, ctxt));
+                    break;
+                default:
+                    unknown = buffer(unknown, name, p, ctxt);
+            }
+        }
+        if (unknown != null) {
+            results.setAdditionalProperties(lazy(unknown, p, ctxt));
+        }
+        return results;
+    }
+
+    static List<Feed> readFeeds(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (t != JsonToken.START_ARRAY) {
+            // Let Jackson apply its usual coercions (or report the error)
+            JavaType type = ctxt.getTypeFactory().constructCollectionType(List.class, Feed.class);
+            return ctxt.readValue(p, type);
+        }
+        Set<FeedField> fields = fields(ctxt);
+        List<Feed> feeds = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            feeds.add(readFeed(p, ctxt, fields));
+        }
+        return feeds;
+    }
+
+    static Feed readFeed(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startObject(p, ctxt, Feed.class)) {
+            return null;
+        }
+        Feed feed = new Feed();
+        TokenBuffer unknown = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "id":
+                    feed.setId(readString(p, ctxt));
+                    break;
+                case "ty":
+                    feed.setType(readString(p, ctxt));
+                    break;
+                case "t":
+                    feed.setTitle(readString(p, ctxt));
+                    break;
+                case "l":
+                    feed.setLocation(readLocation(p, ctxt));
+                    break;
+                case "u":
+                    feed.setUrls(readUrls(p, ctxt));
+                    break;
+                case "latest":
+                    feed.setLatest(readLatest(p, ctxt));
+                    break;
+                default:
+                    unknown = buffer(unknown, name, p, ctxt);
+            }
+        }
+        if (unknown != null) {
+            feed.setAdditionalProperties(lazy(unknown, p, ctxt));
+        }
+        return feed;
+    }
+
+    /**
+     * Reads a Feed, binding only the given fields
+     *
+     * @param fields the fields to bind, or null to bind all fields and additional properties
+     */
+    static Feed readFeed(JsonParser p, DeserializationContext ctxt, Set<FeedField> fields) throws IOException {
+        if (fields == null) {
+            return readFeed(p, ctxt);
+        }
+        if (!startObject(p, ctxt, Feed.class)) {
+            return null;
+        }
+        Feed feed = new Feed();
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            FeedField field = FeedField.forKey(name);
+            if (field == null || !fields.contains(field)) {
+                p.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case ID:
+                    feed.setId(readString(p, ctxt));
+                    break;
+                case TYPE:
+                    feed.setType(readString(p, ctxt));
+                    break;
+                case TITLE:
+                    feed.setTitle(readString(p, ctxt));
+                    break;
+                case LOCATION:
+                    feed.setLocation(readLocation(p, ctxt));
+                    break;
+                case URLS:
+                    feed.setUrls(readUrls(p, ctxt));
+                    break;
+                case LATEST:
+                    feed.setLatest(readLatest(p, ctxt));
+                    break;
+            }
+        }
+        return feed;
+    }
+
+    static Location readLocation(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startObject(p, ctxt, Location.class)) {
+            return null;
+        }
+        Location location = new Location();
+        TokenBuffer unknown = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "id":
+                    location.setId(readInteger(p, ctxt));
+                    break;
+                case "pid":
+                    location.setParentId(readInteger(p, ctxt));
+                    break;
+                case "t":
+                    location.setTitleWithRegion(readString(p, ctxt));
+                    break;
+                case "n":
+                    location.setTitle(readString(p, ctxt));
+                    break;
+                case "lat":
+                    location.setLat(readDouble(p, ctxt));
+                    break;
+                case "lng":
+                    location.setLng(readDouble(p, ctxt));
+                    break;
+                default:
+                    unknown = buffer(unknown, name, p, ctxt);
+            }
+        }
+        if (unknown != null) {
+            location.setAdditionalProperties(lazy(unknown, p, ctxt));
+        }
+        return location;
+    }
+
+    static Urls readUrls(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startObject(p, ctxt, Urls.class)) {
+            return null;
+        }
+        Urls urls = new Urls();
+        TokenBuffer unknown = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "i":
+                    urls.setInfoUrl(readString(p, ctxt));
+                    break;
+                case "d":
+                    urls.setDownloadUrl(readString(p, ctxt));
+                    break;
+                default:
+                    unknown = buffer(unknown, name, p, ctxt);
+            }
+        }
+        if (unknown != null) {
+            urls.setAdditionalProperties(lazy(unknown, p, ctxt));
+        }
+        return urls;
+    }
+
+    static Latest readLatest(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!startObject(p, ctxt, Latest.class)) {
+            return null;
+        }
+        Latest latest = new Latest();
+        TokenBuffer unknown = null;
+        for (String name = firstFieldName(p); name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            if ("ts".equals(name)) {
+                latest.setTimestamp(readInteger(p, ctxt));
+            } else {
+                unknown = buffer(unknown, name, p, ctxt);
+            }
+        }
+        if (unknown != null) {
+            latest.setAdditionalProperties(lazy(unknown, p, ctxt));
+        }
+        return latest;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<FeedField> fields(DeserializationContext ctxt) {
+        return (Set<FeedField>) ctxt.getAttribute(FIELDS_ATTRIBUTE);
+    }
+
+    /**
+     * Checks that the parser is positioned on an object, matching how Jackson binds a bean.  Returns false if the
+     * value is null or an empty array that should be read as null (the API returns "u": [] for feeds without URLs).
+     */
+    private static boolean startObject(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT || t == JsonToken.FIELD_NAME || t == JsonToken.END_OBJECT) {
+            return true;
+        }
+        if (t == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (t == JsonToken.START_ARRAY && ctxt.isEnabled(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT)) {
+            if (p.nextToken() == JsonToken.END_ARRAY) {
+                return false;
+            }
+        }
+        throw ctxt.mappingException(type, t);
+    }
+
+    /**
+     * Returns the name of the first field of the object the parser is positioned on, or null if the object is empty.
+     * Later fields are read with nextFieldName(), which matches names against the parser's symbol table without
+     * creating a token for each one.
+     */
+    private static String firstFieldName(JsonParser p) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT) {
+            return p.nextFieldName();
+        }
+        return t == JsonToken.FIELD_NAME ? p.getCurrentName() : null;
+    }
+
+    private static String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return ctxt.readValue(p, String.class);
+    }
+
+    private static Integer readInteger(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.VALUE_NUMBER_INT && p.getNumberType() == JsonParser.NumberType.INT) {
+            return p.getIntValue();
+        }
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return ctxt.readValue(p, Integer.class);
+    }
+
+    private static Double readDouble(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.VALUE_NUMBER_FLOAT || t == JsonToken.VALUE_NUMBER_INT) {
+            return p.getDoubleValue();
+        }
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return ctxt.readValue(p, Double.class);
+    }
+
+    /**
+     * Copies an unknown field and its value to the buffer, creating the buffer for the first unknown field of an
+     * object.  This copies tokens rather than binding the value to Maps and Lists.
+     */
+    private static TokenBuffer buffer(TokenBuffer buffer, String name, JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+        if (buffer == null) {
+            buffer = new TokenBuffer(p, ctxt);
+        }
+        buffer.writeFieldName(name);
+        buffer.copyCurrentStructure(p);
+        return buffer;
+    }
+
+    /**
+     * Returns the additional properties for the buffered unknown fields, bound when they are first accessed
+     */
+    private static Map<String, Object> lazy(TokenBuffer buffer, JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+        if (p.getCodec() != null) {
+            return new LazyProperties(buffer, p.getCodec());
+        }
+        // Without a codec the values can't be bound later, so bind them now
+        Map<String, Object> map = new HashMap<>();
+        try (JsonParser buffered = buffer.asParser(p)) {
+            while (buffered.nextToken() == JsonToken.FIELD_NAME) {
+                String name = buffered.getCurrentName();
+                buffered.nextToken();
+                map.put(name, readAny(buffered, ctxt));
+            }
+        }
+        return map;
+    }
+
+    private static Object readAny(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return ctxt.readValue(p, Object.class);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the total number of feeds reported by the API changes while pages of the same query are being fetched,
+ * which means the pages may overlap or have gaps and the query should be restarted
+ */
+public class TotalChangedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int mExpectedTotal;
+    private final int mActualTotal;
+    private final int mPage;
+
+    /**
+     * Creates a new exception
+     *
+     * @param expectedTotal the total reported by the first page
+     * @param actualTotal   the total reported by the page with the mismatch
+     * @param page          the page number with the mismatch
+     */
+    public TotalChangedException(int expectedTotal, int actualTotal, int page) {
+        super("Total changed from " + expectedTotal + " to " + actualTotal + " on page " + page);
+        mExpectedTotal = expectedTotal;
+        mActualTotal = actualTotal;
+        mPage = page;
+    }
+
+    /**
+     * Returns the total reported by the first page
+     *
+     * @return the total reported by the first page
+     */
+    public int getExpectedTotal() {
+        return mExpectedTotal;
+    }
+
+    /**
+     * Returns the total reported by the page with the mismatch
+     *
+     * @return the total reported by the page with the mismatch
+     */
+    public int getActualTotal() {
+        return mActualTotal;
+    }
+
+    /**
+     * Returns the page number with the mismatch
+     *
+     * @return the page number with the mismatch
+     */
+    public int getPage() {
+        return mPage;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.http.UrlConnectionTransport;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * A client for the TransitFeeds.com API that holds an API key, a transport, and other settings shared by all of its
+ * requests, along with its own immutable Jackson ObjectReader.  Create requests from the client with
+ * {@link #newGetFeedsRequest()}:
+ * <pre>
+ * TransitFeedsClient client = new TransitFeedsClient.Builder(apiKey).build();
+ * GetFeedsResponse response = client.newGetFeedsRequest().setLimit(100).build().call();
+ * </pre>
+ * All configuration is decided when the client is built, and the reader is warmed up by parsing a sample response so
+ * the first real request doesn't pay for building Jackson's deserializers.  Clients don't share any mutable state, so
+ * differently configured clients can be used at the same time in one JVM.  This class is threadsafe, and a client
+ * should be reused for all requests with the same settings.
+ */
+public class TransitFeedsClient {
+
+    /**
+     * A response containing every field of the model, parsed when the client is built so Jackson creates and caches
+     * all deserializers up front
+     */
+    private static final String WARM_UP_RESPONSE = "{\"status\":\"OK\",\"ts\":0,\"msg\":\"\",\"results\":{" +
+            "\"input\":\"\",\"total\":1,\"limit\":1,\"page\":1,\"numPages\":1,\"feeds\":[{" +
+            "\"id\":\"warm-up/1\",\"ty\":\"gtfs\",\"t\":\"Warm up\"," +
+            "\"l\":{\"id\":1,\"pid\":0,\"t\":\"Warm up\",\"n\":\"Warm up\",\"lat\":0.0,\"lng\":0.0}," +
+            "\"u\":{\"i\":\"http://example.com\",\"d\":\"http://example.com/gtfs.zip\"}," +
+            "\"latest\":{\"ts\":0}}]}}";
+
+    private final String mApiKey;
+    private final String mApiEndpoint;
+    private final HttpTransport mTransport;
+    private final Executor mExecutor;
+    private final GetFeedsCache mCache;
+    private final RequestCoalescer mCoalescer;
+    private final RequestListener mListener;
+    private final RateLimiter mRateLimiter;
+    private final ConcurrencyLimiter mConcurrencyLimiter;
+    private final RetryPolicy mRetryPolicy;
+    private final BufferPool mBufferPool;
+    private final ObjectReader mReader;
+
+    private TransitFeedsClient(Builder builder) {
+        mApiKey = builder.mApiKey;
+        mApiEndpoint = builder.mApiEndpoint;
+        mTransport = builder.mTransport;
+        mExecutor = builder.mExecutor;
+        mCache = builder.mCache;
+        mCoalescer = builder.mCoalescer;
+        mListener = builder.mListener;
+        mRateLimiter = builder.mRateLimiter;
+        mConcurrencyLimiter = builder.mConcurrencyLimiter;
+        mRetryPolicy = builder.mRetryPolicy != null ?
+                builder.mRetryPolicy.withDefaultExecutor(builder.mExecutor) : null;
+        mBufferPool = builder.mBufferPool;
+        mReader = GetFeedsRequest.newReader(builder.mFailOnUnknownProperties, builder.mShortKeyDeserializer);
+        try {
+            mReader.readValue(WARM_UP_RESPONSE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to parse the warm up response", e);
+        }
+    }
+
+    /**
+     * Returns a builder for a GetFeeds request that uses this client's API key, reader and settings.  Settings can
+     * still be overridden for an individual request on the returned builder.
+     *
+     * @return a builder for a GetFeeds request that uses this client's settings
+     */
+    public GetFeedsRequest.Builder newGetFeedsRequest() {
+        GetFeedsRequest.Builder builder = new GetFeedsRequest.Builder(mApiKey)
+                .setTransport(mTransport)
+                .setExecutor(mExecutor)
+                .setCache(mCache)
+                .setCoalescer(mCoalescer)
+                .setListener(mListener)
+                .setRateLimiter(mRateLimiter)
+                .setConcurrencyLimiter(mConcurrencyLimiter)
+                .setRetryPolicy(mRetryPolicy)
+                .setBufferPool(mBufferPool)
+                .setReader(mReader);
+        if (mApiEndpoint != null) {
+            builder.setApiEndpoint(mApiEndpoint);
+        }
+        return builder;
+    }
+
+    /**
+     * Returns a builder for a GetLocations request that uses this client's API key and transport.  The client's API
+     * endpoint only applies to GetFeeds requests.
+     *
+     * @return a builder for a GetLocations request that uses this client's API key and transport
+     */
+    public GetLocationsRequest.Builder newGetLocationsRequest() {
+        return new GetLocationsRequest.Builder(mApiKey).setTransport(mTransport);
+    }
+
+    /**
+     * Returns the reader this client uses to parse responses
+     *
+     * @return the reader this client uses to parse responses
+     */
+    ObjectReader getReader() {
+        return mReader;
+    }
+
+    public static class Builder {
+        private final String mApiKey;
+        private String mApiEndpoint;
+        private HttpTransport mTransport = new UrlConnectionTransport.Builder().build();
+        private Executor mExecutor;
+        private GetFeedsCache mCache;
+        private RequestCoalescer mCoalescer;
+        private RequestListener mListener;
+        private RateLimiter mRateLimiter;
+        private ConcurrencyLimiter mConcurrencyLimiter;
+        private RetryPolicy mRetryPolicy;
+        private BufferPool mBufferPool;
+        private boolean mFailOnUnknownProperties;
+        private boolean mShortKeyDeserializer;
+
+        /**
+         * A Builder for a client of the TransitFeeds.com API
+         *
+         * @param apiKey the API key to be used in all requests made with the client
+         */
+        public Builder(String apiKey) {
+            mApiKey = apiKey;
+        }
+
+        /**
+         * Sets the API endpoint for GetFeeds requests.  By default http://api.transitfeeds.com/v1/getFeeds will be
+         * used.
+         *
+         * @param apiEndpoint the GetFeeds API endpoint
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setApiEndpoint(String apiEndpoint) {
+            mApiEndpoint = apiEndpoint;
+            return this;
+        }
+
+        /**
+         * Sets the transport used to execute HTTP requests.  By default each client has its own
+         * {@link UrlConnectionTransport} with default settings.
+         *
+         * @param transport the transport used to execute HTTP requests
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTransport(HttpTransport transport) {
+            if (transport == null) {
+                throw new IllegalArgumentException("transport cannot be null");
+            }
+            mTransport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the executor used by callAsync(), and by the retry policy for deadline and hedged attempts unless one
+         * was set via RetryPolicy.Builder.setExecutor().  By default {@link RequestExecutors#defaultExecutor()} is
+         * used.
+         *
+         * @param executor the executor used for asynchronous calls
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setExecutor(Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the cache used for responses.  By default responses aren't cached.  Cached responses are shared
+         * between calls, and must be treated as read-only (see GetFeedsRequest.Builder.setCache()).
+         *
+         * @param cache the cache used for responses
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setCache(GetFeedsCache cache) {
+            mCache = cache;
+            return this;
+        }
+
+        /**
+         * Sets the coalescer used to share in-flight requests between concurrent identical calls.  By default calls
+         * aren't coalesced.  Shared responses must be treated as read-only (see
+         * GetFeedsRequest.Builder.setCoalescer()).
+         *
+         * @param coalescer the coalescer used to share in-flight requests
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setCoalescer(RequestCoalescer coalescer) {
+            mCoalescer = coalescer;
+            return this;
+        }
+
+        /**
+         * Sets the listener notified of metrics for each call.  By default calls aren't instrumented.
+         *
+         * @param listener the listener notified of metrics for each call
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setListener(RequestListener listener) {
+            mListener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the rate limiter for requests to the server.  By default requests aren't rate limited.
+         *
+         * @param rateLimiter the rate limiter for requests to the server
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setRateLimiter(RateLimiter rateLimiter) {
+            mRateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the adaptive limit on concurrent requests to the server.  By default concurrency is only bounded by
+         * the transport.
+         *
+         * @param concurrencyLimiter the adaptive limit on concurrent requests to the server
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+            mConcurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the policy for retrying, bounding and hedging calls.  By default calls are attempted once.
+         *
+         * @param retryPolicy the policy for retrying, bounding and hedging calls
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setRetryPolicy(RetryPolicy retryPolicy) {
+            mRetryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the pool of buffers that response bodies are read into and parsed from.  By default responses are
+         * parsed from the connection's stream.
+         *
+         * @param bufferPool the pool of buffers that response bodies are read into
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setBufferPool(BufferPool bufferPool) {
+            mBufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * Sets whether Jackson should fail on unknown properties when parsing responses.  Default is false.
+         *
+         * @param failOnUnknownProperties true if Jackson should fail on unknown properties, false if it should not
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setFailOnUnknownProperties(boolean failOnUnknownProperties) {
+            mFailOnUnknownProperties = failOnUnknownProperties;
+            return this;
+        }
+
+        /**
+         * Sets whether responses are parsed with the hand-written deserializers in {@link ShortKeyModule}, which read
+         * the API's short keys directly from the parser instead of binding them through annotations.  The parsed
+         * models are the same either way.  Default is false.
+         *
+         * @param shortKeyDeserializer true to use the hand-written deserializers, false to use annotation-based
+         *                             binding
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setShortKeyDeserializer(boolean shortKeyDeserializer) {
+            mShortKeyDeserializer = shortKeyDeserializer;
+            return this;
+        }
+
+        /**
+         * Builds the TransitFeedsClient using the specified parameters
+         *
+         * @return the TransitFeedsClient using the specified parameters
+         */
+        public TransitFeedsClient build() {
+            return new TransitFeedsClient(this);
+        }
+    }
+}
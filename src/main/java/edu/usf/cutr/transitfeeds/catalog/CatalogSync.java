@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Latest;
+import edu.usf.cutr.transitfeeds.model.Urls;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Detects changes between successive passes over the feed catalog (e.g., successive GetFeedsPaginator.fetchAll()
+ * results), so downstream processing only needs to handle the feeds that changed.
+ * <p>
+ * A feed is considered updated if its latest version timestamp (Feed.getLatest().getTimestamp()), download URL, or
+ * title changed.  Feeds are matched between passes by ID.
+ */
+public class CatalogSync {
+
+    private final List<FeedChangeListener> mListeners = new CopyOnWriteArrayList<>();
+    private Map<String, Feed> mPrevious = Collections.emptyMap();
+
+    /**
+     * Adds a listener that is notified after each sync that finds at least one change
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(FeedChangeListener listener) {
+        mListeners.add(listener);
+    }
+
+    /**
+     * Removes a previously added listener
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(FeedChangeListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Compares the given pass over the catalog with the previous one, and remembers it for the next sync.  If there
+     * are changes, listeners are notified on the calling thread before this method returns.  The first sync reports
+     * every feed as added.
+     *
+     * @param feeds the feeds from the new pass over the catalog
+     * @return the changes since the previous pass
+     */
+    public FeedChangeSet sync(Collection<Feed> feeds) {
+        FeedChangeSet changes;
+        synchronized (this) {
+            Map<String, Feed> current = index(feeds);
+            changes = diff(mPrevious, current);
+            mPrevious = current;
+        }
+        if (!changes.isEmpty()) {
+            for (FeedChangeListener listener : mListeners) {
+                listener.onChanges(changes);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Forgets the previous pass, so the next sync reports every feed as added
+     */
+    public synchronized void reset() {
+        mPrevious = Collections.emptyMap();
+    }
+
+    /**
+     * Computes the changes between two passes over the catalog, without affecting any CatalogSync state
+     *
+     * @param previous the feeds from the previous pass
+     * @param current  the feeds from the new pass
+     * @return the changes between the two passes
+     */
+    public static FeedChangeSet diff(Collection<Feed> previous, Collection<Feed> current) {
+        return diff(index(previous), index(current));
+    }
+
+    private static FeedChangeSet diff(Map<String, Feed> previous, Map<String, Feed> current) {
+        List<Feed> added = new ArrayList<>();
+        List<Feed> removed = new ArrayList<>();
+        List<FeedChangeSet.Update> updated = new ArrayList<>();
+        for (Feed feed : current.values()) {
+            Feed old = previous.get(feed.getId());
+            if (old == null) {
+                added.add(feed);
+            } else if (isUpdated(old, feed)) {
+                updated.add(new FeedChangeSet.Update(old, feed));
+            }
+        }
+        for (Feed feed : previous.values()) {
+            if (!current.containsKey(feed.getId())) {
+                removed.add(feed);
+            }
+        }
+        return new FeedChangeSet(added, removed, updated);
+    }
+
+    private static boolean isUpdated(Feed previous, Feed current) {
+        return !Objects.equals(latestTimestamp(previous), latestTimestamp(current))
+                || !Objects.equals(downloadUrl(previous), downloadUrl(current))
+                || !Objects.equals(previous.getTitle(), current.getTitle());
+    }
+
+    private static Integer latestTimestamp(Feed feed) {
+        Latest latest = feed.getLatest();
+        return latest != null ? latest.getTimestamp() : null;
+    }
+
+    private static String downloadUrl(Feed feed) {
+        Urls urls = feed.getUrls();
+        return urls != null ? urls.getDownloadUrl() : null;
+    }
+
+    private static Map<String, Feed> index(Collection<Feed> feeds) {
+        Map<String, Feed> index = new LinkedHashMap<>((int) (feeds.size() / 0.75f) + 1);
+        for (Feed feed : feeds) {
+            if (feed.getId() != null) {
+                index.put(feed.getId(), feed);
+            }
+        }
+        return index;
+    }
+}
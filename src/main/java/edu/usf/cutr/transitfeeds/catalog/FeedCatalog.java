@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Results;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory catalog of feeds, indexed by feed ID, feed type, and location ID so lookups don't require scanning the
+ * list of feeds.
+ * <p>
+ * The indexes are held in an immutable {@link Snapshot}.  Calling {@link #refresh(Collection)} builds a new snapshot
+ * and swaps it in atomically, so readers never block or see a partially refreshed catalog.  Readers that need several
+ * consistent lookups should call {@link #getSnapshot()} once and query the snapshot.
+ */
+public class FeedCatalog {
+
+    private volatile Snapshot mSnapshot = new Snapshot(Collections.<Feed>emptyList());
+
+    /**
+     * Replaces the contents of the catalog with the given feeds.  If more than one feed has the same ID, the last one
+     * is kept.
+     *
+     * @param feeds the feeds to include in the catalog
+     * @return the new snapshot
+     */
+    public Snapshot refresh(Collection<Feed> feeds) {
+        Snapshot snapshot = new Snapshot(feeds);
+        mSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Replaces the contents of the catalog with the feeds in the given results (e.g., all pages of a GetFeeds query)
+     *
+     * @param results the results containing the feeds to include in the catalog
+     * @return the new snapshot
+     */
+    public Snapshot refreshFromResults(Collection<Results> results) {
+        List<Feed> feeds = new ArrayList<>();
+        for (Results r : results) {
+            if (r != null && r.getFeeds() != null) {
+                feeds.addAll(r.getFeeds());
+            }
+        }
+        return refresh(feeds);
+    }
+
+    /**
+     * Returns the current snapshot of the catalog
+     *
+     * @return the current snapshot of the catalog
+     */
+    public Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Returns the feed with the given ID, or null if there is no such feed
+     *
+     * @param id the feed ID (e.g., "karlsruher-verkehrsverbundes/896")
+     * @return the feed with the given ID, or null if there is no such feed
+     */
+    public Feed getById(String id) {
+        return mSnapshot.getById(id);
+    }
+
+    /**
+     * Returns the feeds of the given type
+     *
+     * @param type the feed type (e.g., "gtfs" or "gtfsrealtime")
+     * @return the feeds of the given type, or an empty list if there are none
+     */
+    public List<Feed> getByType(String type) {
+        return mSnapshot.getByType(type);
+    }
+
+    /**
+     * Returns the feeds assigned directly to the given location
+     *
+     * @param locationId the location ID
+     * @return the feeds assigned directly to the given location, or an empty list if there are none
+     */
+    public List<Feed> getByLocationId(int locationId) {
+        return mSnapshot.getByLocationId(locationId);
+    }
+
+    /**
+     * Returns the number of feeds in the catalog
+     *
+     * @return the number of feeds in the catalog
+     */
+    public int size() {
+        return mSnapshot.size();
+    }
+
+    /**
+     * An immutable, indexed set of feeds
+     */
+    public static final class Snapshot {
+
+        private final List<Feed> mFeeds;
+        private final Map<String, Feed> mById;
+        private final Map<String, List<Feed>> mByType;
+        private final Map<Integer, List<Feed>> mByLocationId;
+
+        Snapshot(Collection<Feed> feeds) {
+            Map<String, Feed> byId = new LinkedHashMap<>(capacity(feeds.size()));
+            List<Feed> withoutId = new ArrayList<>();
+            for (Feed feed : feeds) {
+                if (feed.getId() != null) {
+                    byId.put(feed.getId(), feed);
+                } else {
+                    withoutId.add(feed);
+                }
+            }
+            List<Feed> all = new ArrayList<>(byId.size() + withoutId.size());
+            all.addAll(byId.values());
+            all.addAll(withoutId);
+
+            Map<String, List<Feed>> byType = new HashMap<>();
+            Map<Integer, List<Feed>> byLocationId = new HashMap<>();
+            for (Feed feed : all) {
+                if (feed.getType() != null) {
+                    add(byType, feed.getType(), feed);
+                }
+                if (feed.getLocation() != null && feed.getLocation().getId() != null) {
+                    add(byLocationId, feed.getLocation().getId(), feed);
+                }
+            }
+
+            mFeeds = Collections.unmodifiableList(all);
+            mById = byId;
+            mByType = freeze(byType);
+            mByLocationId = freeze(byLocationId);
+        }
+
+        /**
+         * Returns all feeds in the snapshot, in the order they were ingested
+         *
+         * @return all feeds in the snapshot, in the order they were ingested
+         */
+        public List<Feed> getFeeds() {
+            return mFeeds;
+        }
+
+        /**
+         * Returns the feed with the given ID, or null if there is no such feed
+         *
+         * @param id the feed ID
+         * @return the feed with the given ID, or null if there is no such feed
+         */
+        public Feed getById(String id) {
+            return mById.get(id);
+        }
+
+        /**
+         * Returns the feeds of the given type
+         *
+         * @param type the feed type (e.g., "gtfs" or "gtfsrealtime")
+         * @return the feeds of the given type, or an empty list if there are none
+         */
+        public List<Feed> getByType(String type) {
+            List<Feed> feeds = mByType.get(type);
+            return feeds != null ? feeds : Collections.<Feed>emptyList();
+        }
+
+        /**
+         * Returns the feeds assigned directly to the given location
+         *
+         * @param locationId the location ID
+         * @return the feeds assigned directly to the given location, or an empty list if there are none
+         */
+        public List<Feed> getByLocationId(int locationId) {
+            List<Feed> feeds = mByLocationId.get(locationId);
+            return feeds != null ? feeds : Collections.<Feed>emptyList();
+        }
+
+        /**
+         * Returns the number of feeds in the snapshot
+         *
+         * @return the number of feeds in the snapshot
+         */
+        public int size() {
+            return mFeeds.size();
+        }
+
+        private static <K> void add(Map<K, List<Feed>> index, K key, Feed feed) {
+            List<Feed> feeds = index.get(key);
+            if (feeds == null) {
+                feeds = new ArrayList<>();
+                index.put(key, feeds);
+            }
+            feeds.add(feed);
+        }
+
+        private static <K> Map<K, List<Feed>> freeze(Map<K, List<Feed>> index) {
+            for (Map.Entry<K, List<Feed>> entry : index.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            return index;
+        }
+
+        private static int capacity(int size) {
+            return (int) (size / 0.75f) + 1;
+        }
+    }
+}
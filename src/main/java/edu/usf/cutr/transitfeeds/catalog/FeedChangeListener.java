@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+/**
+ * Notified by {@link CatalogSync} when a pass over the catalog finds added, removed, or updated feeds
+ */
+public interface FeedChangeListener {
+
+    /**
+     * Called after each sync that found at least one change
+     *
+     * @param changes the feeds that were added, removed, or updated since the previous sync
+     */
+    void onChanges(FeedChangeSet changes);
+}
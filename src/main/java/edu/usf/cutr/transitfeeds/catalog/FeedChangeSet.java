@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The differences between two passes over the feed catalog, as computed by {@link CatalogSync}
+ */
+public final class FeedChangeSet {
+
+    private final List<Feed> mAdded;
+    private final List<Feed> mRemoved;
+    private final List<Update> mUpdated;
+
+    FeedChangeSet(List<Feed> added, List<Feed> removed, List<Update> updated) {
+        mAdded = Collections.unmodifiableList(added);
+        mRemoved = Collections.unmodifiableList(removed);
+        mUpdated = Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * Returns the feeds that are in the new pass but weren't in the previous pass
+     *
+     * @return the feeds that are in the new pass but weren't in the previous pass
+     */
+    public List<Feed> getAdded() {
+        return mAdded;
+    }
+
+    /**
+     * Returns the feeds that were in the previous pass but aren't in the new pass
+     *
+     * @return the feeds that were in the previous pass but aren't in the new pass
+     */
+    public List<Feed> getRemoved() {
+        return mRemoved;
+    }
+
+    /**
+     * Returns the feeds in both passes whose latest version timestamp, download URL, or title changed
+     *
+     * @return the feeds in both passes whose latest version timestamp, download URL, or title changed
+     */
+    public List<Update> getUpdated() {
+        return mUpdated;
+    }
+
+    /**
+     * Returns true if no feeds were added, removed, or updated
+     *
+     * @return true if no feeds were added, removed, or updated
+     */
+    public boolean isEmpty() {
+        return mAdded.isEmpty() && mRemoved.isEmpty() && mUpdated.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "FeedChangeSet{" +
+                "added=" + mAdded.size() +
+                ", removed=" + mRemoved.size() +
+                ", updated=" + mUpdated.size() +
+                '}';
+    }
+
+    /**
+     * A feed that is in both passes but changed
+     */
+    public static final class Update {
+
+        private final Feed mPrevious;
+        private final Feed mCurrent;
+
+        Update(Feed previous, Feed current) {
+            mPrevious = previous;
+            mCurrent = current;
+        }
+
+        /**
+         * Returns the feed as it was in the previous pass
+         *
+         * @return the feed as it was in the previous pass
+         */
+        public Feed getPrevious() {
+            return mPrevious;
+        }
+
+        /**
+         * Returns the feed as it is in the new pass
+         *
+         * @return the feed as it is in the new pass
+         */
+        public Feed getCurrent() {
+            return mCurrent;
+        }
+
+        @Override
+        public String toString() {
+            return "Update{" +
+                    "id='" + mCurrent.getId() + '\'' +
+                    '}';
+        }
+    }
+}
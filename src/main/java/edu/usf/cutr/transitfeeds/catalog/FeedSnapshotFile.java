@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Latest;
+import edu.usf.cutr.transitfeeds.model.Location;
+import edu.usf.cutr.transitfeeds.model.Urls;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A catalog of feeds persisted in a compact binary file, so a service can answer queries immediately on startup
+ * instead of re-crawling every page of GetFeeds.
+ * <p>
+ * The file is opened with a read-only {@link MappedByteBuffer}, and records are decoded lazily when they are
+ * accessed, so opening a snapshot doesn't deserialize any feeds.  Since the mapping is backed by the OS page cache,
+ * several JVMs on the same host that open the same file share one copy of it in memory.
+ * <p>
+ * File layout (all values big-endian):
+ * <pre>
+ * header:  magic, version, feed count, index offset, string heap offset  (5 ints)
+ * records: one 64-byte record per feed
+ * index:   one int per feed - record numbers sorted by the UTF-8 bytes of the feed ID
+ * heap:    strings, each a length-prefixed UTF-8 byte sequence, shared by all records that use the same value
+ * </pre>
+ * Each record holds string heap offsets for the feed ID, type, title, info URL, download URL, and location titles,
+ * the latest version timestamp, the location and parent IDs, a flags word indicating which nested objects were
+ * present, and the location's latitude and longitude.  Additional properties aren't persisted.
+ * <p>
+ * Snapshots are immutable - write a new file with {@link #write(Collection, File)} to update one.  Writes go to a
+ * temporary file that is atomically moved into place, so processes that have the old file open aren't affected.
+ */
+public class FeedSnapshotFile {
+
+    private static final int MAGIC = 0x54465346; // "TFSF"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 5 * 4;
+    private static final int RECORD_SIZE = 64;
+
+    private static final int NULL_REF = -1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private static final int FLAG_LOCATION = 1;
+    private static final int FLAG_URLS = 1 << 1;
+    private static final int FLAG_LATEST = 1 << 2;
+
+    // Offsets within a record
+    private static final int ID = 0;
+    private static final int TYPE = 4;
+    private static final int TITLE = 8;
+    private static final int INFO_URL = 12;
+    private static final int DOWNLOAD_URL = 16;
+    private static final int TIMESTAMP = 20;
+    private static final int FLAGS = 24;
+    private static final int LOCATION_ID = 28;
+    private static final int PARENT_ID = 32;
+    private static final int LOCATION_TITLE_WITH_REGION = 36;
+    private static final int LOCATION_TITLE = 40;
+    private static final int LAT = 48;
+    private static final int LNG = 56;
+
+    private final File mFile;
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+    private final int mIndexOffset;
+    private final int mHeapOffset;
+
+    private FeedSnapshotFile(File file, ByteBuffer buffer) throws IOException {
+        mFile = file;
+        mBuffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a feed snapshot file");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported feed snapshot version " + buffer.getInt(4) + " in " + file);
+        }
+        mSize = buffer.getInt(8);
+        mIndexOffset = buffer.getInt(12);
+        mHeapOffset = buffer.getInt(16);
+        if (mSize < 0 || mIndexOffset != HEADER_SIZE + (long) mSize * RECORD_SIZE ||
+                mHeapOffset != mIndexOffset + (long) mSize * 4 || mHeapOffset > buffer.capacity()) {
+            throw new IOException("Feed snapshot file " + file + " is truncated or corrupt");
+        }
+    }
+
+    /**
+     * Opens a snapshot file that was written by {@link #write(Collection, File)}.  The file is mapped into memory,
+     * but no feeds are decoded until they are accessed.
+     *
+     * @param file the snapshot file
+     * @return the opened snapshot
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     */
+    public static FeedSnapshotFile open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Feed snapshot file " + file + " is too large");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new FeedSnapshotFile(file, buffer);
+        }
+    }
+
+    /**
+     * Writes the given feeds to a snapshot file, replacing the file if it exists.  If more than one feed has the
+     * same ID, the last one is kept.  Feeds without an ID are kept but can't be looked up with
+     * {@link #getById(String)}.
+     *
+     * @param feeds the feeds to write
+     * @param file  the snapshot file
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Collection<Feed> feeds, File file) throws IOException {
+        // Keep the last feed with each ID, in the order the feeds were ingested
+        List<Feed> unique = new FeedCatalog.Snapshot(feeds).getFeeds();
+
+        Map<String, Integer> refs = new HashMap<>();
+        ByteArrayOutputStream heapBytes = new ByteArrayOutputStream();
+        DataOutputStream heap = new DataOutputStream(heapBytes);
+        ByteBuffer records = ByteBuffer.allocate(unique.size() * RECORD_SIZE);
+
+        for (int i = 0; i < unique.size(); i++) {
+            Feed feed = unique.get(i);
+            int base = i * RECORD_SIZE;
+            int flags = 0;
+            records.putInt(base + ID, ref(refs, heap, feed.getId()));
+            records.putInt(base + TYPE, ref(refs, heap, feed.getType()));
+            records.putInt(base + TITLE, ref(refs, heap, feed.getTitle()));
+
+            Urls urls = feed.getUrls();
+            if (urls != null) {
+                flags |= FLAG_URLS;
+            }
+            records.putInt(base + INFO_URL, ref(refs, heap, urls != null ? urls.getInfoUrl() : null));
+            records.putInt(base + DOWNLOAD_URL, ref(refs, heap, urls != null ? urls.getDownloadUrl() : null));
+
+            Latest latest = feed.getLatest();
+            if (latest != null) {
+                flags |= FLAG_LATEST;
+            }
+            records.putInt(base + TIMESTAMP, latest != null ? toInt(latest.getTimestamp()) : NULL_INT);
+
+            Location location = feed.getLocation();
+            if (location != null) {
+                flags |= FLAG_LOCATION;
+            }
+            records.putInt(base + LOCATION_ID, location != null ? toInt(location.getId()) : NULL_INT);
+            records.putInt(base + PARENT_ID, location != null ? toInt(location.getParentId()) : NULL_INT);
+            records.putInt(base + LOCATION_TITLE_WITH_REGION,
+                    ref(refs, heap, location != null ? location.getTitleWithRegion() : null));
+            records.putInt(base + LOCATION_TITLE, ref(refs, heap, location != null ? location.getTitle() : null));
+            records.putDouble(base + LAT, location != null ? toDouble(location.getLat()) : Double.NaN);
+            records.putDouble(base + LNG, location != null ? toDouble(location.getLng()) : Double.NaN);
+            records.putInt(base + FLAGS, flags);
+        }
+        heap.flush();
+
+        // Index of record numbers sorted by ID, so getById() can binary search without decoding strings
+        final List<byte[]> ids = new ArrayList<>(unique.size());
+        List<Integer> index = new ArrayList<>(unique.size());
+        for (int i = 0; i < unique.size(); i++) {
+            String id = unique.get(i).getId();
+            ids.add(id != null ? id.getBytes(StandardCharsets.UTF_8) : null);
+            if (id != null) {
+                index.add(i);
+            }
+        }
+        Collections.sort(index, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareBytes(ids.get(a), ids.get(b));
+            }
+        });
+
+        long indexOffset = HEADER_SIZE + (long) unique.size() * RECORD_SIZE;
+        long heapOffset = indexOffset + (long) unique.size() * 4;
+        if (heapOffset + heapBytes.size() > Integer.MAX_VALUE) {
+            throw new IOException("Too many feeds for a single snapshot file");
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(unique.size());
+                out.writeInt((int) indexOffset);
+                out.writeInt((int) heapOffset);
+                out.write(records.array());
+                for (Integer i : index) {
+                    out.writeInt(i);
+                }
+                // Feeds without IDs aren't indexed - pad the index so the heap offset stays fixed
+                for (int i = index.size(); i < unique.size(); i++) {
+                    out.writeInt(NULL_REF);
+                }
+                heapBytes.writeTo(out);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private static int ref(Map<String, Integer> refs, DataOutputStream heap, String value) throws IOException {
+        if (value == null) {
+            return NULL_REF;
+        }
+        Integer ref = refs.get(value);
+        if (ref == null) {
+            ref = heap.size();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            heap.writeInt(bytes.length);
+            heap.write(bytes);
+            refs.put(value, ref);
+        }
+        return ref;
+    }
+
+    private static int toInt(Integer value) {
+        return value != null ? value : NULL_INT;
+    }
+
+    private static double toDouble(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Returns the file this snapshot was opened from
+     *
+     * @return the file this snapshot was opened from
+     */
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Returns the number of feeds in the snapshot
+     *
+     * @return the number of feeds in the snapshot
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the ID of the feed at the given position, without decoding the rest of the record
+     *
+     * @param index the position of the feed, from 0 to size() - 1
+     * @return the ID of the feed at the given position
+     */
+    public String getId(int index) {
+        return string(recordOffset(index) + ID);
+    }
+
+    /**
+     * Returns the type of the feed at the given position, without decoding the rest of the record
+     *
+     * @param index the position of the feed, from 0 to size() - 1
+     * @return the type of the feed at the given position
+     */
+    public String getType(int index) {
+        return string(recordOffset(index) + TYPE);
+    }
+
+    /**
+     * Decodes the feed at the given position.  Each call returns a new Feed instance.
+     *
+     * @param index the position of the feed, from 0 to size() - 1
+     * @return the feed at the given position
+     */
+    public Feed getFeed(int index) {
+        int base = recordOffset(index);
+        int flags = mBuffer.getInt(base + FLAGS);
+
+        Feed feed = new Feed();
+        feed.setId(string(base + ID));
+        feed.setType(string(base + TYPE));
+        feed.setTitle(string(base + TITLE));
+        if ((flags & FLAG_URLS) != 0) {
+            Urls urls = new Urls();
+            urls.setInfoUrl(string(base + INFO_URL));
+            urls.setDownloadUrl(string(base + DOWNLOAD_URL));
+            feed.setUrls(urls);
+        }
+        if ((flags & FLAG_LATEST) != 0) {
+            Latest latest = new Latest();
+            latest.setTimestamp(integer(base + TIMESTAMP));
+            feed.setLatest(latest);
+        }
+        if ((flags & FLAG_LOCATION) != 0) {
+            Location location = new Location();
+            location.setId(integer(base + LOCATION_ID));
+            location.setParentId(integer(base + PARENT_ID));
+            location.setTitleWithRegion(string(base + LOCATION_TITLE_WITH_REGION));
+            location.setTitle(string(base + LOCATION_TITLE));
+            location.setLat(dbl(base + LAT));
+            location.setLng(dbl(base + LNG));
+            feed.setLocation(location);
+        }
+        return feed;
+    }
+
+    /**
+     * Returns the feed with the given ID, or null if there is no such feed.  Only the matching record and the IDs
+     * compared by the binary search are decoded.
+     *
+     * @param id the feed ID (e.g., "karlsruher-verkehrsverbundes/896")
+     * @return the feed with the given ID, or null if there is no such feed
+     */
+    public Feed getById(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = mBuffer.getInt(mIndexOffset + mid * 4);
+            if (record == NULL_REF) {
+                // Padding for feeds without IDs sorts after everything else
+                high = mid - 1;
+                continue;
+            }
+            int cmp = compareString(recordOffset(record) + ID, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return getFeed(record);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a read-only view of all feeds in the snapshot, in the order they were written.  Feeds are decoded each
+     * time they are accessed, so callers that iterate the list more than once should copy it.
+     *
+     * @return a read-only view of all feeds in the snapshot
+     */
+    public List<Feed> getFeeds() {
+        return new AbstractList<Feed>() {
+            @Override
+            public Feed get(int index) {
+                return getFeed(index);
+            }
+
+            @Override
+            public int size() {
+                return mSize;
+            }
+        };
+    }
+
+    private int recordOffset(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String string(int fieldOffset) {
+        int ref = mBuffer.getInt(fieldOffset);
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int position = mHeapOffset + ref;
+        byte[] bytes = new byte[mBuffer.getInt(position)];
+        // Read through a duplicate so concurrent readers don't share the buffer position
+        ByteBuffer duplicate = mBuffer.duplicate();
+        duplicate.position(position + 4);
+        duplicate.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int compareString(int fieldOffset, byte[] key) {
+        int position = mHeapOffset + mBuffer.getInt(fieldOffset);
+        int length = mBuffer.getInt(position);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (mBuffer.get(position + 4 + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    private Integer integer(int fieldOffset) {
+        int value = mBuffer.getInt(fieldOffset);
+        return value != NULL_INT ? value : null;
+    }
+
+    private Double dbl(int fieldOffset) {
+        double value = mBuffer.getDouble(fieldOffset);
+        return !Double.isNaN(value) ? value : null;
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable spatial index over the locations of a set of feeds, supporting radius, bounding box, and k-nearest
+ * queries, optionally filtered by feed type.  Feeds without a location latitude and longitude are not indexed.
+ * <p>
+ * Radius and nearest-neighbor queries use a k-d tree over the feeds' positions on the unit sphere, so distances are
+ * great-circle distances and queries work across the poles and the antimeridian.  Bounding box queries use the feeds
+ * sorted by latitude.  All coordinates are held in primitive arrays.
+ */
+public class FeedSpatialIndex {
+
+    /**
+     * Mean radius of the earth, in meters
+     */
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    // Tree order - the node for range [lo, hi) is at (lo + hi) >>> 1
+    private final Feed[] mFeeds;
+    private final String[] mTypes;
+    private final double[] mX;
+    private final double[] mY;
+    private final double[] mZ;
+    private final byte[] mSplitAxis;
+
+    // Latitude order, for bounding box queries
+    private final double[] mSortedLat;
+    private final double[] mSortedLng;
+    private final int[] mLatOrder;
+
+    /**
+     * Builds a spatial index over the given feeds
+     *
+     * @param feeds the feeds to index
+     */
+    public FeedSpatialIndex(Collection<Feed> feeds) {
+        List<Feed> located = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            Location l = feed.getLocation();
+            if (l != null && l.getLat() != null && l.getLng() != null) {
+                located.add(feed);
+            }
+        }
+        int n = located.size();
+        double[][] coords = new double[3][n];
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            Location l = located.get(i).getLocation();
+            lat[i] = l.getLat();
+            lng[i] = l.getLng();
+            double phi = Math.toRadians(lat[i]);
+            double lambda = Math.toRadians(lng[i]);
+            coords[0][i] = Math.cos(phi) * Math.cos(lambda);
+            coords[1][i] = Math.cos(phi) * Math.sin(lambda);
+            coords[2][i] = Math.sin(phi);
+            order[i] = i;
+        }
+
+        mSplitAxis = new byte[n];
+        build(order, coords, 0, n);
+
+        mFeeds = new Feed[n];
+        mTypes = new String[n];
+        mX = new double[n];
+        mY = new double[n];
+        mZ = new double[n];
+        for (int i = 0; i < n; i++) {
+            int j = order[i];
+            mFeeds[i] = located.get(j);
+            mTypes[i] = mFeeds[i].getType();
+            mX[i] = coords[0][j];
+            mY[i] = coords[1][j];
+            mZ[i] = coords[2][j];
+        }
+
+        // Sort tree positions by latitude for bounding box queries
+        double[] treeLat = new double[n];
+        double[] treeLng = new double[n];
+        for (int i = 0; i < n; i++) {
+            treeLat[i] = lat[order[i]];
+            treeLng[i] = lng[order[i]];
+        }
+        mLatOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            mLatOrder[i] = i;
+        }
+        sort(treeLat.clone(), mLatOrder, 0, n - 1);
+        mSortedLat = new double[n];
+        mSortedLng = new double[n];
+        for (int i = 0; i < n; i++) {
+            mSortedLat[i] = treeLat[mLatOrder[i]];
+            mSortedLng[i] = treeLng[mLatOrder[i]];
+        }
+    }
+
+    /**
+     * Returns the number of feeds in the index
+     *
+     * @return the number of feeds in the index
+     */
+    public int size() {
+        return mFeeds.length;
+    }
+
+    /**
+     * Returns the feeds within the given distance of a point, nearest first
+     *
+     * @param lat          the latitude of the point
+     * @param lng          the longitude of the point
+     * @param radiusMeters the maximum distance from the point, in meters
+     * @param type         the feed type to return (e.g., "gtfsrealtime"), or null for all types
+     * @return the feeds within the given distance of the point, nearest first
+     */
+    public List<Feed> withinRadius(double lat, double lng, double radiusMeters, String type) {
+        double[] q = toUnitVector(lat, lng);
+        // Compare squared chord lengths, which increase monotonically with great-circle distance
+        double angle = Math.min(radiusMeters / EARTH_RADIUS_METERS, Math.PI);
+        double chord = 2 * Math.sin(angle / 2);
+        Hits hits = new Hits(16);
+        radius(0, mFeeds.length, q[0], q[1], q[2], chord * chord + 1e-12, type, hits);
+        sort(hits.mDistances, hits.mIndexes, 0, hits.mSize - 1);
+        return hits.toFeeds();
+    }
+
+    /**
+     * Returns the k feeds nearest to a point, nearest first
+     *
+     * @param lat  the latitude of the point
+     * @param lng  the longitude of the point
+     * @param k    the maximum number of feeds to return
+     * @param type the feed type to return (e.g., "gtfsrealtime"), or null for all types
+     * @return the k feeds nearest to the point, nearest first
+     */
+    public List<Feed> nearest(double lat, double lng, int k, String type) {
+        if (k <= 0 || mFeeds.length == 0) {
+            return Collections.emptyList();
+        }
+        double[] q = toUnitVector(lat, lng);
+        Hits heap = new Hits(Math.min(k, mFeeds.length));
+        nearest(0, mFeeds.length, q[0], q[1], q[2], k, type, heap);
+        sort(heap.mDistances, heap.mIndexes, 0, heap.mSize - 1);
+        return heap.toFeeds();
+    }
+
+    /**
+     * Returns the feeds within a bounding box.  If minLng is greater than maxLng, the box is assumed to cross the
+     * antimeridian.
+     *
+     * @param minLat the southern edge of the box
+     * @param minLng the western edge of the box
+     * @param maxLat the northern edge of the box
+     * @param maxLng the eastern edge of the box
+     * @param type   the feed type to return (e.g., "gtfs"), or null for all types
+     * @return the feeds within the bounding box, in order of latitude
+     */
+    public List<Feed> withinBoundingBox(double minLat, double minLng, double maxLat, double maxLng, String type) {
+        List<Feed> result = new ArrayList<>();
+        boolean crossesAntimeridian = minLng > maxLng;
+        for (int i = lowerBound(mSortedLat, minLat); i < mSortedLat.length && mSortedLat[i] <= maxLat; i++) {
+            double lng = mSortedLng[i];
+            boolean inside = crossesAntimeridian ? lng >= minLng || lng <= maxLng : lng >= minLng && lng <= maxLng;
+            int node = mLatOrder[i];
+            if (inside && matches(node, type)) {
+                result.add(mFeeds[node]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the great-circle distance between two points, in meters, using the haversine formula
+     *
+     * @param lat1 the latitude of the first point
+     * @param lng1 the longitude of the first point
+     * @param lat2 the latitude of the second point
+     * @param lng2 the longitude of the second point
+     * @return the great-circle distance between the two points, in meters
+     */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private void radius(int lo, int hi, double qx, double qy, double qz, double maxSq, String type, Hits hits) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double d = distanceSq(mid, qx, qy, qz);
+            if (d <= maxSq && matches(mid, type)) {
+                hits.add(mid, d);
+            }
+            double diff = axisDelta(mid, qx, qy, qz);
+            // Recurse into the far side only if the splitting plane is within range, and loop on the near side
+            if (diff <= 0) {
+                if (diff * diff <= maxSq) {
+                    radius(mid + 1, hi, qx, qy, qz, maxSq, type, hits);
+                }
+                hi = mid;
+            } else {
+                if (diff * diff <= maxSq) {
+                    radius(lo, mid, qx, qy, qz, maxSq, type, hits);
+                }
+                lo = mid + 1;
+            }
+        }
+    }
+
+    private void nearest(int lo, int hi, double qx, double qy, double qz, int k, String type, Hits heap) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (matches(mid, type)) {
+            heap.offer(mid, distanceSq(mid, qx, qy, qz), k);
+        }
+        double diff = axisDelta(mid, qx, qy, qz);
+        if (diff <= 0) {
+            nearest(lo, mid, qx, qy, qz, k, type, heap);
+            if (heap.mSize < k || diff * diff <= heap.mDistances[0]) {
+                nearest(mid + 1, hi, qx, qy, qz, k, type, heap);
+            }
+        } else {
+            nearest(mid + 1, hi, qx, qy, qz, k, type, heap);
+            if (heap.mSize < k || diff * diff <= heap.mDistances[0]) {
+                nearest(lo, mid, qx, qy, qz, k, type, heap);
+            }
+        }
+    }
+
+    private boolean matches(int node, String type) {
+        return type == null || type.equals(mTypes[node]);
+    }
+
+    private double distanceSq(int node, double qx, double qy, double qz) {
+        double dx = mX[node] - qx;
+        double dy = mY[node] - qy;
+        double dz = mZ[node] - qz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Returns the signed distance from the query point to the node's splitting plane
+     */
+    private double axisDelta(int node, double qx, double qy, double qz) {
+        switch (mSplitAxis[node]) {
+            case 0:
+                return qx - mX[node];
+            case 1:
+                return qy - mY[node];
+            default:
+                return qz - mZ[node];
+        }
+    }
+
+    /**
+     * Arranges order[lo, hi) into an implicit k-d tree, splitting each range on its widest axis
+     */
+    private void build(int[] order, double[][] coords, int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = 0;
+        double widest = -1;
+        for (int a = 0; a < 3; a++) {
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int i = lo; i < hi; i++) {
+                double v = coords[a][order[i]];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (max - min > widest) {
+                widest = max - min;
+                axis = a;
+            }
+        }
+        int mid = (lo + hi) >>> 1;
+        select(order, coords[axis], lo, hi - 1, mid);
+        mSplitAxis[mid] = (byte) axis;
+        build(order, coords, lo, mid);
+        build(order, coords, mid + 1, hi);
+    }
+
+    /**
+     * Partially sorts order[lo, hi] so the element at k has rank k by values[order[i]] (quickselect)
+     */
+    private static void select(int[] order, double[] values, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = values[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (values[order[i]] < pivot) {
+                    i++;
+                }
+                while (values[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sorts keys[lo, hi] ascending, applying the same permutation to values
+     */
+    private static void sort(double[] keys, int[] values, int lo, int hi) {
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double k = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = k;
+                    int v = values[i];
+                    values[i] = values[j];
+                    values[j] = v;
+                    i++;
+                    j--;
+                }
+            }
+            if (j - lo < hi - i) {
+                sort(keys, values, lo, j);
+                lo = i;
+            } else {
+                sort(keys, values, i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    private static int lowerBound(double[] sorted, double value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static double[] toUnitVector(double lat, double lng) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lng);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    /**
+     * Query results as parallel primitive arrays - either a growable list, or a bounded max-heap on distance
+     */
+    private class Hits {
+        private int[] mIndexes;
+        private double[] mDistances;
+        private int mSize;
+
+        Hits(int capacity) {
+            mIndexes = new int[Math.max(capacity, 1)];
+            mDistances = new double[Math.max(capacity, 1)];
+        }
+
+        void add(int index, double distance) {
+            if (mSize == mIndexes.length) {
+                mIndexes = Arrays.copyOf(mIndexes, mSize * 2);
+                mDistances = Arrays.copyOf(mDistances, mSize * 2);
+            }
+            mIndexes[mSize] = index;
+            mDistances[mSize] = distance;
+            mSize++;
+        }
+
+        /**
+         * Adds the hit to a max-heap holding at most k hits, replacing the farthest hit if the heap is full
+         */
+        void offer(int index, double distance, int k) {
+            if (mSize < k) {
+                add(index, distance);
+                int i = mSize - 1;
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (mDistances[parent] >= mDistances[i]) {
+                        break;
+                    }
+                    swap(i, parent);
+                    i = parent;
+                }
+            } else if (distance < mDistances[0]) {
+                mIndexes[0] = index;
+                mDistances[0] = distance;
+                int i = 0;
+                while (true) {
+                    int largest = i;
+                    int left = 2 * i + 1;
+                    int right = left + 1;
+                    if (left < mSize && mDistances[left] > mDistances[largest]) {
+                        largest = left;
+                    }
+                    if (right < mSize && mDistances[right] > mDistances[largest]) {
+                        largest = right;
+                    }
+                    if (largest == i) {
+                        break;
+                    }
+                    swap(i, largest);
+                    i = largest;
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            int index = mIndexes[a];
+            mIndexes[a] = mIndexes[b];
+            mIndexes[b] = index;
+            double distance = mDistances[a];
+            mDistances[a] = mDistances[b];
+            mDistances[b] = distance;
+        }
+
+        List<Feed> toFeeds() {
+            List<Feed> feeds = new ArrayList<>(mSize);
+            for (int i = 0; i < mSize; i++) {
+                feeds.add(mFeeds[mIndexes[i]]);
+            }
+            return feeds;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Location;
+import edu.usf.cutr.transitfeeds.model.Results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, column-oriented table of feeds for bulk scans over the whole catalog (e.g., "count feeds by type" or
+ * "feeds updated in the last 7 days per location").
+ * <p>
+ * Each field is held in its own primitive array indexed by row, so scans touch only the columns they need and don't
+ * follow pointers to boxed values.  Feed IDs and titles are dictionary-encoded into a shared string pool, feed types
+ * are stored as byte codes, and location IDs are additionally mapped to dense codes so group-by counts can be
+ * accumulated into an int[] instead of a map.
+ * <p>
+ * Selections are passed around as int[] arrays of row numbers in ascending order.
+ */
+public class FeedTable {
+
+    /**
+     * Value of the latest version timestamp column when the feed doesn't have a latest version
+     */
+    public static final int NO_TIMESTAMP = -1;
+
+    /**
+     * Value of the location ID column when the feed isn't assigned to a location
+     */
+    public static final int NO_LOCATION = -1;
+
+    /**
+     * Value of the type code column when the feed doesn't have a type
+     */
+    public static final byte NO_TYPE = -1;
+
+    private final String[] mStrings;
+    private final int[] mIdRefs;
+    private final int[] mTitleRefs;
+    private final byte[] mTypeCodes;
+    private final String[] mTypeNames;
+    private final int[] mLatestTimestamps;
+    private final int[] mLocationIds;
+    private final int[] mLocationCodes;
+    private final int[] mDistinctLocationIds;
+    private final double[] mLats;
+    private final double[] mLngs;
+
+    private FeedTable(Collection<Feed> feeds) {
+        int n = feeds.size();
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> pool = new ArrayList<>();
+        Map<String, Integer> types = new LinkedHashMap<>();
+        Map<Integer, Integer> locations = new HashMap<>();
+
+        mIdRefs = new int[n];
+        mTitleRefs = new int[n];
+        mTypeCodes = new byte[n];
+        mLatestTimestamps = new int[n];
+        mLocationIds = new int[n];
+        mLats = new double[n];
+        mLngs = new double[n];
+
+        int row = 0;
+        for (Feed feed : feeds) {
+            mIdRefs[row] = intern(strings, pool, feed.getId());
+            mTitleRefs[row] = intern(strings, pool, feed.getTitle());
+
+            if (feed.getType() == null) {
+                mTypeCodes[row] = NO_TYPE;
+            } else {
+                Integer code = types.get(feed.getType());
+                if (code == null) {
+                    if (types.size() > Byte.MAX_VALUE) {
+                        throw new IllegalArgumentException("Too many distinct feed types - maximum is " +
+                                (Byte.MAX_VALUE + 1));
+                    }
+                    code = types.size();
+                    types.put(feed.getType(), code);
+                }
+                mTypeCodes[row] = (byte) (int) code;
+            }
+
+            mLatestTimestamps[row] = feed.getLatest() != null && feed.getLatest().getTimestamp() != null ?
+                    feed.getLatest().getTimestamp() : NO_TIMESTAMP;
+
+            Location location = feed.getLocation();
+            mLocationIds[row] = location != null && location.getId() != null ? location.getId() : NO_LOCATION;
+            mLats[row] = location != null && location.getLat() != null ? location.getLat() : Double.NaN;
+            mLngs[row] = location != null && location.getLng() != null ? location.getLng() : Double.NaN;
+            if (mLocationIds[row] != NO_LOCATION) {
+                locations.put(mLocationIds[row], 0);
+            }
+            row++;
+        }
+
+        mStrings = pool.toArray(new String[pool.size()]);
+        mTypeNames = types.keySet().toArray(new String[types.size()]);
+
+        mDistinctLocationIds = new int[locations.size()];
+        int i = 0;
+        for (Integer id : locations.keySet()) {
+            mDistinctLocationIds[i++] = id;
+        }
+        Arrays.sort(mDistinctLocationIds);
+        mLocationCodes = new int[n];
+        for (row = 0; row < n; row++) {
+            mLocationCodes[row] = mLocationIds[row] == NO_LOCATION ? -1 :
+                    Arrays.binarySearch(mDistinctLocationIds, mLocationIds[row]);
+        }
+    }
+
+    /**
+     * Builds a table from the given feeds.  Every feed becomes one row, in iteration order.
+     *
+     * @param feeds the feeds to include in the table
+     * @return a new table containing the feeds
+     */
+    public static FeedTable fromFeeds(Collection<Feed> feeds) {
+        return new FeedTable(feeds);
+    }
+
+    /**
+     * Builds a table from the feeds in the given results (e.g., all pages of a GetFeeds query)
+     *
+     * @param results the results containing the feeds to include in the table
+     * @return a new table containing the feeds
+     */
+    public static FeedTable fromResults(Collection<Results> results) {
+        List<Feed> feeds = new ArrayList<>();
+        for (Results r : results) {
+            if (r != null && r.getFeeds() != null) {
+                feeds.addAll(r.getFeeds());
+            }
+        }
+        return new FeedTable(feeds);
+    }
+
+    private static int intern(Map<String, Integer> strings, List<String> pool, String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer ref = strings.get(value);
+        if (ref == null) {
+            ref = pool.size();
+            strings.put(value, ref);
+            pool.add(value);
+        }
+        return ref;
+    }
+
+    /**
+     * Returns the number of rows in the table
+     *
+     * @return the number of rows in the table
+     */
+    public int size() {
+        return mIdRefs.length;
+    }
+
+    /**
+     * Returns the number of distinct strings held in the string pool
+     *
+     * @return the number of distinct strings held in the string pool
+     */
+    public int getStringPoolSize() {
+        return mStrings.length;
+    }
+
+    /**
+     * Returns the unique ID of the feed in the given row (e.g., "karlsruher-verkehrsverbundes/896")
+     *
+     * @param row the row number
+     * @return the unique ID of the feed in the given row, or null if it wasn't included in the response
+     */
+    public String getId(int row) {
+        return string(mIdRefs[row]);
+    }
+
+    /**
+     * Returns the title of the feed in the given row as it appears on TransitFeeds.com
+     *
+     * @param row the row number
+     * @return the title of the feed in the given row, or null if it wasn't included in the response
+     */
+    public String getTitle(int row) {
+        return string(mTitleRefs[row]);
+    }
+
+    /**
+     * Returns the type of the feed in the given row (e.g., "gtfs" or "gtfsrealtime")
+     *
+     * @param row the row number
+     * @return the type of the feed in the given row, or null if it wasn't included in the response
+     */
+    public String getType(int row) {
+        byte code = mTypeCodes[row];
+        return code == NO_TYPE ? null : mTypeNames[code];
+    }
+
+    /**
+     * Returns the timestamp of the latest version of the feed in the given row, or {@link #NO_TIMESTAMP} if there
+     * isn't one
+     *
+     * @param row the row number
+     * @return the timestamp of the latest version (in seconds since the epoch), or {@link #NO_TIMESTAMP}
+     */
+    public int getLatestTimestamp(int row) {
+        return mLatestTimestamps[row];
+    }
+
+    /**
+     * Returns the location ID of the feed in the given row, or {@link #NO_LOCATION} if there isn't one
+     *
+     * @param row the row number
+     * @return the location ID of the feed in the given row, or {@link #NO_LOCATION}
+     */
+    public int getLocationId(int row) {
+        return mLocationIds[row];
+    }
+
+    /**
+     * Returns the latitude of the location of the feed in the given row, or NaN if there isn't one
+     *
+     * @param row the row number
+     * @return the latitude of the location of the feed in the given row, or NaN
+     */
+    public double getLat(int row) {
+        return mLats[row];
+    }
+
+    /**
+     * Returns the longitude of the location of the feed in the given row, or NaN if there isn't one
+     *
+     * @param row the row number
+     * @return the longitude of the location of the feed in the given row, or NaN
+     */
+    public double getLng(int row) {
+        return mLngs[row];
+    }
+
+    /**
+     * Returns the code used for the given type in the type column, or {@link #NO_TYPE} if no feed has that type
+     *
+     * @param type the feed type (e.g., "gtfs" or "gtfsrealtime")
+     * @return the code used for the given type, or {@link #NO_TYPE}
+     */
+    public byte getTypeCode(String type) {
+        for (int i = 0; i < mTypeNames.length; i++) {
+            if (mTypeNames[i].equals(type)) {
+                return (byte) i;
+            }
+        }
+        return NO_TYPE;
+    }
+
+    /**
+     * Returns the number of feeds with the given type
+     *
+     * @param type the feed type (e.g., "gtfs" or "gtfsrealtime")
+     * @return the number of feeds with the given type
+     */
+    public int countByType(String type) {
+        byte code = getTypeCode(type);
+        if (code == NO_TYPE) {
+            return 0;
+        }
+        byte[] codes = mTypeCodes;
+        int count = 0;
+        for (int i = 0; i < codes.length; i++) {
+            count += codes[i] == code ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of feeds of each type, in the order the types were first seen
+     *
+     * @return the number of feeds of each type
+     */
+    public Map<String, Integer> countByType() {
+        int[] counts = new int[mTypeNames.length];
+        byte[] codes = mTypeCodes;
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != NO_TYPE) {
+                counts[codes[i]]++;
+            }
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            result.put(mTypeNames[i], counts[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of feeds with a latest version at or after the given time
+     *
+     * @param sinceSeconds the time, in seconds since the epoch
+     * @return the number of feeds with a latest version at or after the given time
+     */
+    public int countUpdatedSince(int sinceSeconds) {
+        int[] ts = mLatestTimestamps;
+        int count = 0;
+        for (int i = 0; i < ts.length; i++) {
+            count += ts[i] >= sinceSeconds && ts[i] != NO_TIMESTAMP ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the rows of all feeds with a latest version at or after the given time
+     *
+     * @param sinceSeconds the time, in seconds since the epoch
+     * @return the rows of all feeds with a latest version at or after the given time, in ascending order
+     */
+    public int[] selectUpdatedSince(int sinceSeconds) {
+        int[] ts = mLatestTimestamps;
+        int[] rows = new int[countUpdatedSince(sinceSeconds)];
+        int n = 0;
+        for (int i = 0; i < ts.length && n < rows.length; i++) {
+            if (ts[i] >= sinceSeconds && ts[i] != NO_TIMESTAMP) {
+                rows[n++] = i;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the rows of all feeds with the given type
+     *
+     * @param type the feed type (e.g., "gtfs" or "gtfsrealtime")
+     * @return the rows of all feeds with the given type, in ascending order
+     */
+    public int[] selectByType(String type) {
+        byte code = getTypeCode(type);
+        if (code == NO_TYPE) {
+            return new int[0];
+        }
+        byte[] codes = mTypeCodes;
+        int[] rows = new int[countByType(type)];
+        int n = 0;
+        for (int i = 0; i < codes.length && n < rows.length; i++) {
+            if (codes[i] == code) {
+                rows[n++] = i;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the rows of all feeds located within the given bounding box.  Bounding boxes that cross the
+     * antimeridian aren't supported - use {@link FeedSpatialIndex} for those.
+     *
+     * @param minLat the southern edge of the box
+     * @param minLng the western edge of the box
+     * @param maxLat the northern edge of the box
+     * @param maxLng the eastern edge of the box
+     * @return the rows of all feeds located within the box, in ascending order
+     */
+    public int[] selectWithinBoundingBox(double minLat, double minLng, double maxLat, double maxLng) {
+        double[] lats = mLats;
+        double[] lngs = mLngs;
+        int[] rows = new int[lats.length];
+        int n = 0;
+        for (int i = 0; i < lats.length; i++) {
+            // Comparisons with NaN are false, so feeds without a location are never selected
+            if (lats[i] >= minLat && lats[i] <= maxLat && lngs[i] >= minLng && lngs[i] <= maxLng) {
+                rows[n++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * Returns the rows that appear in both selections
+     *
+     * @param a a selection, in ascending order
+     * @param b a selection, in ascending order
+     * @return the rows that appear in both selections, in ascending order
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        int[] rows = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                rows[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * Returns the number of feeds assigned to each location.  Counts for parent locations (e.g., countries) can be
+     * rolled up using {@link LocationTree}.
+     *
+     * @return a map of location ID to the number of feeds assigned directly to that location
+     */
+    public Map<Integer, Integer> countByLocation() {
+        int[] all = new int[size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return countByLocation(all);
+    }
+
+    /**
+     * Returns the number of feeds in the given selection assigned to each location
+     *
+     * @param rows the selected rows
+     * @return a map of location ID to the number of selected feeds assigned directly to that location.  Locations
+     * without any selected feeds aren't included.
+     */
+    public Map<Integer, Integer> countByLocation(int[] rows) {
+        int[] counts = new int[mDistinctLocationIds.length];
+        int[] codes = mLocationCodes;
+        for (int row : rows) {
+            int code = codes[row];
+            if (code >= 0) {
+                counts[code]++;
+            }
+        }
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.put(mDistinctLocationIds[i], counts[i]);
+            }
+        }
+        return result;
+    }
+
+    private String string(int ref) {
+        return ref < 0 ? null : mStrings[ref];
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Location;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable in-memory dictionary of locations (e.g., the results of the getLocations API) that resolves location
+ * IDs, parents, and names with hash lookups instead of API calls.  For example, findByName("Karlsruhe") returns the
+ * location with ID 622, which can be passed to GetFeedsRequest.Builder.setLocation().
+ * <p>
+ * Names are matched ignoring case against both the short name (Location.getTitle(), e.g., "Karlsruhe") and the name
+ * with its region (Location.getTitleWithRegion(), e.g., "Karlsruhe, Germany"), which can be used to tell apart
+ * locations with the same short name.  Parent and descendant queries are answered by a {@link LocationTree}.
+ */
+public class LocationDictionary {
+
+    private static final Comparator<Location> BY_ID = (a, b) -> Integer.compare(a.getId(), b.getId());
+
+    private final Map<Integer, Location> mById;
+    private final Map<String, List<Location>> mByName;
+    private final LocationTree mTree;
+
+    /**
+     * Builds a dictionary of the given locations.  Locations without an ID are ignored, and if an ID appears more
+     * than once the first location with that ID is used.
+     *
+     * @param locations the locations to include in the dictionary
+     * @return the dictionary of the given locations
+     */
+    public static LocationDictionary fromLocations(Collection<Location> locations) {
+        return new LocationDictionary(locations);
+    }
+
+    private LocationDictionary(Collection<Location> locations) {
+        mById = new HashMap<>((int) (locations.size() / 0.75f) + 1);
+        Map<String, List<Location>> byName = new HashMap<>();
+        for (Location location : locations) {
+            if (location.getId() == null || mById.containsKey(location.getId())) {
+                continue;
+            }
+            mById.put(location.getId(), location);
+            addName(byName, location.getTitle(), location);
+            addName(byName, location.getTitleWithRegion(), location);
+        }
+        for (Map.Entry<String, List<Location>> entry : byName.entrySet()) {
+            List<Location> matches = entry.getValue();
+            matches.sort(BY_ID);
+            entry.setValue(Collections.unmodifiableList(matches));
+        }
+        mByName = byName;
+        mTree = LocationTree.fromLocations(mById.values());
+    }
+
+    private static void addName(Map<String, List<Location>> byName, String name, Location location) {
+        if (name == null) {
+            return;
+        }
+        List<Location> matches = byName.computeIfAbsent(normalize(name), k -> new ArrayList<>(1));
+        // The short name and the name with its region can be the same (e.g., a country)
+        if (matches.isEmpty() || matches.get(matches.size() - 1) != location) {
+            matches.add(location);
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the number of locations in the dictionary
+     *
+     * @return the number of locations in the dictionary
+     */
+    public int size() {
+        return mById.size();
+    }
+
+    /**
+     * Returns the Location with the given ID
+     *
+     * @param id the location ID
+     * @return the Location with the given ID, or null if it isn't in the dictionary
+     */
+    public Location getLocation(int id) {
+        return mById.get(id);
+    }
+
+    /**
+     * Returns the parent of the location with the given ID
+     *
+     * @param id the location ID
+     * @return the parent of the location with the given ID, or null if it doesn't have a parent in the dictionary
+     */
+    public Location getParent(int id) {
+        Location location = mById.get(id);
+        Integer parentId = location != null ? location.getParentId() : null;
+        if (parentId == null || parentId.equals(location.getId())) {
+            return null;
+        }
+        return mById.get(parentId);
+    }
+
+    /**
+     * Returns the ancestors of the location with the given ID, starting with its parent (e.g., Karlsruhe's ancestors
+     * are Germany and then Europe)
+     *
+     * @param id the location ID
+     * @return the ancestors of the location with the given ID, or an empty list if it has none in the dictionary
+     */
+    public List<Location> getAncestors(int id) {
+        return toLocations(mTree.getAncestorIds(id));
+    }
+
+    /**
+     * Returns the direct children of the location with the given ID
+     *
+     * @param id the location ID
+     * @return the direct children of the location with the given ID, or an empty list if there are none
+     */
+    public List<Location> getChildren(int id) {
+        return toLocations(mTree.getChildIds(id));
+    }
+
+    /**
+     * Returns the locations whose name, or name with its region, matches the given name ignoring case and
+     * surrounding whitespace
+     *
+     * @param name the name of the location, e.g., "Karlsruhe" or "Karlsruhe, Germany"
+     * @return the matching locations in order of ID, or an empty list if there are none
+     */
+    public List<Location> findByName(String name) {
+        List<Location> matches = mByName.get(normalize(name));
+        return matches != null ? matches : Collections.<Location>emptyList();
+    }
+
+    /**
+     * Returns the tree of the locations in the dictionary, for descendant queries
+     *
+     * @return the tree of the locations in the dictionary
+     */
+    public LocationTree getTree() {
+        return mTree;
+    }
+
+    private List<Location> toLocations(int[] ids) {
+        List<Location> locations = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Location location = mById.get(id);
+            if (location != null) {
+                locations.add(location);
+            }
+        }
+        return locations;
+    }
+}
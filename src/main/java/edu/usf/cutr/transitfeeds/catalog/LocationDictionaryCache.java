@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.GetLocationsRequest;
+import edu.usf.cutr.transitfeeds.GetLocationsResponse;
+import edu.usf.cutr.transitfeeds.model.Location;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds a {@link LocationDictionary} loaded from the getLocations API, and reloads it in the background each time its
+ * TTL expires.  Callers always get the current dictionary without waiting for the API - only the first call to
+ * {@link #get()} loads it on the calling thread.  If a background reload fails, the previous dictionary is kept and
+ * the reload is retried after the retry interval.
+ * <p>
+ * Reloads run on a single daemon thread owned by the cache, which is stopped by {@link #close()}.  This class is
+ * threadsafe.
+ */
+public class LocationDictionaryCache implements Closeable {
+
+    /**
+     * Default time before the dictionary is reloaded, in milliseconds
+     */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * Default time before a failed reload is retried, in milliseconds
+     */
+    public static final long DEFAULT_RETRY_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String STATUS_OK = "OK";
+
+    private final GetLocationsRequest mRequest;
+    private final long mTtlMillis;
+    private final long mRetryIntervalMillis;
+    private final ScheduledExecutorService mScheduler;
+    private final Object mLoadLock = new Object();
+
+    private volatile LocationDictionary mDictionary;
+    private volatile long mLoadedAt;
+    private volatile IOException mLastError;
+    private ScheduledFuture<?> mNextReload;
+
+    private LocationDictionaryCache(Builder builder) {
+        mRequest = builder.mRequest;
+        mTtlMillis = builder.mTtlMillis;
+        mRetryIntervalMillis = builder.mRetryIntervalMillis;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "transitfeeds-locations-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Returns the current dictionary, loading it on the calling thread if it hasn't been loaded yet
+     *
+     * @return the current dictionary
+     * @throws IOException if the dictionary hasn't been loaded yet and loading it fails
+     */
+    public LocationDictionary get() throws IOException {
+        LocationDictionary dictionary = mDictionary;
+        if (dictionary != null) {
+            return dictionary;
+        }
+        synchronized (mLoadLock) {
+            if (mDictionary == null) {
+                return reload();
+            }
+            return mDictionary;
+        }
+    }
+
+    /**
+     * Reloads the dictionary from the API on the calling thread, and restarts the TTL
+     *
+     * @return the reloaded dictionary
+     * @throws IOException if loading the dictionary fails, in which case the previous dictionary (if any) is kept
+     */
+    public LocationDictionary reload() throws IOException {
+        synchronized (mLoadLock) {
+            LocationDictionary dictionary;
+            try {
+                dictionary = load();
+            } catch (IOException e) {
+                mLastError = e;
+                scheduleReload(mRetryIntervalMillis);
+                throw e;
+            }
+            mDictionary = dictionary;
+            mLoadedAt = System.currentTimeMillis();
+            mLastError = null;
+            scheduleReload(mTtlMillis);
+            return dictionary;
+        }
+    }
+
+    private LocationDictionary load() throws IOException {
+        GetLocationsResponse response = mRequest.call();
+        if (!STATUS_OK.equals(response.getStatus())) {
+            throw new IOException("getLocations returned status " + response.getStatus() + ": " +
+                    response.getErrorDescription());
+        }
+        List<Location> locations = response.getResults() != null && response.getResults().getLocations() != null ?
+                response.getResults().getLocations() : Collections.<Location>emptyList();
+        return LocationDictionary.fromLocations(locations);
+    }
+
+    private void scheduleReload(long delayMillis) {
+        if (mNextReload != null) {
+            mNextReload.cancel(false);
+        }
+        try {
+            mNextReload = mScheduler.schedule(this::reloadInBackground, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Cache has been closed
+        }
+    }
+
+    private void reloadInBackground() {
+        try {
+            reload();
+        } catch (IOException e) {
+            // Recorded in mLastError, and retried after the retry interval
+        }
+    }
+
+    /**
+     * Returns the time the current dictionary was loaded
+     *
+     * @return the time the current dictionary was loaded, in milliseconds since the epoch, or 0 if it hasn't been
+     * loaded yet
+     */
+    public long getLoadedAt() {
+        return mLoadedAt;
+    }
+
+    /**
+     * Returns the error from the most recent load, if it failed
+     *
+     * @return the error from the most recent load, or null if it succeeded
+     */
+    public IOException getLastError() {
+        return mLastError;
+    }
+
+    /**
+     * Stops reloading the dictionary in the background.  The current dictionary is still returned by get().
+     */
+    @Override
+    public void close() {
+        mScheduler.shutdownNow();
+    }
+
+    public static class Builder {
+        private final GetLocationsRequest mRequest;
+        private long mTtlMillis = DEFAULT_TTL_MILLIS;
+        private long mRetryIntervalMillis = DEFAULT_RETRY_INTERVAL_MILLIS;
+
+        /**
+         * A Builder for a cache of the locations returned by the given request
+         *
+         * @param request the request used to load the locations
+         */
+        public Builder(GetLocationsRequest request) {
+            if (request == null) {
+                throw new IllegalArgumentException("request cannot be null");
+            }
+            mRequest = request;
+        }
+
+        /**
+         * Sets how long the dictionary is used before it is reloaded in the background.  Default is
+         * {@link #DEFAULT_TTL_MILLIS}.
+         *
+         * @param ttl  how long the dictionary is used before it is reloaded
+         * @param unit the unit of ttl
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTtl(long ttl, TimeUnit unit) {
+            if (ttl <= 0) {
+                throw new IllegalArgumentException("ttl must be > 0");
+            }
+            mTtlMillis = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * Sets how long to wait before retrying a failed reload.  Default is {@link #DEFAULT_RETRY_INTERVAL_MILLIS}.
+         *
+         * @param retryInterval how long to wait before retrying a failed reload
+         * @param unit          the unit of retryInterval
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setRetryInterval(long retryInterval, TimeUnit unit) {
+            if (retryInterval <= 0) {
+                throw new IllegalArgumentException("retryInterval must be > 0");
+            }
+            mRetryIntervalMillis = unit.toMillis(retryInterval);
+            return this;
+        }
+
+        /**
+         * Builds the LocationDictionaryCache using the specified parameters.  The dictionary is loaded on the first
+         * call to get().
+         *
+         * @return the LocationDictionaryCache using the specified parameters
+         */
+        public LocationDictionaryCache build() {
+            return new LocationDictionaryCache(this);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable tree of locations built from the location IDs and parent IDs (Location.getParentId()) of a set of
+ * locations or feeds, which answers ancestor and descendant queries locally instead of via the API's descendants flag.
+ * <p>
+ * The tree is stored in primitive int arrays - child adjacency lists in compressed form, plus the entry and exit times
+ * of an Euler tour, so that "is A a descendant of B" and "all feeds under B" are interval checks.  Parent locations
+ * that are only known by ID (e.g., a country whose own feeds weren't fetched) are included as nodes without a
+ * Location.
+ */
+public class LocationTree {
+
+    private static final int[] EMPTY = new int[0];
+
+    // Node index is the position of the location ID in mIds, which is sorted
+    private final int[] mIds;
+    private final Location[] mLocations;
+    private final int[] mParent;
+    private final int[] mChildStart;
+    private final int[] mChildren;
+    private final int[] mRoots;
+
+    // Subtree of node n is the Euler tour interval [mEnter[n], mExit[n])
+    private final int[] mEnter;
+    private final int[] mExit;
+    private final int[] mTourOrder;
+
+    // Feeds sorted by the Euler tour entry time of their location
+    private final Feed[] mFeeds;
+    private final int[] mFeedEnter;
+
+    /**
+     * Builds a tree from the locations of the given feeds
+     *
+     * @param feeds the feeds whose locations are included in the tree
+     * @return the tree of the given feeds' locations
+     */
+    public static LocationTree fromFeeds(Collection<Feed> feeds) {
+        List<Location> locations = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            if (feed.getLocation() != null) {
+                locations.add(feed.getLocation());
+            }
+        }
+        return new LocationTree(locations, feeds);
+    }
+
+    /**
+     * Builds a tree from the given locations (e.g., the results of the getLocations API)
+     *
+     * @param locations the locations to include in the tree
+     * @return the tree of the given locations
+     */
+    public static LocationTree fromLocations(Collection<Location> locations) {
+        return new LocationTree(locations, Collections.<Feed>emptyList());
+    }
+
+    private LocationTree(Collection<Location> locations, Collection<Feed> feeds) {
+        // Collect distinct IDs, including parents only known by ID
+        int[] ids = new int[locations.size() * 2];
+        int count = 0;
+        for (Location location : locations) {
+            if (location.getId() != null) {
+                ids[count++] = location.getId();
+                if (hasParent(location)) {
+                    ids[count++] = location.getParentId();
+                }
+            }
+        }
+        Arrays.sort(ids, 0, count);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n == 0 || ids[i] != ids[n - 1]) {
+                ids[n++] = ids[i];
+            }
+        }
+        mIds = Arrays.copyOf(ids, n);
+
+        mLocations = new Location[n];
+        mParent = new int[n];
+        Arrays.fill(mParent, -1);
+        for (Location location : locations) {
+            if (location.getId() == null) {
+                continue;
+            }
+            int node = node(location.getId());
+            if (mLocations[node] == null) {
+                mLocations[node] = location;
+                if (hasParent(location) && location.getParentId().intValue() != location.getId().intValue()) {
+                    mParent[node] = node(location.getParentId());
+                }
+            }
+        }
+
+        // Compressed child adjacency lists
+        mChildStart = new int[n + 1];
+        for (int node = 0; node < n; node++) {
+            if (mParent[node] >= 0) {
+                mChildStart[mParent[node] + 1]++;
+            }
+        }
+        for (int node = 0; node < n; node++) {
+            mChildStart[node + 1] += mChildStart[node];
+        }
+        mChildren = new int[mChildStart[n]];
+        int[] next = Arrays.copyOf(mChildStart, n);
+        int rootCount = 0;
+        for (int node = 0; node < n; node++) {
+            if (mParent[node] >= 0) {
+                mChildren[next[mParent[node]]++] = node;
+            } else {
+                rootCount++;
+            }
+        }
+        int[] roots = new int[rootCount];
+        rootCount = 0;
+        for (int node = 0; node < n; node++) {
+            if (mParent[node] < 0) {
+                roots[rootCount++] = node;
+            }
+        }
+
+        // Iterative Euler tour.  Nodes on a parent cycle aren't reachable from a root, so they start their own tour.
+        mEnter = new int[n];
+        mExit = new int[n];
+        mTourOrder = new int[n];
+        Arrays.fill(mEnter, -1);
+        int[] stack = new int[n];
+        int[] childCursor = new int[n];
+        int time = 0;
+        List<Integer> extraRoots = new ArrayList<>();
+        for (int pass = 0; pass < 2; pass++) {
+            int end = pass == 0 ? roots.length : n;
+            for (int r = 0; r < end; r++) {
+                int root = pass == 0 ? roots[r] : r;
+                if (mEnter[root] >= 0) {
+                    continue;
+                }
+                if (pass == 1) {
+                    extraRoots.add(root);
+                }
+                int depth = 0;
+                stack[depth++] = root;
+                mEnter[root] = time;
+                mTourOrder[time++] = root;
+                childCursor[root] = mChildStart[root];
+                while (depth > 0) {
+                    int node = stack[depth - 1];
+                    if (childCursor[node] < mChildStart[node + 1]) {
+                        int child = mChildren[childCursor[node]++];
+                        if (mEnter[child] < 0) {
+                            mEnter[child] = time;
+                            mTourOrder[time++] = child;
+                            childCursor[child] = mChildStart[child];
+                            stack[depth++] = child;
+                        }
+                    } else {
+                        mExit[node] = time;
+                        depth--;
+                    }
+                }
+            }
+        }
+        mRoots = Arrays.copyOf(roots, roots.length + extraRoots.size());
+        for (int i = 0; i < extraRoots.size(); i++) {
+            mRoots[roots.length + i] = extraRoots.get(i);
+        }
+
+        // Sort feeds by the entry time of their location
+        List<Feed> located = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            if (feed.getLocation() != null && feed.getLocation().getId() != null) {
+                located.add(feed);
+            }
+        }
+        mFeeds = new Feed[located.size()];
+        mFeedEnter = new int[located.size()];
+        int[] feedCounts = new int[n + 1];
+        for (Feed feed : located) {
+            feedCounts[mEnter[node(feed.getLocation().getId())] + 1]++;
+        }
+        for (int t = 0; t < n; t++) {
+            feedCounts[t + 1] += feedCounts[t];
+        }
+        for (Feed feed : located) {
+            int enter = mEnter[node(feed.getLocation().getId())];
+            int position = feedCounts[enter]++;
+            mFeeds[position] = feed;
+            mFeedEnter[position] = enter;
+        }
+    }
+
+    private static boolean hasParent(Location location) {
+        return location.getParentId() != null && location.getParentId() > 0;
+    }
+
+    private int node(int id) {
+        return Arrays.binarySearch(mIds, id);
+    }
+
+    /**
+     * Returns the number of locations in the tree
+     *
+     * @return the number of locations in the tree
+     */
+    public int size() {
+        return mIds.length;
+    }
+
+    /**
+     * Returns true if the tree contains the given location ID, false if it does not
+     *
+     * @param id the location ID
+     * @return true if the tree contains the given location ID, false if it does not
+     */
+    public boolean contains(int id) {
+        return node(id) >= 0;
+    }
+
+    /**
+     * Returns the Location with the given ID, or null if the location isn't in the tree or is only known as the
+     * parent of another location
+     *
+     * @param id the location ID
+     * @return the Location with the given ID, or null if the location isn't in the tree or is only known by ID
+     */
+    public Location getLocation(int id) {
+        int node = node(id);
+        return node >= 0 ? mLocations[node] : null;
+    }
+
+    /**
+     * Returns the IDs of the locations that don't have a parent in the tree
+     *
+     * @return the IDs of the locations that don't have a parent in the tree
+     */
+    public int[] getRootIds() {
+        return toIds(mRoots, 0, mRoots.length);
+    }
+
+    /**
+     * Returns the IDs of the direct children of the given location
+     *
+     * @param id the location ID
+     * @return the IDs of the direct children of the given location, or an empty array if there are none
+     */
+    public int[] getChildIds(int id) {
+        int node = node(id);
+        return node >= 0 ? toIds(mChildren, mChildStart[node], mChildStart[node + 1]) : EMPTY;
+    }
+
+    /**
+     * Returns the IDs of the ancestors of the given location, starting with its parent
+     *
+     * @param id the location ID
+     * @return the IDs of the ancestors of the given location, starting with its parent
+     */
+    public int[] getAncestorIds(int id) {
+        int node = node(id);
+        if (node < 0) {
+            return EMPTY;
+        }
+        int[] ancestors = new int[8];
+        int count = 0;
+        // Stop at a parent outside the tour interval, which only happens where a parent cycle was broken
+        for (int p = mParent[node]; p >= 0 && mEnter[p] < mEnter[node]; node = p, p = mParent[p]) {
+            if (count == ancestors.length) {
+                ancestors = Arrays.copyOf(ancestors, count * 2);
+            }
+            ancestors[count++] = mIds[p];
+        }
+        return Arrays.copyOf(ancestors, count);
+    }
+
+    /**
+     * Returns the IDs of all descendants of the given location (not including the location itself), in depth-first
+     * order
+     *
+     * @param id the location ID
+     * @return the IDs of all descendants of the given location
+     */
+    public int[] getDescendantIds(int id) {
+        int node = node(id);
+        return node >= 0 ? toIds(mTourOrder, mEnter[node] + 1, mExit[node]) : EMPTY;
+    }
+
+    /**
+     * Returns true if one location is a descendant of another
+     *
+     * @param descendantId the ID of the possible descendant
+     * @param ancestorId   the ID of the possible ancestor
+     * @return true if descendantId is a descendant of ancestorId, false if it is not (or either isn't in the tree).
+     * A location is not its own descendant.
+     */
+    public boolean isDescendant(int descendantId, int ancestorId) {
+        int d = node(descendantId);
+        int a = node(ancestorId);
+        return d >= 0 && a >= 0 && d != a && mEnter[d] > mEnter[a] && mEnter[d] < mExit[a];
+    }
+
+    /**
+     * Returns the feeds assigned to the given location or any of its descendants
+     *
+     * @param id the location ID
+     * @return the feeds assigned to the given location or any of its descendants, or an empty list if there are none
+     */
+    public List<Feed> getFeedsInSubtree(int id) {
+        int node = node(id);
+        if (node < 0) {
+            return Collections.emptyList();
+        }
+        int from = lowerBound(mFeedEnter, mEnter[node]);
+        int to = lowerBound(mFeedEnter, mExit[node]);
+        return Collections.unmodifiableList(Arrays.asList(mFeeds).subList(from, to));
+    }
+
+    private int[] toIds(int[] nodes, int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = mIds[nodes[i]];
+        }
+        return ids;
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
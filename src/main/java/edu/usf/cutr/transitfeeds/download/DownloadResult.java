@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.download;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The outcome of downloading a single feed with {@link FeedDownloader}
+ */
+public final class DownloadResult {
+
+    public enum Status {
+        /**
+         * The feed was downloaded from the beginning
+         */
+        DOWNLOADED,
+        /**
+         * An interrupted download of the feed was resumed and completed
+         */
+        RESUMED,
+        /**
+         * The feed was skipped because its latest version timestamp hasn't changed since it was last downloaded
+         */
+        UNCHANGED,
+        /**
+         * The feed was skipped because it doesn't have a download URL
+         */
+        NO_URL,
+        /**
+         * The download failed - see {@link #getError()}
+         */
+        FAILED
+    }
+
+    private final Feed mFeed;
+    private final Status mStatus;
+    private final File mFile;
+    private final long mBytesTransferred;
+    private final IOException mError;
+
+    DownloadResult(Feed feed, Status status, File file, long bytesTransferred, IOException error) {
+        mFeed = feed;
+        mStatus = status;
+        mFile = file;
+        mBytesTransferred = bytesTransferred;
+        mError = error;
+    }
+
+    /**
+     * Returns the feed that was downloaded
+     *
+     * @return the feed that was downloaded
+     */
+    public Feed getFeed() {
+        return mFeed;
+    }
+
+    /**
+     * Returns the outcome of the download
+     *
+     * @return the outcome of the download
+     */
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * Returns the downloaded file, or null if the feed doesn't have a download URL
+     *
+     * @return the downloaded file, or null if the feed doesn't have a download URL
+     */
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Returns the number of bytes transferred over the network for this download
+     *
+     * @return the number of bytes transferred over the network for this download
+     */
+    public long getBytesTransferred() {
+        return mBytesTransferred;
+    }
+
+    /**
+     * Returns the reason the download failed, or null if it didn't fail
+     *
+     * @return the reason the download failed, or null if it didn't fail
+     */
+    public IOException getError() {
+        return mError;
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadResult{" +
+                "feed=" + mFeed.getId() +
+                ", status=" + mStatus +
+                ", file=" + mFile +
+                ", bytesTransferred=" + mBytesTransferred +
+                ", error=" + mError +
+                '}';
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.download;
+
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.http.UrlConnectionTransport;
+import edu.usf.cutr.transitfeeds.model.Feed;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads the datasets for a set of feeds (from Feed.getUrls().getDownloadUrl()) into a directory, concurrently.
+ * <p>
+ * Downloads are streamed straight to disk through NIO channels.  At most maxConnectionsPerHost downloads run against
+ * the same host at once, and at most parallelism downloads run in total.  Interrupted downloads are left as ".part"
+ * files and resumed with an HTTP Range request on the next run.  The latest version timestamp of each downloaded feed
+ * is recorded in the directory, and feeds whose timestamp hasn't changed since they were last downloaded are skipped.
+ */
+public class FeedDownloader {
+
+    /**
+     * Default maximum number of downloads in progress at once
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Default maximum number of downloads in progress at once from the same host
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+
+    private static final String STATE_FILE = "feed-downloads.properties";
+    private static final String PART_SUFFIX = ".part";
+    private static final String PARTIAL_PREFIX = "partial.";
+    private static final long TRANSFER_CHUNK = 1 << 20;
+
+    private final File mDirectory;
+    private final HttpTransport mTransport;
+    private final int mParallelism;
+    private final int mMaxConnectionsPerHost;
+    private final Properties mState = new Properties();
+
+    private FeedDownloader(Builder builder) throws IOException {
+        mDirectory = builder.mDirectory;
+        mParallelism = builder.mParallelism;
+        mMaxConnectionsPerHost = builder.mMaxConnectionsPerHost;
+        mTransport = builder.mTransport != null ? builder.mTransport : new UrlConnectionTransport.Builder()
+                .setGzip(false)
+                .setMaxConnections(builder.mParallelism)
+                .build();
+        File stateFile = new File(mDirectory, STATE_FILE);
+        if (stateFile.exists()) {
+            try (InputStream in = new FileInputStream(stateFile)) {
+                mState.load(in);
+            }
+        }
+    }
+
+    /**
+     * Downloads the given feeds, blocking until all downloads have completed or failed.  A failed download doesn't
+     * affect the others - check the status of each result.
+     *
+     * @param feeds the feeds to download
+     * @return the result of each download, in the same order as feeds
+     * @throws InterruptedException if the calling thread is interrupted while waiting.  Downloads in progress are
+     *                              interrupted and can be resumed later.
+     */
+    public List<DownloadResult> downloadAll(Collection<Feed> feeds) throws InterruptedException {
+        // Queue feeds per host, and drain each queue with at most maxConnectionsPerHost workers
+        Map<String, Queue<Feed>> byHost = new LinkedHashMap<>();
+        final Map<Feed, DownloadResult> results = new ConcurrentHashMap<>();
+        for (Feed feed : feeds) {
+            URL url = downloadUrl(feed);
+            if (url == null) {
+                results.put(feed, new DownloadResult(feed, DownloadResult.Status.NO_URL, null, 0, null));
+                continue;
+            }
+            String host = url.getHost() + ":" + url.getPort();
+            Queue<Feed> queue = byHost.get(host);
+            if (queue == null) {
+                queue = new ConcurrentLinkedQueue<>();
+                byHost.put(host, queue);
+            }
+            queue.add(feed);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(mParallelism);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (final Queue<Feed> queue : byHost.values()) {
+                int count = Math.min(mMaxConnectionsPerHost, queue.size());
+                for (int i = 0; i < count; i++) {
+                    workers.add(executor.submit(() -> {
+                        Feed feed;
+                        while ((feed = queue.poll()) != null && !Thread.currentThread().isInterrupted()) {
+                            results.put(feed, download(feed));
+                        }
+                    }));
+                }
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<DownloadResult> ordered = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            ordered.add(results.get(feed));
+        }
+        return ordered;
+    }
+
+    /**
+     * Downloads a single feed on the calling thread
+     *
+     * @param feed the feed to download
+     * @return the result of the download
+     */
+    public DownloadResult download(Feed feed) {
+        URL url = downloadUrl(feed);
+        if (url == null) {
+            return new DownloadResult(feed, DownloadResult.Status.NO_URL, null, 0, null);
+        }
+        File file = fileFor(feed, url);
+        String timestamp = latestTimestamp(feed);
+        if (timestamp != null && file.exists() && timestamp.equals(getState(feed.getId()))) {
+            return new DownloadResult(feed, DownloadResult.Status.UNCHANGED, file, 0, null);
+        }
+
+        File part = new File(file.getPath() + PART_SUFFIX);
+        // Only resume a partial download of the same feed version
+        if (part.exists() && (timestamp == null || !timestamp.equals(getState(PARTIAL_PREFIX + feed.getId())))) {
+            part.delete();
+        }
+        setState(PARTIAL_PREFIX + feed.getId(), timestamp);
+
+        long transferred = 0;
+        try {
+            long offset = part.length();
+            HttpRequest request = new HttpRequest(url).setHeader("Accept-Encoding", "identity");
+            if (offset > 0) {
+                request.setHeader("Range", "bytes=" + offset + "-");
+            }
+            boolean resumed;
+            try (HttpResponse response = mTransport.execute(request)) {
+                int status = response.getStatusCode();
+                if (status == 416 && offset > 0) {
+                    // Our partial file doesn't match the server's - start over on the next run
+                    part.delete();
+                    throw new HttpResponseException(status, url);
+                }
+                resumed = status == HttpURLConnection.HTTP_PARTIAL && offset > 0;
+                // Anything else (e.g., a redirect across protocols, which HttpURLConnection doesn't follow, or a
+                // 204) isn't the dataset, and must not replace the downloaded file
+                if (status != HttpURLConnection.HTTP_OK && !resumed) {
+                    throw new HttpResponseException(status, url);
+                }
+                if (resumed && rangeStart(response) != offset) {
+                    // The server sent a different range than we asked for - start over on the next run
+                    part.delete();
+                    throw new IOException("Content-Range " + response.getHeader("Content-Range")
+                            + " doesn't start at offset " + offset + " of " + url);
+                }
+                if (!resumed) {
+                    // The server ignored the range, so start from the beginning
+                    offset = 0;
+                }
+                transferred = transfer(response.getBody(), part, offset);
+                // HttpURLConnection reports a dropped connection as a normal end of stream, so check the length
+                long expected = contentLength(response);
+                if (expected >= 0 && transferred != expected) {
+                    throw new IOException("Connection closed after " + transferred + " of " + expected
+                            + " bytes from " + url);
+                }
+            }
+            Files.move(part.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            setState(PARTIAL_PREFIX + feed.getId(), null);
+            setState(feed.getId(), timestamp);
+            return new DownloadResult(feed, resumed ? DownloadResult.Status.RESUMED : DownloadResult.Status.DOWNLOADED,
+                    file, transferred, null);
+        } catch (IOException e) {
+            return new DownloadResult(feed, DownloadResult.Status.FAILED, file, transferred, e);
+        }
+    }
+
+    /**
+     * Streams the body into the file starting at offset, truncating anything after it
+     */
+    private static long transfer(InputStream body, File file, long offset) throws IOException {
+        try (ReadableByteChannel source = Channels.newChannel(body);
+             FileChannel target = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE)) {
+            target.truncate(offset);
+            long position = offset;
+            long count;
+            while ((count = target.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += count;
+            }
+            target.force(false);
+            return position - offset;
+        }
+    }
+
+    /**
+     * Returns the file the feed is downloaded to
+     *
+     * @param feed the feed
+     * @return the file the feed is downloaded to, or null if the feed doesn't have a download URL
+     */
+    public File getFile(Feed feed) {
+        URL url = downloadUrl(feed);
+        return url != null ? fileFor(feed, url) : null;
+    }
+
+    private File fileFor(Feed feed, URL url) {
+        String path = url.getPath();
+        int dot = path.lastIndexOf('.');
+        String extension = dot > path.lastIndexOf('/') && path.length() - dot <= 8 ? path.substring(dot) : ".zip";
+        return new File(mDirectory, feed.getId().replaceAll("[^A-Za-z0-9._-]", "_") + extension);
+    }
+
+    /**
+     * Returns the first byte position of a "Content-Range: bytes start-end/total" header, or -1 if the header is
+     * missing or invalid
+     */
+    private static long rangeStart(HttpResponse response) {
+        String range = response.getHeader("Content-Range");
+        if (range == null) {
+            return -1;
+        }
+        range = range.trim();
+        int dash = range.indexOf('-');
+        if (!range.startsWith("bytes ") || dash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long contentLength(HttpResponse response) {
+        String length = response.getHeader("Content-Length");
+        try {
+            return length != null ? Long.parseLong(length.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static URL downloadUrl(Feed feed) {
+        if (feed.getId() == null || feed.getUrls() == null || feed.getUrls().getDownloadUrl() == null) {
+            return null;
+        }
+        try {
+            return new URL(feed.getUrls().getDownloadUrl());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String latestTimestamp(Feed feed) {
+        return feed.getLatest() != null && feed.getLatest().getTimestamp() != null ?
+                feed.getLatest().getTimestamp().toString() : null;
+    }
+
+    private synchronized String getState(String key) {
+        return mState.getProperty(key);
+    }
+
+    private synchronized void setState(String key, String value) {
+        Object previous = value != null ? mState.setProperty(key, value) : mState.remove(key);
+        if (Objects.equals(previous, value)) {
+            return;
+        }
+        File stateFile = new File(mDirectory, STATE_FILE);
+        try {
+            File temp = File.createTempFile(STATE_FILE, ".tmp", mDirectory);
+            try (OutputStream out = new FileOutputStream(temp)) {
+                mState.store(out, "Latest version timestamps of downloaded feeds");
+            }
+            Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Losing the state only means the feed is downloaded again next time
+        }
+    }
+
+    public static class Builder {
+        private final File mDirectory;
+        private HttpTransport mTransport;
+        private int mParallelism = DEFAULT_PARALLELISM;
+        private int mMaxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+        /**
+         * A Builder for a downloader that saves feeds into the given directory
+         *
+         * @param directory the directory feeds are downloaded into.  It is created if it doesn't exist.
+         */
+        public Builder(File directory) {
+            mDirectory = directory;
+        }
+
+        /**
+         * Sets the transport used for downloads.  By default a new {@link UrlConnectionTransport} is used, without
+         * gzip compression (datasets are already compressed, and compression would break resuming).
+         *
+         * @param transport the transport used for downloads
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTransport(HttpTransport transport) {
+            mTransport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of downloads in progress at once.  Default is {@link #DEFAULT_PARALLELISM}.
+         *
+         * @param parallelism the maximum number of downloads in progress at once
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be >= 1");
+            }
+            mParallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of downloads in progress at once from the same host.  Default is
+         * {@link #DEFAULT_MAX_CONNECTIONS_PER_HOST}.
+         *
+         * @param maxConnectionsPerHost the maximum number of downloads in progress at once from the same host
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+            if (maxConnectionsPerHost < 1) {
+                throw new IllegalArgumentException("maxConnectionsPerHost must be >= 1");
+            }
+            mMaxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * Builds the FeedDownloader using the specified parameters
+         *
+         * @return the FeedDownloader using the specified parameters
+         * @throws IOException if the directory could not be created or its download state could not be read
+         */
+        public FeedDownloader build() throws IOException {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IOException("Could not create download directory " + mDirectory);
+            }
+            return new FeedDownloader(this);
+        }
+    }
+}
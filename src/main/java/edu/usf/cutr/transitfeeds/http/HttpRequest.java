@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.http;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An HTTP GET request to be executed by an {@link HttpTransport}
+ */
+public class HttpRequest {
+
+    private final URL mUrl;
+    private final Map<String, String> mHeaders = new LinkedHashMap<String, String>();
+
+    /**
+     * Creates a new GET request for the given URL
+     *
+     * @param url the URL to request
+     */
+    public HttpRequest(URL url) {
+        mUrl = url;
+    }
+
+    /**
+     * Sets a request header, replacing any existing value for the same header
+     *
+     * @param name  the name of the header
+     * @param value the value of the header
+     * @return this same HttpRequest so calls can be chained
+     */
+    public HttpRequest setHeader(String name, String value) {
+        mHeaders.put(name, value);
+        return this;
+    }
+
+    /**
+     * Returns the URL to request
+     *
+     * @return the URL to request
+     */
+    public URL getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * Returns the value of the given request header, or null if it hasn't been set.  Header names are matched
+     * case-insensitively.
+     *
+     * @param name the name of the header
+     * @return the value of the given request header, or null if it hasn't been set
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> entry : mHeaders.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all request headers that have been set
+     *
+     * @return all request headers that have been set
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(mHeaders);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpRequest{" +
+                "url=" + mUrl +
+                ", headers=" + mHeaders +
+                '}';
+    }
+}
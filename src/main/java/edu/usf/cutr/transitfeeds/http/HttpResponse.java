@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A response returned by an {@link HttpTransport}.  The response must be closed once the body has been consumed so
+ * that the underlying connection can be returned to the pool.
+ */
+public class HttpResponse implements Closeable {
+
+    private final int mStatusCode;
+    private final Map<String, String> mHeaders = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+    private final InputStream mBody;
+    private long mConnectNanos = -1;
+    private long mFirstByteNanos = -1;
+
+    /**
+     * Creates a new response
+     *
+     * @param statusCode the HTTP status code of the response
+     * @param headers    the response headers, keyed on header name.  Null keys (e.g., the status line returned by
+     *                   HttpURLConnection) are ignored, and only the last value of repeated headers is kept.
+     * @param body       the response body, or null if the response doesn't have a body
+     */
+    public HttpResponse(int statusCode, Map<String, List<String>> headers, InputStream body) {
+        mStatusCode = statusCode;
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    mHeaders.put(entry.getKey(), entry.getValue().get(entry.getValue().size() - 1));
+                }
+            }
+        }
+        mBody = body != null ? body : new ByteArrayInputStream(new byte[0]);
+    }
+
+    /**
+     * Returns the HTTP status code of the response
+     *
+     * @return the HTTP status code of the response
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * Returns the value of the given response header, or null if the header wasn't included in the response.  Header
+     * names are matched case-insensitively.
+     *
+     * @param name the name of the header
+     * @return the value of the given response header, or null if the header wasn't included in the response
+     */
+    public String getHeader(String name) {
+        return mHeaders.get(name);
+    }
+
+    /**
+     * Returns all response headers
+     *
+     * @return all response headers
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(mHeaders);
+    }
+
+    /**
+     * Records how long the transport spent establishing the connection and waiting for the response headers, for
+     * reporting to a {@link edu.usf.cutr.transitfeeds.RequestListener}.  Transports that can't measure a phase should
+     * pass -1 for it.
+     *
+     * @param connectNanos   the time spent establishing the connection, in nanoseconds
+     * @param firstByteNanos the time from the connection being established to the response headers being received,
+     *                       in nanoseconds
+     * @return this same HttpResponse
+     */
+    public HttpResponse setTimings(long connectNanos, long firstByteNanos) {
+        mConnectNanos = connectNanos;
+        mFirstByteNanos = firstByteNanos;
+        return this;
+    }
+
+    /**
+     * Returns the time spent establishing the connection, in nanoseconds, or -1 if the transport didn't measure it
+     *
+     * @return the time spent establishing the connection, in nanoseconds, or -1 if it wasn't measured
+     */
+    public long getConnectNanos() {
+        return mConnectNanos;
+    }
+
+    /**
+     * Returns the time from the connection being established to the response headers being received, in nanoseconds,
+     * or -1 if the transport didn't measure it
+     *
+     * @return the time to the first byte of the response, in nanoseconds, or -1 if it wasn't measured
+     */
+    public long getFirstByteNanos() {
+        return mFirstByteNanos;
+    }
+
+    /**
+     * Returns the response body.  If the server compressed the body, this stream has already been decompressed.
+     *
+     * @return the response body
+     */
+    public InputStream getBody() {
+        return mBody;
+    }
+
+    /**
+     * Closes the response body and releases the underlying connection
+     *
+     * @throws IOException if the body could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        mBody.close();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpResponse{" +
+                "statusCode=" + mStatusCode +
+                ", headers=" + mHeaders +
+                '}';
+    }
+}
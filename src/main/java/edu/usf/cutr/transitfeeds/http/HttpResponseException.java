@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.http;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Thrown when the server responds to a request with an HTTP error status code (400 or higher)
+ */
+public class HttpResponseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int mStatusCode;
+
+    /**
+     * Creates a new exception for the given status code and request URL
+     *
+     * @param statusCode the HTTP status code returned by the server
+     * @param url        the URL that was requested
+     */
+    public HttpResponseException(int statusCode, URL url) {
+        super("Server returned HTTP response code: " + statusCode + " for URL: " + url);
+        mStatusCode = statusCode;
+    }
+
+    /**
+     * Returns the HTTP status code returned by the server
+     *
+     * @return the HTTP status code returned by the server
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.http;
+
+import java.io.IOException;
+
+/**
+ * Executes HTTP GET requests on behalf of the client library.  Implementations must be threadsafe, as a single
+ * transport instance is typically shared by all requests.
+ * <p>
+ * The default implementation is {@link UrlConnectionTransport}.  Tests or applications with their own HTTP stack can
+ * provide a different implementation via GetFeedsRequest.Builder.setTransport().
+ */
+public interface HttpTransport {
+
+    /**
+     * Executes the given request and returns the response.  The caller is responsible for closing the returned
+     * response, which releases the underlying connection.
+     *
+     * @param request the request to execute
+     * @return the response from the server
+     * @throws IOException if the request could not be sent or the response could not be read
+     */
+    HttpResponse execute(HttpRequest request) throws IOException;
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default {@link HttpTransport}, backed by {@link HttpURLConnection}.
+ * <p>
+ * Connections are persistent - once a response body has been read and closed, the socket is returned to the JDK's
+ * HTTP keep-alive cache and reused by the next request to the same host.  The number of connections in use at any
+ * one time is bounded by maxConnections; additional requests wait up to the connect timeout for a connection to be
+ * released, and then fail with a SocketTimeoutException.  Compressed responses are requested via
+ * "Accept-Encoding: gzip" and transparently decompressed.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    /**
+     * Default timeout, in milliseconds, for establishing a connection
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+
+    /**
+     * Default timeout, in milliseconds, for reading data from an established connection
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MS = 30000;
+
+    /**
+     * Default maximum number of connections that can be in use at once
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+
+    private final int mConnectTimeout;
+    private final int mReadTimeout;
+    private final boolean mGzip;
+    private final int mMaxConnections;
+    private final Semaphore mConnections;
+
+    private UrlConnectionTransport(Builder builder) {
+        mConnectTimeout = builder.mConnectTimeout;
+        mReadTimeout = builder.mReadTimeout;
+        mGzip = builder.mGzip;
+        mMaxConnections = builder.mMaxConnections;
+        mConnections = new Semaphore(builder.mMaxConnections, true);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        acquireConnection(request);
+        InputStream body = null;
+        try {
+            URLConnection connection = request.getUrl().openConnection();
+            connection.setConnectTimeout(mConnectTimeout);
+            connection.setReadTimeout(mReadTimeout);
+            connection.setUseCaches(false);
+            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (mGzip && request.getHeader(ACCEPT_ENCODING) == null) {
+                connection.setRequestProperty(ACCEPT_ENCODING, GZIP);
+            }
+
+            long start = System.nanoTime();
+            connection.connect();
+            long connected = System.nanoTime();
+
+            int statusCode;
+            if (connection instanceof HttpURLConnection) {
+                HttpURLConnection http = (HttpURLConnection) connection;
+                statusCode = http.getResponseCode();
+                body = statusCode >= 400 ? http.getErrorStream() : http.getInputStream();
+                if (body != null && hasBody(statusCode) && GZIP.equalsIgnoreCase(http.getHeaderField(CONTENT_ENCODING))) {
+                    body = new GZIPInputStream(body);
+                }
+            } else {
+                // Non-HTTP URLs (e.g., file:) don't have status codes
+                statusCode = HttpURLConnection.HTTP_OK;
+                body = connection.getInputStream();
+            }
+            if (body == null) {
+                body = new ByteArrayInputStream(new byte[0]);
+            }
+            long firstByte = System.nanoTime();
+            return new HttpResponse(statusCode, connection.getHeaderFields(), new ReleasingInputStream(body))
+                    .setTimings(connected - start, firstByte - connected);
+        } catch (IOException | RuntimeException e) {
+            // E.g., a corrupt gzip header - the raw stream must still be closed so the socket isn't leaked
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+            mConnections.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a connection permit, for at most the connect timeout (or indefinitely if there is no connect
+     * timeout), so that permits leaked by responses that are never closed cause an exception rather than blocking
+     * every later request forever
+     */
+    private void acquireConnection(HttpRequest request) throws IOException {
+        try {
+            if (mConnectTimeout == 0) {
+                mConnections.acquire();
+            } else if (!mConnections.tryAcquire(mConnectTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SocketTimeoutException("Timed out after " + mConnectTimeout + " ms waiting for one of "
+                        + mMaxConnections + " connections to " + request.getUrl());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + request.getUrl());
+        }
+    }
+
+    private static boolean hasBody(int statusCode) {
+        return statusCode >= 200 && statusCode != HttpURLConnection.HTTP_NO_CONTENT
+                && statusCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    /**
+     * Returns the timeout, in milliseconds, for establishing a connection
+     *
+     * @return the timeout, in milliseconds, for establishing a connection
+     */
+    public int getConnectTimeout() {
+        return mConnectTimeout;
+    }
+
+    /**
+     * Returns the timeout, in milliseconds, for reading data from an established connection
+     *
+     * @return the timeout, in milliseconds, for reading data from an established connection
+     */
+    public int getReadTimeout() {
+        return mReadTimeout;
+    }
+
+    /**
+     * Returns the number of connections that are currently available to new requests
+     *
+     * @return the number of connections that are currently available to new requests
+     */
+    public int getAvailableConnections() {
+        return mConnections.availablePermits();
+    }
+
+    /**
+     * Closes the wrapped stream and releases the connection permit exactly once
+     */
+    private class ReleasingInputStream extends FilterInputStream {
+
+        private final AtomicBoolean mReleased = new AtomicBoolean();
+
+        ReleasingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                if (mReleased.compareAndSet(false, true)) {
+                    mConnections.release();
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+        private int mConnectTimeout = DEFAULT_CONNECT_TIMEOUT_MS;
+        private int mReadTimeout = DEFAULT_READ_TIMEOUT_MS;
+        private int mMaxConnections = DEFAULT_MAX_CONNECTIONS;
+        private boolean mGzip = true;
+
+        /**
+         * Sets the timeout, in milliseconds, for establishing a connection.  A value of 0 means no timeout.  Default is
+         * {@link #DEFAULT_CONNECT_TIMEOUT_MS}.
+         *
+         * @param connectTimeout the timeout, in milliseconds, for establishing a connection
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setConnectTimeout(int connectTimeout) {
+            if (connectTimeout < 0) {
+                throw new IllegalArgumentException("connectTimeout must be >= 0");
+            }
+            mConnectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the timeout, in milliseconds, for reading data from an established connection.  A value of 0 means no
+         * timeout.  Default is {@link #DEFAULT_READ_TIMEOUT_MS}.
+         *
+         * @param readTimeout the timeout, in milliseconds, for reading data from an established connection
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setReadTimeout(int readTimeout) {
+            if (readTimeout < 0) {
+                throw new IllegalArgumentException("readTimeout must be >= 0");
+            }
+            mReadTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections that can be in use at once.  Default is
+         * {@link #DEFAULT_MAX_CONNECTIONS}.
+         * <p>
+         * A connection stays in use until its response body is closed, so every HttpResponse (and every FeedIterator
+         * returned by GetFeedsRequest.callStreaming()) must be closed.  A response that is never closed holds its
+         * connection forever, and once all connections are held, requests fail with a SocketTimeoutException after
+         * waiting for the connect timeout.  The transport used by default is shared by all GetFeedsRequest and
+         * GetLocationsRequest instances that don't set their own, so a leak in one affects all of them.
+         * <p>
+         * Note that the number of idle connections the JDK keeps alive per host is controlled separately by the
+         * "http.maxConnections" system property.
+         *
+         * @param maxConnections the maximum number of connections that can be in use at once
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxConnections(int maxConnections) {
+            if (maxConnections < 1) {
+                throw new IllegalArgumentException("maxConnections must be >= 1");
+            }
+            mMaxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets whether gzip-compressed responses should be requested from the server.  Default is true.
+         *
+         * @param gzip true if gzip-compressed responses should be requested, false if they should not
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setGzip(boolean gzip) {
+            mGzip = gzip;
+            return this;
+        }
+
+        /**
+         * Builds the UrlConnectionTransport using the specified parameters
+         *
+         * @return the UrlConnectionTransport using the specified parameters
+         */
+        public UrlConnectionTransport build() {
+            return new UrlConnectionTransport(this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.model;
+
+/**
+ * A compact, immutable version of {@link Feed} for holding a large catalog in memory for a long time.  The URLs and
+ * latest version timestamp are stored inline instead of in separate Urls and Latest objects, the timestamp is a
+ * primitive, the type is interned, the location is shared with all other feeds assigned to the same location, and
+ * additional properties are not kept.  Create instances with {@link CompactFeedFactory}.
+ */
+public final class CompactFeed {
+
+    /**
+     * Value of the latest version timestamp when the feed doesn't have a latest version
+     */
+    public static final int NO_TIMESTAMP = -1;
+
+    private final String id;
+    private final String type;
+    private final String title;
+    private final CompactLocation location;
+    private final String infoUrl;
+    private final String downloadUrl;
+    private final int latestTimestamp;
+
+    CompactFeed(Feed feed, String type, CompactLocation location) {
+        id = feed.getId();
+        this.type = type;
+        title = feed.getTitle();
+        this.location = location;
+        infoUrl = feed.getUrls() != null ? feed.getUrls().getInfoUrl() : null;
+        downloadUrl = feed.getUrls() != null ? feed.getUrls().getDownloadUrl() : null;
+        latestTimestamp = feed.getLatest() != null && feed.getLatest().getTimestamp() != null ?
+                feed.getLatest().getTimestamp() : NO_TIMESTAMP;
+    }
+
+    /**
+     * Returns the unique ID for this feed
+     *
+     * @return unique ID for this feed
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the type of feed (such as "gtfs" or "gtfsrealtime")
+     *
+     * @return the type of feed (such as "gtfs" or "gtfsrealtime")
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the title of the feed as it appears on TransitFeeds.com
+     *
+     * @return the title of the feed as it appears on TransitFeeds.com
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the location to which this feed is assigned, or null if there isn't one
+     *
+     * @return the location to which this feed is assigned, or null if there isn't one
+     */
+    public CompactLocation getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns a URL with additional information about registering or downloading the feed from the provider, or null
+     * if there isn't one
+     *
+     * @return a URL with additional information about the feed, or null if there isn't one
+     */
+    public String getInfoUrl() {
+        return infoUrl;
+    }
+
+    /**
+     * Returns a URL to download the feed directly from the provider, or null if there isn't one
+     *
+     * @return a URL to download the feed directly from the provider, or null if there isn't one
+     */
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    /**
+     * Returns the timestamp of the latest feed version (in number of seconds since the epoch), or
+     * {@link #NO_TIMESTAMP} if the feed doesn't have a latest version
+     *
+     * @return the timestamp of the latest feed version, or {@link #NO_TIMESTAMP} if there isn't one
+     */
+    public int getLatestTimestamp() {
+        return latestTimestamp;
+    }
+
+    /**
+     * Returns a new mutable Feed with the same values as this feed
+     *
+     * @return a new mutable Feed with the same values as this feed
+     */
+    public Feed toFeed() {
+        Feed feed = new Feed();
+        feed.setId(id);
+        feed.setType(type);
+        feed.setTitle(title);
+        if (location != null) {
+            feed.setLocation(location.toLocation());
+        }
+        if (infoUrl != null || downloadUrl != null) {
+            Urls urls = new Urls();
+            urls.setInfoUrl(infoUrl);
+            urls.setDownloadUrl(downloadUrl);
+            feed.setUrls(urls);
+        }
+        if (latestTimestamp != NO_TIMESTAMP) {
+            Latest latest = new Latest();
+            latest.setTimestamp(latestTimestamp);
+            feed.setLatest(latest);
+        }
+        return feed;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactFeed{" +
+                "id='" + id + '\'' +
+                ", type='" + type + '\'' +
+                ", title='" + title + '\'' +
+                ", location=" + location +
+                ", infoUrl='" + infoUrl + '\'' +
+                ", downloadUrl='" + downloadUrl + '\'' +
+                ", latestTimestamp=" + latestTimestamp +
+                '}';
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts Feeds into {@link CompactFeed}s, sharing one {@link CompactLocation} per location ID and one String
+ * instance per feed type across every feed converted by the same factory.  Use a single factory for an entire
+ * catalog to get the most sharing.  This class is threadsafe.
+ */
+public class CompactFeedFactory {
+
+    /**
+     * Type of GTFS feeds
+     */
+    public static final String TYPE_GTFS = "gtfs";
+
+    /**
+     * Type of GTFS-realtime feeds
+     */
+    public static final String TYPE_GTFS_REALTIME = "gtfsrealtime";
+
+    private final ConcurrentMap<Integer, CompactLocation> mLocations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> mTypes = new ConcurrentHashMap<>();
+
+    public CompactFeedFactory() {
+        mTypes.put(TYPE_GTFS, TYPE_GTFS);
+        mTypes.put(TYPE_GTFS_REALTIME, TYPE_GTFS_REALTIME);
+    }
+
+    /**
+     * Converts a feed.  If a location with the same ID has already been converted by this factory, the existing
+     * CompactLocation is reused.
+     *
+     * @param feed the feed to convert
+     * @return the compact version of the feed
+     */
+    public CompactFeed create(Feed feed) {
+        return new CompactFeed(feed, type(feed.getType()), location(feed.getLocation()));
+    }
+
+    /**
+     * Converts a collection of feeds
+     *
+     * @param feeds the feeds to convert
+     * @return the compact versions of the feeds, in the same order
+     */
+    public List<CompactFeed> createAll(Collection<Feed> feeds) {
+        List<CompactFeed> compact = new ArrayList<>(feeds.size());
+        for (Feed feed : feeds) {
+            compact.add(create(feed));
+        }
+        return compact;
+    }
+
+    /**
+     * Returns the canonical CompactLocation for the given location ID, or null if no feed with that location has
+     * been converted by this factory
+     *
+     * @param id the location ID
+     * @return the canonical CompactLocation for the given location ID, or null if there isn't one
+     */
+    public CompactLocation getLocation(int id) {
+        return mLocations.get(id);
+    }
+
+    /**
+     * Returns the number of distinct locations converted by this factory
+     *
+     * @return the number of distinct locations converted by this factory
+     */
+    public int getLocationCount() {
+        return mLocations.size();
+    }
+
+    private CompactLocation location(Location location) {
+        if (location == null) {
+            return null;
+        }
+        if (location.getId() == null) {
+            return new CompactLocation(location);
+        }
+        CompactLocation compact = mLocations.get(location.getId());
+        if (compact == null) {
+            compact = new CompactLocation(location);
+            CompactLocation existing = mLocations.putIfAbsent(location.getId(), compact);
+            if (existing != null) {
+                compact = existing;
+            }
+        }
+        return compact;
+    }
+
+    private String type(String type) {
+        if (type == null) {
+            return null;
+        }
+        String canonical = mTypes.putIfAbsent(type, type);
+        return canonical != null ? canonical : type;
+    }
+}
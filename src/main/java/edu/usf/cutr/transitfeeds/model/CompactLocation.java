@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.model;
+
+/**
+ * A compact, immutable version of {@link Location}, with primitive IDs and coordinates and no additional properties.
+ * Instances are canonicalized by {@link CompactFeedFactory}, so all feeds assigned to the same location share one
+ * CompactLocation.
+ */
+public final class CompactLocation {
+
+    /**
+     * Value of an ID that wasn't included in the response
+     */
+    public static final int NO_ID = -1;
+
+    private final int id;
+    private final int parentId;
+    private final String titleWithRegion;
+    private final String title;
+    private final double lat;
+    private final double lng;
+
+    CompactLocation(Location location) {
+        id = location.getId() != null ? location.getId() : NO_ID;
+        parentId = location.getParentId() != null ? location.getParentId() : NO_ID;
+        titleWithRegion = location.getTitleWithRegion();
+        title = location.getTitle();
+        lat = location.getLat() != null ? location.getLat() : Double.NaN;
+        lng = location.getLng() != null ? location.getLng() : Double.NaN;
+    }
+
+    /**
+     * Returns the unique ID of this location, or {@link #NO_ID} if it wasn't included in the response
+     *
+     * @return the unique ID of this location, or {@link #NO_ID} if it wasn't included in the response
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the ID of the parent of this location, or {@link #NO_ID} if it wasn't included in the response
+     *
+     * @return the ID of the parent of this location, or {@link #NO_ID} if it wasn't included in the response
+     */
+    public int getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Returns the title of this location including its region (e.g., "Vancouver, BC, Canada"), or null if it wasn't
+     * included in the response
+     *
+     * @return the title of this location including its region, or null if it wasn't included in the response
+     */
+    public String getTitleWithRegion() {
+        return titleWithRegion;
+    }
+
+    /**
+     * Returns the short title of this location without its region (e.g., "Vancouver"), or null if it wasn't included
+     * in the response
+     *
+     * @return the short title of this location, or null if it wasn't included in the response
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Returns the latitude of this location, or NaN if it wasn't included in the response
+     *
+     * @return the latitude of this location, or NaN if it wasn't included in the response
+     */
+    public double getLat() {
+        return lat;
+    }
+
+    /**
+     * Returns the longitude of this location, or NaN if it wasn't included in the response
+     *
+     * @return the longitude of this location, or NaN if it wasn't included in the response
+     */
+    public double getLng() {
+        return lng;
+    }
+
+    /**
+     * Returns a new mutable Location with the same values as this location
+     *
+     * @return a new mutable Location with the same values as this location
+     */
+    public Location toLocation() {
+        Location location = new Location();
+        location.setId(id != NO_ID ? id : null);
+        location.setParentId(parentId != NO_ID ? parentId : null);
+        location.setTitleWithRegion(titleWithRegion);
+        location.setTitle(title);
+        location.setLat(!Double.isNaN(lat) ? lat : null);
+        location.setLng(!Double.isNaN(lng) ? lng : null);
+        return location;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactLocation{" +
+                "id=" + id +
+                ", parentId=" + parentId +
+                ", titleWithRegion='" + titleWithRegion + '\'' +
+                ", title='" + title + '\'' +
+                ", lat=" + lat +
+                ", lng=" + lng +
+                '}';
+    }
+}
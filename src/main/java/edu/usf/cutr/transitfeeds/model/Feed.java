@@ -17,6 +17,7 @@ package edu.usf.cutr.transitfeeds.model;
 
 import com.fasterxml.jackson.annotation.*;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,7 +45,7 @@ public class Feed {
     @JsonProperty("latest")
     private Latest latest;
     @JsonIgnore
-    private Map<String, Object> additionalProperties = new HashMap<String, Object>();
+    private volatile Map<String, Object> additionalProperties;
 
     /**
      * Returns the unique ID for this feed. This is constructed using the ID of the feed's provider and an internal ID. This ID can be used in other calls, such as /getFeedVersions or /getLatestFeedVersion.
@@ -136,14 +137,34 @@ public class Feed {
         this.latest = latest;
     }
 
+    /**
+     * Returns the fields that don't map to a property of this class.  The map is only created the first time it's
+     * needed, under this object's lock, so objects shared between threads (e.g., by a cache) all see the same map.
+     *
+     * @return the fields that don't map to a property of this class
+     */
     @JsonAnyGetter
-    public Map<String, Object> getAdditionalProperties() {
+    public synchronized Map<String, Object> getAdditionalProperties() {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<String, Object>();
+        }
         return this.additionalProperties;
     }
 
     @JsonAnySetter
     public void setAdditionalProperty(String name, Object value) {
-        this.additionalProperties.put(name, value);
+        getAdditionalProperties().put(name, value);
+    }
+
+    /**
+     * Replaces all additional properties, e.g., with a {@link LazyProperties} that binds the unknown fields when
+     * they are first accessed
+     *
+     * @param additionalProperties the additional properties
+     */
+    @JsonIgnore
+    public synchronized void setAdditionalProperties(Map<String, Object> additionalProperties) {
+        this.additionalProperties = additionalProperties;
     }
 
     @Override
@@ -155,7 +176,8 @@ public class Feed {
                 ", location=" + location +
                 ", urls=" + urls +
                 ", latest=" + latest +
-                ", additionalProperties=" + additionalProperties +
+                ", additionalProperties=" +
+                (additionalProperties != null ? additionalProperties : Collections.emptyMap()) +
                 '}';
     }
 }
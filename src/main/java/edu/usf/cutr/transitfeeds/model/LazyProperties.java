@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map of additional properties that holds the unknown fields of a JSON object as buffered tokens, and only binds
+ * them to values (Maps, Lists, Strings, Numbers, etc.) the first time the map is accessed.  Most callers never look
+ * at the additional properties, so fields added to the API cost a copy of their tokens rather than a tree of
+ * objects.
+ * <p>
+ * Once bound, the map behaves like the HashMap the model classes use by default, including being modifiable.
+ */
+public final class LazyProperties extends AbstractMap<String, Object> {
+
+    private final Object mLock = new Object();
+    private TokenBuffer mBuffer;
+    private ObjectCodec mCodec;
+    private volatile Map<String, Object> mMap;
+
+    /**
+     * @param buffer the unknown fields, as a FIELD_NAME token followed by the value's tokens for each field (without
+     *               an enclosing START_OBJECT and END_OBJECT)
+     * @param codec  the codec used to bind the values, normally the ObjectMapper the object was read with
+     */
+    public LazyProperties(TokenBuffer buffer, ObjectCodec codec) {
+        if (buffer == null || codec == null) {
+            throw new IllegalArgumentException("buffer and codec cannot be null");
+        }
+        mBuffer = buffer;
+        mCodec = codec;
+    }
+
+    /**
+     * Returns true if the buffered fields have been bound to values
+     *
+     * @return true if the buffered fields have been bound to values, false if they are still buffered
+     */
+    public boolean isBound() {
+        return mMap != null;
+    }
+
+    private Map<String, Object> map() {
+        Map<String, Object> map = mMap;
+        if (map != null) {
+            return map;
+        }
+        synchronized (mLock) {
+            if (mMap == null) {
+                mMap = bind();
+                // The tokens aren't needed anymore
+                mBuffer = null;
+                mCodec = null;
+            }
+            return mMap;
+        }
+    }
+
+    private Map<String, Object> bind() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        try (JsonParser p = mBuffer.asParser(mCodec)) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                map.put(name, p.nextToken() == JsonToken.VALUE_NULL ? null : p.readValueAs(Object.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return map;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return map().entrySet();
+    }
+
+    @Override
+    public int size() {
+        return map().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map().containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return map().get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return map().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return map().remove(key);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.model;
+
+import com.fasterxml.jackson.annotation.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({
+        "locations"
+})
+public class LocationResults {
+
+    @JsonProperty("input")
+    private String input;
+    @JsonProperty("locations")
+    private List<Location> locations = null;
+    @JsonIgnore
+    private volatile Map<String, Object> additionalProperties;
+
+    /**
+     * If the status value is MISSINGINPUT or INVALIDINPUT, this field contains the name of the offending field.
+     *
+     * @return the name of the offending field, if the status value is MISSINGINPUT or INVALIDINPUT
+     */
+    @JsonProperty("input")
+    public String getInput() {
+        return input;
+    }
+
+    @JsonProperty("input")
+    public void setInput(String input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns all locations known to TransitFeeds.com that have feeds, or have descendants with feeds.  Each
+     * location's parent ID (Location.getParentId()) is also included in the list, except for top-level locations
+     * which have a parent ID of 0.
+     *
+     * @return all locations known to TransitFeeds.com
+     */
+    @JsonProperty("locations")
+    public List<Location> getLocations() {
+        return locations;
+    }
+
+    @JsonProperty("locations")
+    public void setLocations(List<Location> locations) {
+        this.locations = locations;
+    }
+
+    /**
+     * Returns the fields that don't map to a property of this class.  The map is only created the first time it's
+     * needed, under this object's lock, so objects shared between threads (e.g., by a cache) all see the same map.
+     *
+     * @return the fields that don't map to a property of this class
+     */
+    @JsonAnyGetter
+    public synchronized Map<String, Object> getAdditionalProperties() {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<String, Object>();
+        }
+        return this.additionalProperties;
+    }
+
+    @JsonAnySetter
+    public void setAdditionalProperty(String name, Object value) {
+        getAdditionalProperties().put(name, value);
+    }
+
+    /**
+     * Replaces all additional properties, e.g., with a {@link LazyProperties} that binds the unknown fields when
+     * they are first accessed
+     *
+     * @param additionalProperties the additional properties
+     */
+    @JsonIgnore
+    public synchronized void setAdditionalProperties(Map<String, Object> additionalProperties) {
+        this.additionalProperties = additionalProperties;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationResults{" +
+                "input='" + input + '\'' +
+                ", locations=" + locations +
+                ", additionalProperties=" +
+                (additionalProperties != null ? additionalProperties : Collections.emptyMap()) +
+                '}';
+    }
+}
@@ -17,6 +17,7 @@ package edu.usf.cutr.transitfeeds.model;
 
 import com.fasterxml.jackson.annotation.*;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,7 +45,7 @@ public class Results {
     @JsonProperty("feeds")
     private List<Feed> feeds = null;
     @JsonIgnore
-    private Map<String, Object> additionalProperties = new HashMap<String, Object>();
+    private volatile Map<String, Object> additionalProperties;
 
     /**
      * If the status value is MISSINGINPUT or INVALIDINPUT, this field contains the name of the offending field.
@@ -136,14 +137,34 @@ public class Results {
         this.feeds = feeds;
     }
 
+    /**
+     * Returns the fields that don't map to a property of this class.  The map is only created the first time it's
+     * needed, under this object's lock, so objects shared between threads (e.g., by a cache) all see the same map.
+     *
+     * @return the fields that don't map to a property of this class
+     */
     @JsonAnyGetter
-    public Map<String, Object> getAdditionalProperties() {
+    public synchronized Map<String, Object> getAdditionalProperties() {
+        if (this.additionalProperties == null) {
+            this.additionalProperties = new HashMap<String, Object>();
+        }
         return this.additionalProperties;
     }
 
     @JsonAnySetter
     public void setAdditionalProperty(String name, Object value) {
-        this.additionalProperties.put(name, value);
+        getAdditionalProperties().put(name, value);
+    }
+
+    /**
+     * Replaces all additional properties, e.g., with a {@link LazyProperties} that binds the unknown fields when
+     * they are first accessed
+     *
+     * @param additionalProperties the additional properties
+     */
+    @JsonIgnore
+    public synchronized void setAdditionalProperties(Map<String, Object> additionalProperties) {
+        this.additionalProperties = additionalProperties;
     }
 
     @Override
@@ -155,7 +176,8 @@ public class Results {
                 ", page=" + page +
                 ", numPages=" + numPages +
                 ", feeds=" + feeds +
-                ", additionalProperties=" + additionalProperties +
+                ", additionalProperties=" +
+                (additionalProperties != null ? additionalProperties : Collections.emptyMap()) +
                 '}';
     }
 }
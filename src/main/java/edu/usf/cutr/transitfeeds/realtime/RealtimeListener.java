@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.realtime;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+
+import java.io.IOException;
+
+/**
+ * Receives the data polled from GTFS-realtime feeds by {@link RealtimePoller}.  Methods are called on the poller's
+ * worker threads, possibly concurrently for different feeds, but never concurrently for the same feed.
+ */
+public interface RealtimeListener {
+
+    /**
+     * Called when new content has been downloaded from a feed.  Content that hasn't changed since the previous poll is
+     * not delivered again.
+     *
+     * @param feed the feed that was polled
+     * @param data the raw content (e.g., a GTFS-realtime protocol buffer)
+     */
+    void onData(Feed feed, byte[] data);
+
+    /**
+     * Called when polling a feed fails.  The feed will be polled again after backing off.
+     *
+     * @param feed  the feed that was polled
+     * @param error the reason the poll failed
+     */
+    default void onError(Feed feed, IOException error) {
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.realtime;
+
+import edu.usf.cutr.transitfeeds.GetFeedsResponse;
+import edu.usf.cutr.transitfeeds.RequestExecutors;
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.http.UrlConnectionTransport;
+import edu.usf.cutr.transitfeeds.model.Feed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Polls the download URLs of GTFS-realtime feeds, each on its own interval, and delivers new content to a
+ * {@link RealtimeListener}.
+ * <p>
+ * All feeds share a single scheduler thread, which hands due polls to a worker executor, so thousands of feeds can be
+ * polled without a thread per feed.  When a feed's content hasn't changed (detected via a 304 response to
+ * If-Modified-Since/If-None-Match, or an identical checksum) or a poll fails, the feed's interval is doubled, up to
+ * the maximum interval.  As soon as new content arrives, the interval drops back to the base interval.  At most
+ * maxConnectionsPerHost polls run against the same host at once - polls that would exceed the limit wait in a
+ * first-come, first-served queue for that host.
+ */
+public class RealtimePoller implements Closeable {
+
+    /**
+     * Type of GTFS-realtime feeds, as returned by Feed.getType()
+     */
+    public static final String TYPE_GTFS_REALTIME = "gtfsrealtime";
+
+    private final HttpTransport mTransport;
+    private final Executor mWorkers;
+    private final RealtimeListener mListener;
+    private final long mIntervalMillis;
+    private final long mMaxIntervalMillis;
+    private final int mMaxConnectionsPerHost;
+    private final ScheduledExecutorService mScheduler;
+    private final ConcurrentMap<String, Endpoint> mEndpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Host> mHosts = new ConcurrentHashMap<>();
+
+    private RealtimePoller(Builder builder) {
+        mTransport = builder.mTransport != null ? builder.mTransport : new UrlConnectionTransport.Builder().build();
+        mWorkers = builder.mExecutor != null ? builder.mExecutor : RequestExecutors.defaultExecutor();
+        mListener = builder.mListener;
+        mIntervalMillis = builder.mIntervalMillis;
+        mMaxIntervalMillis = Math.max(builder.mMaxIntervalMillis, builder.mIntervalMillis);
+        mMaxConnectionsPerHost = builder.mMaxConnectionsPerHost;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "transitfeeds-realtime-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Returns the GTFS-realtime feeds with a download URL from the given response
+     *
+     * @param response a response from the GetFeeds API
+     * @return the GTFS-realtime feeds with a download URL from the given response
+     */
+    public static List<Feed> realtimeFeeds(GetFeedsResponse response) {
+        List<Feed> feeds = new ArrayList<>();
+        if (response.getResults() != null && response.getResults().getFeeds() != null) {
+            for (Feed feed : response.getResults().getFeeds()) {
+                if (TYPE_GTFS_REALTIME.equals(feed.getType()) && feed.getUrls() != null
+                        && feed.getUrls().getDownloadUrl() != null) {
+                    feeds.add(feed);
+                }
+            }
+        }
+        return feeds;
+    }
+
+    /**
+     * Starts polling the given feeds.  Feeds without a download URL, or that are already being polled, are ignored.
+     * The first poll of each feed happens at a random time within the base interval, so feeds added together don't
+     * all poll at once.
+     *
+     * @param feeds the feeds to poll
+     */
+    public void addAll(Collection<Feed> feeds) {
+        for (Feed feed : feeds) {
+            add(feed);
+        }
+    }
+
+    /**
+     * Starts polling the given feed
+     *
+     * @param feed the feed to poll
+     * @return true if the feed is now being polled, false if it doesn't have a valid download URL or is already
+     * being polled
+     */
+    public boolean add(Feed feed) {
+        if (feed.getId() == null || feed.getUrls() == null || feed.getUrls().getDownloadUrl() == null) {
+            return false;
+        }
+        URL url;
+        try {
+            url = new URL(feed.getUrls().getDownloadUrl());
+        } catch (MalformedURLException e) {
+            return false;
+        }
+        Endpoint endpoint = new Endpoint(feed, url);
+        if (mEndpoints.putIfAbsent(feed.getId(), endpoint) != null) {
+            return false;
+        }
+        schedule(endpoint, ThreadLocalRandom.current().nextLong(mIntervalMillis + 1));
+        return true;
+    }
+
+    /**
+     * Stops polling the feed with the given ID.  A poll already in progress is allowed to finish, but its content
+     * is not delivered.
+     *
+     * @param feedId the ID of the feed
+     * @return true if the feed was being polled, false if it was not
+     */
+    public boolean remove(String feedId) {
+        Endpoint endpoint = mEndpoints.remove(feedId);
+        if (endpoint == null) {
+            return false;
+        }
+        endpoint.mRemoved = true;
+        return true;
+    }
+
+    /**
+     * Returns the number of feeds being polled
+     *
+     * @return the number of feeds being polled
+     */
+    public int size() {
+        return mEndpoints.size();
+    }
+
+    /**
+     * Returns the current polling interval of the feed with the given ID, which grows while the feed's content
+     * doesn't change
+     *
+     * @param feedId the ID of the feed
+     * @return the current polling interval of the feed in milliseconds, or -1 if the feed isn't being polled
+     */
+    public long getCurrentIntervalMillis(String feedId) {
+        Endpoint endpoint = mEndpoints.get(feedId);
+        return endpoint != null ? endpoint.mIntervalMillis : -1;
+    }
+
+    /**
+     * Stops polling all feeds.  Polls already in progress are allowed to finish, but their content is not delivered.
+     */
+    @Override
+    public void close() {
+        for (Endpoint endpoint : mEndpoints.values()) {
+            endpoint.mRemoved = true;
+        }
+        mEndpoints.clear();
+        mScheduler.shutdownNow();
+    }
+
+    private void schedule(final Endpoint endpoint, long delayMillis) {
+        if (endpoint.mRemoved) {
+            return;
+        }
+        try {
+            mScheduler.schedule(() -> dispatch(endpoint), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Poller has been closed
+        }
+    }
+
+    /**
+     * Runs on the scheduler thread - hands the poll to a worker if the host has capacity, otherwise queues it until a
+     * poll of the same host finishes
+     */
+    private void dispatch(Endpoint endpoint) {
+        if (endpoint.mRemoved) {
+            return;
+        }
+        Host host = host(endpoint.mUrl);
+        synchronized (host) {
+            if (host.mActive >= mMaxConnectionsPerHost) {
+                host.mWaiting.add(endpoint);
+                return;
+            }
+            host.mActive++;
+        }
+        submit(endpoint, host);
+    }
+
+    private void submit(final Endpoint endpoint, final Host host) {
+        try {
+            mWorkers.execute(() -> {
+                try {
+                    poll(endpoint);
+                } finally {
+                    release(host);
+                    schedule(endpoint, endpoint.mIntervalMillis);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(host);
+            schedule(endpoint, endpoint.mIntervalMillis);
+        }
+    }
+
+    /**
+     * Hands the host's connection to the longest-waiting poll, if any
+     */
+    private void release(Host host) {
+        Endpoint next;
+        synchronized (host) {
+            do {
+                next = host.mWaiting.poll();
+            } while (next != null && next.mRemoved);
+            if (next == null) {
+                host.mActive--;
+            }
+        }
+        if (next != null) {
+            submit(next, host);
+        }
+    }
+
+    private Host host(URL url) {
+        String key = url.getHost() + ":" + url.getPort();
+        Host host = mHosts.get(key);
+        if (host == null) {
+            host = new Host();
+            Host existing = mHosts.putIfAbsent(key, host);
+            if (existing != null) {
+                host = existing;
+            }
+        }
+        return host;
+    }
+
+    private void poll(Endpoint endpoint) {
+        HttpRequest request = new HttpRequest(endpoint.mUrl);
+        if (endpoint.mLastModified != null) {
+            request.setHeader("If-Modified-Since", endpoint.mLastModified);
+        }
+        if (endpoint.mEtag != null) {
+            request.setHeader("If-None-Match", endpoint.mEtag);
+        }
+        byte[] data;
+        try (HttpResponse response = mTransport.execute(request)) {
+            int status = response.getStatusCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                backOff(endpoint);
+                return;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                // E.g., a 204 or a redirect that wasn't followed - the body isn't a feed snapshot
+                throw new HttpResponseException(status, endpoint.mUrl);
+            }
+            data = readFully(response.getBody());
+            endpoint.mLastModified = response.getHeader("Last-Modified");
+            endpoint.mEtag = response.getHeader("ETag");
+        } catch (IOException e) {
+            backOff(endpoint);
+            if (!endpoint.mRemoved) {
+                mListener.onError(endpoint.mFeed, e);
+            }
+            return;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        long checksum = crc.getValue() ^ ((long) data.length << 32);
+        if (endpoint.mHasChecksum && checksum == endpoint.mChecksum) {
+            backOff(endpoint);
+            return;
+        }
+        endpoint.mChecksum = checksum;
+        endpoint.mHasChecksum = true;
+        endpoint.mIntervalMillis = mIntervalMillis;
+        if (!endpoint.mRemoved) {
+            mListener.onData(endpoint.mFeed, data);
+        }
+    }
+
+    private void backOff(Endpoint endpoint) {
+        endpoint.mIntervalMillis = Math.min(endpoint.mIntervalMillis * 2, mMaxIntervalMillis);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Polling state for a single feed.  Only one poll per endpoint is scheduled or running at a time.
+     */
+    private class Endpoint {
+        final Feed mFeed;
+        final URL mUrl;
+        volatile long mIntervalMillis = RealtimePoller.this.mIntervalMillis;
+        volatile boolean mRemoved;
+        String mLastModified;
+        String mEtag;
+        long mChecksum;
+        boolean mHasChecksum;
+
+        Endpoint(Feed feed, URL url) {
+            mFeed = feed;
+            mUrl = url;
+        }
+    }
+
+    /**
+     * Polls in progress against a host, and polls waiting for the host to have capacity.  Guarded by its own lock.
+     */
+    private static class Host {
+        int mActive;
+        final ArrayDeque<Endpoint> mWaiting = new ArrayDeque<>();
+    }
+
+    public static class Builder {
+        private final RealtimeListener mListener;
+        private HttpTransport mTransport;
+        private Executor mExecutor;
+        private long mIntervalMillis = TimeUnit.SECONDS.toMillis(15);
+        private long mMaxIntervalMillis = TimeUnit.MINUTES.toMillis(5);
+        private int mMaxConnectionsPerHost = 4;
+
+        /**
+         * A Builder for a poller that delivers content to the given listener
+         *
+         * @param listener the listener that receives polled content
+         */
+        public Builder(RealtimeListener listener) {
+            mListener = listener;
+        }
+
+        /**
+         * Sets the transport used for polling.  By default a new {@link UrlConnectionTransport} is used.
+         *
+         * @param transport the transport used for polling
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setTransport(HttpTransport transport) {
+            mTransport = transport;
+            return this;
+        }
+
+        /**
+         * Sets the executor that runs polls and listener callbacks.  By default
+         * {@link RequestExecutors#defaultExecutor()} is used.
+         *
+         * @param executor the executor that runs polls and listener callbacks
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setExecutor(Executor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the base polling interval, used while a feed's content is changing.  Default is 15 seconds.
+         *
+         * @param interval the base polling interval
+         * @param unit     the unit of interval
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setInterval(long interval, TimeUnit unit) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be > 0");
+            }
+            mIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets the maximum polling interval that a feed backs off to while its content isn't changing or polls are
+         * failing.  Default is 5 minutes.
+         *
+         * @param maxInterval the maximum polling interval
+         * @param unit        the unit of maxInterval
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxInterval(long maxInterval, TimeUnit unit) {
+            if (maxInterval <= 0) {
+                throw new IllegalArgumentException("maxInterval must be > 0");
+            }
+            mMaxIntervalMillis = unit.toMillis(maxInterval);
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of polls in progress at once against the same host.  Default is 4.
+         *
+         * @param maxConnectionsPerHost the maximum number of polls in progress at once against the same host
+         * @return this same Builder so Builder calls can be chained
+         */
+        public Builder setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+            if (maxConnectionsPerHost < 1) {
+                throw new IllegalArgumentException("maxConnectionsPerHost must be >= 1");
+            }
+            mMaxConnectionsPerHost = maxConnectionsPerHost;
+            return this;
+        }
+
+        /**
+         * Builds the RealtimePoller using the specified parameters.  Polling starts when feeds are added.
+         *
+         * @return the RealtimePoller using the specified parameters
+         */
+        public RealtimePoller build() {
+            if (mListener == null) {
+                throw new IllegalArgumentException("listener cannot be null");
+            }
+            return new RealtimePoller(this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Tests parsing responses from pooled buffers with GetFeedsRequest.Builder.setBufferPool()
+ */
+public class BufferPoolTest extends TestCase {
+
+    private static final String FIXTURE = "get-feeds.json";
+
+    @Test
+    public void testBuffersAreReused() throws IOException {
+        String expected = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .build().call().toString();
+        BufferPool pool = new BufferPool.Builder().build();
+        GetFeedsRequest request = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .setBufferPool(pool)
+                .build();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected, request.call().toString());
+        }
+        assertEquals(1, pool.getAllocatedCount());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testGrowingBuffers() throws IOException {
+        String expected = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .build().call().toString();
+        int length = StubServer.readResource(FIXTURE).length;
+
+        // Buffers grow to fit the response, and the grown buffer is kept if it isn't too large
+        BufferPool pool = new BufferPool.Builder().setInitialSize(64).build();
+        TransitFeedsClient client = new TransitFeedsClient.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .setBufferPool(pool)
+                .build();
+        assertEquals(expected, client.newGetFeedsRequest().build().call().toString());
+        long allocated = pool.getAllocatedCount();
+        assertTrue(allocated > 1);
+        assertEquals(expected, client.newGetFeedsRequest().build().call().toString());
+        assertEquals(allocated, pool.getAllocatedCount());
+
+        // Buffers that grew past the maximum retained size are discarded
+        pool = new BufferPool.Builder().setInitialSize(64).setMaxRetainedSize(length / 2).setMaxBuffers(1).build();
+        GetFeedsRequest request = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .setBufferPool(pool)
+                .build();
+        assertEquals(expected, request.call().toString());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        BufferPool pool = new BufferPool.Builder().setInitialSize(16).setMaxBuffers(2).build();
+        byte[] a = pool.acquire();
+        byte[] b = pool.acquire();
+        byte[] c = pool.acquire();
+        assertEquals(3, pool.getAllocatedCount());
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+        assertEquals(2, pool.size());
+
+        try {
+            new BufferPool.Builder().setMaxBuffers(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testBufferIsReleasedOnError() throws IOException {
+        BufferPool pool = new BufferPool.Builder().build();
+        byte[] invalid = "{\"status\":\"OK\",\"results\":{\"feeds\":[{".getBytes("UTF-8");
+        GetFeedsRequest request = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(r -> new HttpResponse(200, null, new ByteArrayInputStream(invalid)))
+                .setBufferPool(pool)
+                .build();
+        try {
+            request.call();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(1, pool.size());
+    }
+}
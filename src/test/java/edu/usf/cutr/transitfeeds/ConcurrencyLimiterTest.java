@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for ConcurrencyLimiter
+ */
+public class ConcurrencyLimiterTest extends TestCase {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testAdditiveIncrease() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .setInitialLimit(2)
+                .setLimitRange(1, 4)
+                .build();
+        // Each round runs the limit's worth of requests concurrently, which should raise the limit by about 1
+        for (int round = 0; round < 10; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                limiter.acquire();
+            }
+            for (int i = 0; i < limit; i++) {
+                limiter.release(10 * MS, false);
+            }
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testBackOffOnDropsAndLatency() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .setInitialLimit(10)
+                .setBackoffRatio(0.5)
+                .build();
+        limiter.acquire();
+        limiter.release(10 * MS, true);
+        assertEquals(5, limiter.getLimit());
+
+        limiter.acquire();
+        limiter.release(10 * MS, false);
+        assertEquals(5, limiter.getLimit());
+
+        // Much slower than the fastest request seen so far
+        limiter.acquire();
+        limiter.release(100 * MS, false);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(10 * MS, true);
+        }
+        assertEquals(ConcurrencyLimiter.DEFAULT_MIN_LIMIT, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitsConcurrentRequests() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final byte[] body = StubServer.readResource("get-feeds.json");
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .setInitialLimit(3)
+                .setLimitRange(1, 3)
+                .build();
+        GetFeedsRequest request = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(r -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                    return new HttpResponse(200, null, new ByteArrayInputStream(body));
+                })
+                .setConcurrencyLimiter(limiter)
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<CompletableFuture<GetFeedsResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                futures.add(request.callAsync(executor));
+            }
+            for (CompletableFuture<GetFeedsResponse> future : futures) {
+                assertEquals("OK", future.get(10, TimeUnit.SECONDS).getStatus());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(3, maxActive.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testServerErrorsBackOff() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .setInitialLimit(8)
+                .setBackoffRatio(0.5)
+                .build();
+        GetFeedsRequest.Builder builder = new GetFeedsRequest.Builder("dummyApiKey").setConcurrencyLimiter(limiter);
+
+        try {
+            builder.setTransport(r -> new HttpResponse(404, null, null)).build().call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            // A client error doesn't mean the server is overloaded
+            assertEquals(8, limiter.getLimit());
+        }
+        try {
+            builder.setTransport(r -> new HttpResponse(503, null, null)).build().call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            assertEquals(4, limiter.getLimit());
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testOnlyOverloadBacksOff() throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter.Builder()
+                .setInitialLimit(8)
+                .setBackoffRatio(0.5)
+                .build();
+        GetFeedsRequest.Builder builder = new GetFeedsRequest.Builder("dummyApiKey").setConcurrencyLimiter(limiter);
+
+        try {
+            builder.setTransport(r -> new HttpResponse(200, null,
+                    new ByteArrayInputStream("{\"status\": ".getBytes(StandardCharsets.UTF_8)))).build().call();
+            fail("Expected JsonProcessingException");
+        } catch (JsonProcessingException e) {
+            // A malformed body is a problem with the response, not a sign of overload
+            assertEquals(8, limiter.getLimit());
+        }
+        try {
+            builder.setTransport(r -> {
+                throw new ConnectException("Connection refused");
+            }).build().call();
+            fail("Expected ConnectException");
+        } catch (ConnectException e) {
+            assertEquals(4, limiter.getLimit());
+        }
+        try {
+            builder.setTransport(r -> {
+                throw new SocketTimeoutException("Read timed out");
+            }).build().call();
+            fail("Expected SocketTimeoutException");
+        } catch (SocketTimeoutException e) {
+            assertEquals(2, limiter.getLimit());
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+}
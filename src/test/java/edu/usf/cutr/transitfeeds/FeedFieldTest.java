@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Tests binding only selected Feed fields with GetFeedsRequest.Builder.setFields()
+ */
+public class FeedFieldTest extends TestCase {
+
+    private static final String FIXTURE = "get-feeds-realtime-url-array.json";
+
+    @Test
+    public void testIdAndLatest() throws IOException {
+        List<Feed> all = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .build().call().getResults().getFeeds();
+        GetFeedsResponse response = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .setFields(EnumSet.of(FeedField.ID, FeedField.LATEST))
+                .build().call();
+
+        // The envelope is always bound
+        assertEquals("OK", response.getStatus());
+        assertNotNull(response.getResults().getTotal());
+        List<Feed> feeds = response.getResults().getFeeds();
+        assertEquals(all.size(), feeds.size());
+        for (int i = 0; i < feeds.size(); i++) {
+            Feed feed = feeds.get(i);
+            assertEquals(all.get(i).getId(), feed.getId());
+            if (all.get(i).getLatest() == null) {
+                assertNull(feed.getLatest());
+            } else {
+                assertEquals(all.get(i).getLatest().getTimestamp(), feed.getLatest().getTimestamp());
+            }
+            assertNull(feed.getType());
+            assertNull(feed.getTitle());
+            assertNull(feed.getLocation());
+            assertNull(feed.getUrls());
+            assertTrue(feed.getAdditionalProperties().isEmpty());
+        }
+    }
+
+    @Test
+    public void testUnknownAndInvalidFieldsAreSkipped() throws IOException {
+        // Skipped fields aren't bound, so they can't fail to bind
+        String json = "{\"status\":\"OK\",\"results\":{\"feeds\":[{\"id\":\"a/1\",\"t\":{\"x\":[1]}," +
+                "\"u\":[\"http://example.com\"],\"new\":{\"a\":{\"b\":[]}},\"l\":{\"id\":7,\"n\":\"Tampa\"}}]}}";
+        byte[] body = json.getBytes("UTF-8");
+        HttpTransport transport = request -> new HttpResponse(200, null, new ByteArrayInputStream(body));
+        GetFeedsResponse response = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(transport)
+                .setFields(EnumSet.of(FeedField.ID, FeedField.LOCATION))
+                .build().call();
+        Feed feed = response.getResults().getFeeds().get(0);
+        assertEquals("a/1", feed.getId());
+        assertEquals(Integer.valueOf(7), feed.getLocation().getId());
+        assertEquals("Tampa", feed.getLocation().getTitle());
+        assertNull(feed.getTitle());
+        assertNull(feed.getUrls());
+        assertTrue(feed.getAdditionalProperties().isEmpty());
+
+        // No fields - only the number of feeds is of interest
+        response = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(transport)
+                .setFields(EnumSet.noneOf(FeedField.class))
+                .build().call();
+        assertEquals(1, response.getResults().getFeeds().size());
+        assertNull(response.getResults().getFeeds().get(0).getId());
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        try (FeedIterator feeds = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(FIXTURE))
+                .setFields(EnumSet.of(FeedField.ID))
+                .build().callStreaming()) {
+            assertTrue(feeds.hasNext());
+            while (feeds.hasNext()) {
+                Feed feed = feeds.next();
+                assertNotNull(feed.getId());
+                assertNull(feed.getTitle());
+            }
+        }
+    }
+
+    @Test
+    public void testCacheKeepsProjectionsApart() throws IOException {
+        GetFeedsCache cache = new GetFeedsCache.Builder().build();
+        FixtureTransport transport = new FixtureTransport(FIXTURE);
+        GetFeedsResponse projected = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(transport)
+                .setCache(cache)
+                .setFields(EnumSet.of(FeedField.ID))
+                .build().call();
+        GetFeedsResponse full = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(transport)
+                .setCache(cache)
+                .build().call();
+        assertEquals(2, transport.getRequestCount());
+        assertNull(projected.getResults().getFeeds().get(0).getTitle());
+        assertNotNull(full.getResults().getFeeds().get(0).getTitle());
+    }
+}
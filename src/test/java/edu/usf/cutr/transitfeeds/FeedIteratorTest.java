@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for GetFeedsRequest.callStreaming() and FeedIterator
+ */
+public class FeedIteratorTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+
+    @Test
+    public void testMatchesFullParse() throws IOException {
+        for (String fixture : new String[]{"get-feeds.json", "get-feeds-realtime.json",
+                "get-feeds-realtime-url-array.json"}) {
+            GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                    .setTransport(new FixtureTransport(fixture))
+                    .build();
+            GetFeedsResponse expected = request.call();
+
+            List<Feed> feeds = new ArrayList<>();
+            try (FeedIterator iterator = request.callStreaming()) {
+                // Envelope is available before any feeds are read
+                GetFeedsResponse envelope = iterator.getResponse();
+                assertEquals(expected.getStatus(), envelope.getStatus());
+                assertEquals(expected.getTimestamp(), envelope.getTimestamp());
+                assertEquals(expected.getResults().getTotal(), envelope.getResults().getTotal());
+                assertEquals(expected.getResults().getNumPages(), envelope.getResults().getNumPages());
+                assertNull(envelope.getResults().getFeeds());
+
+                while (iterator.hasNext()) {
+                    feeds.add(iterator.next());
+                }
+            }
+
+            assertEquals(fixture, expected.getResults().getFeeds().toString(), feeds.toString());
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(new FixtureTransport("get-feeds.json"))
+                .build();
+        List<String> ids;
+        try (FeedIterator iterator = request.callStreaming()) {
+            ids = iterator.stream()
+                    .filter(feed -> "gtfsrealtime".equals(feed.getType()))
+                    .map(Feed::getId)
+                    .collect(Collectors.toList());
+        }
+        assertEquals("citymapper/895", ids.get(0));
+    }
+
+    @Test
+    public void testEnvelopeAfterFeeds() throws IOException {
+        final String json = "{\"results\":{\"feeds\":[{\"id\":\"a/1\"},{\"id\":\"a/2\"}],\"total\":2,\"numPages\":1}," +
+                "\"status\":\"OK\",\"extra\":[1,2]}";
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(r -> new HttpResponse(200, null,
+                        new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))))
+                .build();
+
+        FeedIterator iterator = request.callStreaming();
+        assertNull(iterator.getResponse().getStatus());
+        assertEquals("a/1", iterator.next().getId());
+        assertEquals("a/2", iterator.next().getId());
+        assertFalse(iterator.hasNext());
+
+        GetFeedsResponse envelope = iterator.getResponse();
+        assertEquals("OK", envelope.getStatus());
+        assertEquals(Integer.valueOf(2), envelope.getResults().getTotal());
+        assertEquals(Integer.valueOf(1), envelope.getResults().getNumPages());
+        assertNotNull(envelope.getAdditionalProperties().get("extra"));
+    }
+}
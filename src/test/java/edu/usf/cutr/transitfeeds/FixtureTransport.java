@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An HttpTransport for tests that answers every request with a test resource, without touching the network
+ */
+public class FixtureTransport implements HttpTransport {
+
+    private final byte[] mBody;
+    private final long mDelayMs;
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    public FixtureTransport(String resource) throws IOException {
+        this(resource, 0);
+    }
+
+    /**
+     * @param resource the test resource returned for every request
+     * @param delayMs  the time to block before responding, to simulate network latency
+     */
+    public FixtureTransport(String resource, long delayMs) throws IOException {
+        mBody = StubServer.readResource(resource);
+        mDelayMs = delayMs;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        mRequestCount.incrementAndGet();
+        if (mDelayMs > 0) {
+            try {
+                Thread.sleep(mDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+        return new HttpResponse(200, null, new ByteArrayInputStream(mBody));
+    }
+
+    /**
+     * Returns the number of requests executed by this transport
+     */
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for GetFeedsRequest.callAsync()
+ */
+public class GetFeedsAsyncTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+
+    @Test
+    public void testCallAsync() throws Exception {
+        FixtureTransport transport = new FixtureTransport("get-feeds.json", 200);
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(transport)
+                .build();
+
+        // All requests should be in flight at once rather than running one after the other
+        long start = System.nanoTime();
+        List<CompletableFuture<GetFeedsResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(request.callAsync());
+        }
+        for (CompletableFuture<GetFeedsResponse> future : futures) {
+            assertEquals(Integer.valueOf(858), future.get(10, TimeUnit.SECONDS).getResults().getTotal());
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+        assertEquals(100, transport.getRequestCount());
+    }
+
+    @Test
+    public void testCallAsyncWithExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "custom-executor"));
+        try {
+            final List<String> threadNames = new ArrayList<>();
+            HttpTransport transport = new HttpTransport() {
+                FixtureTransport mDelegate = new FixtureTransport("get-feeds-realtime.json");
+
+                @Override
+                public HttpResponse execute(HttpRequest request) throws IOException {
+                    threadNames.add(Thread.currentThread().getName());
+                    return mDelegate.execute(request);
+                }
+            };
+            GetFeedsResponse response = new GetFeedsRequest.Builder(API_KEY)
+                    .setTransport(transport)
+                    .setExecutor(executor)
+                    .build()
+                    .callAsync()
+                    .get(10, TimeUnit.SECONDS);
+
+            assertEquals(Integer.valueOf(134), response.getResults().getTotal());
+            assertEquals("custom-executor", threadNames.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallAsyncFailure() throws Exception {
+        CompletableFuture<GetFeedsResponse> future = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(request -> {
+                    throw new IOException("Connection refused");
+                })
+                .build()
+                .callAsync();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadExecutor() throws Exception {
+        if (!RequestExecutors.isVirtualThreadsSupported()) {
+            try {
+                RequestExecutors.virtualThreadExecutor();
+                fail("Expected UnsupportedOperationException");
+            } catch (UnsupportedOperationException e) {
+                // Expected on JDK < 21
+            }
+            return;
+        }
+        GetFeedsResponse response = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(new FixtureTransport("get-feeds.json"))
+                .setExecutor(RequestExecutors.virtualThreadExecutor())
+                .build()
+                .callAsync()
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("OK", response.getStatus());
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for GetFeedsCache
+ */
+public class GetFeedsCacheTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+    private static final String ETAG = "\"v1\"";
+
+    private StubServer mServer;
+    private final AtomicInteger mFullResponses = new AtomicInteger();
+    private final AtomicInteger mNotModifiedResponses = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws IOException {
+        mServer = new StubServer();
+        mServer.handle("/getFeeds", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    mNotModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                mFullResponses.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                StubServer.sendBody(exchange, 200, StubServer.readResource("get-feeds.json"));
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() {
+        mServer.stop();
+    }
+
+    private GetFeedsRequest request(GetFeedsCache cache, int page) {
+        return new GetFeedsRequest.Builder(API_KEY)
+                .setApiEndpoint(mServer.url("/getFeeds"))
+                .setCache(cache)
+                .setPage(page)
+                .build();
+    }
+
+    @Test
+    public void testRevalidation() throws IOException {
+        GetFeedsCache cache = new GetFeedsCache.Builder().build();
+
+        GetFeedsResponse first = request(cache, 1).call();
+        GetFeedsResponse second = request(cache, 1).call();
+
+        assertEquals(Integer.valueOf(858), first.getResults().getTotal());
+        // A 304 returns the previously parsed response
+        assertSame(first, second);
+        assertEquals(1, mFullResponses.get());
+        assertEquals(1, mNotModifiedResponses.get());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getRevalidatedCount());
+    }
+
+    @Test
+    public void testTtl() throws IOException {
+        GetFeedsCache cache = new GetFeedsCache.Builder().setTtl(1, TimeUnit.HOURS).build();
+
+        GetFeedsResponse first = request(cache, 1).call();
+        GetFeedsResponse second = request(cache, 1).call();
+
+        assertSame(first, second);
+        assertEquals(1, mFullResponses.get());
+        assertEquals(0, mNotModifiedResponses.get());
+    }
+
+    @Test
+    public void testLruEviction() throws IOException {
+        GetFeedsCache cache = new GetFeedsCache.Builder().setMaxEntries(2).setTtl(1, TimeUnit.HOURS).build();
+
+        request(cache, 1).call();
+        request(cache, 2).call();
+        request(cache, 1).call();
+        request(cache, 3).call();
+        assertEquals(2, cache.size());
+
+        // Page 2 was least recently used, so it should have been evicted
+        request(cache, 2).call();
+        assertEquals(4, mFullResponses.get());
+        request(cache, 3).call();
+        assertEquals(4, mFullResponses.get());
+    }
+
+    @Test
+    public void testDiskTier() throws IOException {
+        File directory = Files.createTempDirectory("getfeeds-cache").toFile();
+        try {
+            GetFeedsResponse first = request(new GetFeedsCache.Builder().setDirectory(directory).build(), 1).call();
+
+            // A new cache (e.g., after a restart) should revalidate the response persisted on disk
+            GetFeedsCache restarted = new GetFeedsCache.Builder().setDirectory(directory).build();
+            GetFeedsResponse second = request(restarted, 1).call();
+
+            assertEquals(1, mFullResponses.get());
+            assertEquals(1, mNotModifiedResponses.get());
+            assertEquals(first.toString(), second.toString());
+            for (File file : directory.listFiles()) {
+                assertFalse(file.getName().contains(API_KEY));
+            }
+            restarted.clear();
+            assertEquals(0, directory.listFiles().length);
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testDiskWriteFailureKeepsMemoryTier() throws IOException {
+        File directory = Files.createTempDirectory("getfeeds-cache").toFile();
+        GetFeedsCache cache = new GetFeedsCache.Builder().setDirectory(directory).build();
+        // Writes to the missing directory fail, which should only skip the disk tier
+        assertTrue(directory.delete());
+
+        GetFeedsResponse first = request(cache, 1).call();
+        GetFeedsResponse second = request(cache, 1).call();
+
+        assertEquals("OK", first.getStatus());
+        assertSame(first, second);
+        assertEquals(1, mFullResponses.get());
+    }
+
+    @Test
+    public void testCorruptBodyLengthIsAMiss() throws IOException {
+        File directory = Files.createTempDirectory("getfeeds-cache").toFile();
+        try {
+            request(new GetFeedsCache.Builder().setDirectory(directory).build(), 1).call();
+            File[] files = directory.listFiles();
+            assertEquals(1, files.length);
+
+            for (int length : new int[]{-1, Integer.MAX_VALUE}) {
+                // Rewrite the entry with the same header but a corrupt body length
+                DataInputStream in = new DataInputStream(new FileInputStream(files[0]));
+                ByteArrayOutputStream header = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(header)) {
+                    out.writeInt(in.readInt());
+                    out.writeUTF(in.readUTF());
+                    out.writeUTF(in.readUTF());
+                    out.writeUTF(in.readUTF());
+                    out.writeLong(in.readLong());
+                    out.writeInt(length);
+                } finally {
+                    in.close();
+                }
+                Files.write(files[0].toPath(), header.toByteArray());
+
+                GetFeedsResponse response = request(new GetFeedsCache.Builder().setDirectory(directory).build(), 1)
+                        .call();
+                assertEquals("OK", response.getStatus());
+            }
+            // Each corrupt entry was treated as a miss and downloaded again
+            assertEquals(3, mFullResponses.get());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
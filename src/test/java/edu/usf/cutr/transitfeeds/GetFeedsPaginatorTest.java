@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for GetFeedsPaginator
+ */
+public class GetFeedsPaginatorTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+
+    @Test
+    public void testFetchAll() throws IOException {
+        PagedTransport transport = new PagedTransport(43, 5, -1);
+        List<Feed> feeds = new GetFeedsPaginator(new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(transport)
+                .setLimit(5), 3)
+                .fetchAll();
+
+        assertEquals(43, feeds.size());
+        for (int i = 0; i < feeds.size(); i++) {
+            assertEquals("feed/" + i, feeds.get(i).getId());
+        }
+        assertEquals(9, transport.mRequests.get());
+        assertTrue(transport.mMaxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testSinglePage() throws IOException {
+        PagedTransport transport = new PagedTransport(3, 10, -1);
+        List<Feed> feeds = new GetFeedsPaginator(new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(transport))
+                .fetchAll();
+
+        assertEquals(3, feeds.size());
+        assertEquals(1, transport.mRequests.get());
+    }
+
+    @Test
+    public void testTotalChanged() throws IOException {
+        PagedTransport transport = new PagedTransport(100, 5, 4);
+        try {
+            new GetFeedsPaginator(new GetFeedsRequest.Builder(API_KEY)
+                    .setTransport(transport), 1)
+                    .fetchAll();
+            fail("Expected TotalChangedException");
+        } catch (TotalChangedException e) {
+            assertEquals(100, e.getExpectedTotal());
+            assertEquals(101, e.getActualTotal());
+            assertEquals(4, e.getPage());
+        }
+        // With a parallelism of 1, no pages should be requested after the mismatch
+        assertEquals(4, transport.mRequests.get());
+    }
+
+    /**
+     * Generates synthetic pages based on the page parameter in the request URL
+     */
+    private static class PagedTransport implements HttpTransport {
+
+        private static final Pattern PAGE = Pattern.compile("[?&]page=(\\d+)");
+
+        private final int mTotal;
+        private final int mLimit;
+        private final int mChangedPage;
+        private final AtomicInteger mRequests = new AtomicInteger();
+        private final AtomicInteger mInFlight = new AtomicInteger();
+        private final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+        /**
+         * @param changedPage the page on which the reported total grows by one, or -1 if it never changes
+         */
+        PagedTransport(int total, int limit, int changedPage) {
+            mTotal = total;
+            mLimit = limit;
+            mChangedPage = changedPage;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            mRequests.incrementAndGet();
+            int inFlight = mInFlight.incrementAndGet();
+            mMaxInFlight.accumulateAndGet(inFlight, Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mInFlight.decrementAndGet();
+
+            Matcher matcher = PAGE.matcher(request.getUrl().toString());
+            int page = matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+            int total = page >= mChangedPage && mChangedPage > 0 ? mTotal + 1 : mTotal;
+            int numPages = (mTotal + mLimit - 1) / mLimit;
+
+            StringBuilder json = new StringBuilder();
+            json.append("{\"status\":\"OK\",\"ts\":1506443652,\"results\":{\"total\":").append(total)
+                    .append(",\"limit\":").append(mLimit)
+                    .append(",\"page\":").append(page)
+                    .append(",\"numPages\":").append(numPages)
+                    .append(",\"feeds\":[");
+            for (int i = (page - 1) * mLimit; i < Math.min(page * mLimit, mTotal); i++) {
+                if (i > (page - 1) * mLimit) {
+                    json.append(',');
+                }
+                json.append("{\"id\":\"feed/").append(i).append("\",\"ty\":\"gtfs\"}");
+            }
+            json.append("]}}");
+            return new HttpResponse(200, null,
+                    new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.model.Location;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tests for the GetLocations API request, using a fixture instead of the network
+ */
+public class GetLocationsTest extends TestCase {
+
+    @Test
+    public void testUrl() {
+        GetLocationsRequest request = new GetLocationsRequest.Builder("dummyApiKey").build();
+        assertEquals("http://api.transitfeeds.com/v1/getLocations?key=dummyApiKey", request.getUrl().toString());
+        request = new GetLocationsRequest.Builder("dummyApiKey").setApiEndpoint("http://localhost/v1/getLocations")
+                .build();
+        assertEquals("http://localhost/v1/getLocations?key=dummyApiKey", request.getUrl().toString());
+    }
+
+    @Test
+    public void testCall() throws IOException {
+        TransitFeedsClient client = new TransitFeedsClient.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport("get-locations.json"))
+                .build();
+        GetLocationsResponse response = client.newGetLocationsRequest().build().call();
+        assertEquals("OK", response.getStatus());
+        assertEquals(Integer.valueOf(1506443660), response.getTimestamp());
+        List<Location> locations = response.getResults().getLocations();
+        assertEquals(10, locations.size());
+
+        Location karlsruhe = locations.get(2);
+        assertEquals(Integer.valueOf(622), karlsruhe.getId());
+        assertEquals(Integer.valueOf(168), karlsruhe.getParentId());
+        assertEquals("Karlsruhe", karlsruhe.getTitle());
+        assertEquals("Karlsruhe, Germany", karlsruhe.getTitleWithRegion());
+        assertEquals(49.00689, karlsruhe.getLat(), 0.000001);
+        assertEquals(8.403653, karlsruhe.getLng(), 0.000001);
+    }
+
+    @Test
+    public void testHttpError() throws IOException {
+        GetLocationsRequest request = new GetLocationsRequest.Builder("dummyApiKey")
+                .setTransport(r -> new HttpResponse(503, null, null))
+                .build();
+        try {
+            request.call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+}
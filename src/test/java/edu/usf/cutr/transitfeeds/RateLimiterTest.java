@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for RateLimiter
+ */
+public class RateLimiterTest extends TestCase {
+
+    @Test
+    public void testBurstThenSteadyRate() throws IOException {
+        RateLimiter limiter = new RateLimiter.Builder()
+                .setPermitsPerSecond(20)
+                .setBurst(5)
+                .build();
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("key");
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+        assertFalse(limiter.tryAcquire("key"));
+
+        // The next 10 requests are spaced 50 ms apart
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("key");
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Elapsed " + elapsedMs + " ms", elapsedMs >= 450);
+
+        // Other keys have their own budget
+        assertTrue(limiter.tryAcquire("other"));
+    }
+
+    @Test
+    public void testRequestsShareBudgetPerApiKey() throws IOException {
+        RateLimiter limiter = new RateLimiter.Builder()
+                .setPermitsPerSecond(0.001)
+                .setBurst(2)
+                .build();
+        FixtureTransport transport = new FixtureTransport("get-feeds.json");
+        GetFeedsRequest.Builder builder = new GetFeedsRequest.Builder("key1")
+                .setTransport(transport)
+                .setRateLimiter(limiter);
+        builder.setPage(1).build().call();
+        builder.setPage(2).build().call();
+
+        assertFalse(limiter.tryAcquire("key1@http://api.transitfeeds.com/v1/getFeeds"));
+        assertTrue(limiter.tryAcquire("key2@http://api.transitfeeds.com/v1/getFeeds"));
+        assertEquals(2, transport.getRequestCount());
+    }
+
+    @Test
+    public void testInterrupted() {
+        RateLimiter limiter = new RateLimiter.Builder()
+                .setPermitsPerSecond(0.001)
+                .setBurst(1)
+                .build();
+        assertTrue(limiter.tryAcquire("key"));
+        Thread.currentThread().interrupt();
+        try {
+            limiter.acquire("key");
+            fail("Expected InterruptedIOException");
+        } catch (IOException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
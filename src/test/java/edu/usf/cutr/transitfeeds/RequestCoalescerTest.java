@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for RequestCoalescer
+ */
+public class RequestCoalescerTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+
+    @Test
+    public void testConcurrentCallsShareResult() throws Exception {
+        FixtureTransport transport = new FixtureTransport("get-feeds.json", 500);
+        RequestCoalescer coalescer = new RequestCoalescer();
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(transport)
+                .setCoalescer(coalescer)
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<CompletableFuture<GetFeedsResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(request.callAsync(executor));
+            }
+            GetFeedsResponse first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<GetFeedsResponse> future : futures) {
+                assertSame(first, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, transport.getRequestCount());
+        assertEquals(10, coalescer.getCallCount());
+        assertEquals(9, coalescer.getCoalescedCount());
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // Once complete, the next call should contact the server again
+        request.call();
+        assertEquals(2, transport.getRequestCount());
+    }
+
+    @Test
+    public void testDifferentRequestsNotCoalesced() throws IOException {
+        FixtureTransport transport = new FixtureTransport("get-feeds.json");
+        RequestCoalescer coalescer = new RequestCoalescer();
+        GetFeedsRequest.Builder builder = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(transport)
+                .setCoalescer(coalescer);
+
+        builder.setPage(1).build().call();
+        builder.setPage(2).build().call();
+
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testFailureShared() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return coalescer.execute("key", () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("Server unavailable");
+                });
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+        CompletableFuture<Object> follower = CompletableFuture.supplyAsync(() -> {
+            try {
+                return coalescer.execute("key", () -> "not called");
+            } catch (IOException e) {
+                return e;
+            }
+        });
+        // Wait for the follower to join the in-flight call before failing it
+        while (coalescer.getCoalescedCount() == 0) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals("Server unavailable", ((IOException) follower.get(10, TimeUnit.SECONDS)).getMessage());
+        try {
+            leader.get(10, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertEquals("Server unavailable", e.getCause().getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static edu.usf.cutr.transitfeeds.RequestListener.Phase;
+
+/**
+ * Tests for RequestMetrics, Histogram and the instrumentation in GetFeedsRequest
+ */
+public class RequestMetricsTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+
+    @Test
+    public void testSuccessfulCalls() throws IOException {
+        RequestMetrics metrics = new RequestMetrics();
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(new FixtureTransport("get-feeds.json"))
+                .setListener(metrics)
+                .build();
+        int numFeeds = request.call().getResults().getFeeds().size();
+        request.call();
+        request.call();
+
+        assertEquals(3, metrics.getLatency(Phase.TOTAL).getCount());
+        assertEquals(3, metrics.getLatency(Phase.TRANSFER).getCount());
+        assertEquals(3, metrics.getLatency(Phase.PARSE).getCount());
+        // FixtureTransport doesn't measure network phases
+        assertEquals(0, metrics.getLatency(Phase.CONNECT).getCount());
+        assertEquals(0, metrics.getLatency(Phase.FIRST_BYTE).getCount());
+
+        long size = StubServer.readResource("get-feeds.json").length;
+        assertEquals(3 * size, metrics.getResponseBytes().getSum());
+        assertEquals(3 * numFeeds, metrics.getFeeds().getSum());
+        assertEquals(3, metrics.getStatusCount("OK"));
+        assertEquals(0, metrics.getErrorCount());
+    }
+
+    @Test
+    public void testStatusesAndErrors() throws IOException {
+        RequestMetrics metrics = new RequestMetrics();
+        byte[] emptyKey = "{\"status\":\"EMPTYKEY\",\"ts\":1506443652,\"msg\":\"API key not specified\"}"
+                .getBytes("UTF-8");
+        new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(request -> new HttpResponse(200, null, new ByteArrayInputStream(emptyKey)))
+                .setListener(metrics)
+                .build()
+                .call();
+
+        GetFeedsRequest failing = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(request -> new HttpResponse(503, null, null))
+                .setListener(metrics)
+                .build();
+        try {
+            failing.call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            // Expected
+        }
+
+        assertEquals(1, metrics.getStatusCount("EMPTYKEY"));
+        assertEquals(0, metrics.getFeeds().getSum());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, metrics.getErrorCounts().get(HttpResponseException.class.getName()).longValue());
+        assertEquals(1, metrics.getLatency(Phase.TOTAL).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getErrorCount());
+        assertTrue(metrics.getStatusCounts().isEmpty());
+        assertEquals(0, metrics.getLatency(Phase.TOTAL).getCount());
+    }
+
+    @Test
+    public void testNetworkPhases() throws IOException {
+        StubServer server = new StubServer();
+        server.serveResource("get-feeds.json");
+        try {
+            RequestMetrics metrics = new RequestMetrics();
+            new GetFeedsRequest.Builder(API_KEY)
+                    .setApiEndpoint(server.url("/get-feeds.json"))
+                    .setListener(metrics)
+                    .build()
+                    .call();
+            assertEquals(1, metrics.getLatency(Phase.CONNECT).getCount());
+            assertEquals(1, metrics.getLatency(Phase.FIRST_BYTE).getCount());
+            assertTrue(metrics.getLatency(Phase.FIRST_BYTE).getMax() > 0);
+            assertEquals(StubServer.readResource("get-feeds.json").length, metrics.getResponseBytes().getSum());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testCachedCalls() throws IOException {
+        RequestMetrics metrics = new RequestMetrics();
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(new FixtureTransport("get-feeds.json"))
+                .setCache(new GetFeedsCache.Builder().setTtl(1, TimeUnit.HOURS).build())
+                .setListener(metrics)
+                .build();
+        request.call();
+        request.call();
+
+        assertEquals(2, metrics.getLatency(Phase.TOTAL).getCount());
+        assertEquals(1, metrics.getLatency(Phase.PARSE).getCount());
+        assertEquals(2, metrics.getStatusCount("OK"));
+        // Only the first call read a body
+        assertEquals(StubServer.readResource("get-feeds.json").length, metrics.getResponseBytes().getSum());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertWithin(500, histogram.getValueAtPercentile(50));
+        assertWithin(950, histogram.getValueAtPercentile(95));
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = Histogram.bucket(value);
+            assertTrue(value <= Histogram.highestValue(bucket));
+            assertTrue(bucket == 0 || value > Histogram.highestValue(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // Buckets are 1/8 of a power of two wide
+        assertTrue("Expected ~" + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 8 + 1);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.http.HttpTransport;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for RetryPolicy
+ */
+public class RetryPolicyTest extends TestCase {
+
+    private byte[] mBody;
+
+    @Override
+    protected void setUp() throws Exception {
+        mBody = StubServer.readResource("get-feeds.json");
+    }
+
+    private HttpResponse ok() {
+        return new HttpResponse(200, null, new ByteArrayInputStream(mBody));
+    }
+
+    private static GetFeedsRequest request(HttpTransport transport, RetryPolicy policy, RequestListener listener) {
+        return new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(transport)
+                .setRetryPolicy(policy)
+                .setListener(listener)
+                .build();
+    }
+
+    private static void sleep(long ms) throws IOException {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Test
+    public void testRetriesServerErrors() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setBackoff(1, 10, TimeUnit.MILLISECONDS)
+                .build();
+        RequestMetrics metrics = new RequestMetrics();
+        GetFeedsResponse response = request(r -> requests.incrementAndGet() <= 2 ?
+                new HttpResponse(503, null, null) : ok(), policy, metrics).call();
+
+        assertEquals("OK", response.getStatus());
+        assertEquals(3, requests.get());
+        assertEquals(2, metrics.getRetryCount());
+        assertEquals(0, metrics.getErrorCount());
+    }
+
+    @Test
+    public void testGivesUp() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setMaxAttempts(4)
+                .setBackoff(1, 10, TimeUnit.MILLISECONDS)
+                .build();
+        try {
+            request(r -> {
+                requests.incrementAndGet();
+                return new HttpResponse(500, null, null);
+            }, policy, null).call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            assertEquals(500, e.getStatusCode());
+        }
+        assertEquals(4, requests.get());
+
+        // Client errors would fail again, so they aren't retried
+        requests.set(0);
+        try {
+            request(r -> {
+                requests.incrementAndGet();
+                return new HttpResponse(404, null, null);
+            }, policy, null).call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testDeadline() throws IOException {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setDeadline(200, TimeUnit.MILLISECONDS)
+                .build();
+        long start = System.nanoTime();
+        try {
+            request(r -> {
+                sleep(5000);
+                return ok();
+            }, policy, null).call();
+            fail("Expected DeadlineExceededException");
+        } catch (DeadlineExceededException e) {
+            assertEquals(200, e.getDeadlineMillis());
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+
+        // Backoff that would run past the deadline fails immediately
+        policy = new RetryPolicy.Builder()
+                .setDeadline(200, TimeUnit.MILLISECONDS)
+                .setBackoff(10, 10, TimeUnit.SECONDS)
+                .build();
+        try {
+            request(r -> new HttpResponse(503, null, null), policy, null).call();
+            fail("Expected DeadlineExceededException");
+        } catch (DeadlineExceededException e) {
+            assertTrue(e.getCause() instanceof HttpResponseException);
+        }
+    }
+
+    @Test
+    public void testHedging() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setHedging(true)
+                .build();
+        RequestMetrics metrics = new RequestMetrics();
+        GetFeedsRequest request = request(r -> {
+            if (requests.incrementAndGet() == RetryPolicy.MIN_HEDGE_SAMPLES + 1) {
+                // Stuck request
+                sleep(5000);
+            }
+            return ok();
+        }, policy, metrics);
+
+        for (int i = 0; i < RetryPolicy.MIN_HEDGE_SAMPLES; i++) {
+            request.call();
+        }
+        assertTrue(policy.getHedgeDelayNanos() >= 0);
+        assertEquals(0, metrics.getHedgeCount());
+
+        long start = System.nanoTime();
+        assertEquals("OK", request.call().getStatus());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertEquals(1, metrics.getHedgeCount());
+        assertEquals(RetryPolicy.MIN_HEDGE_SAMPLES + 2, requests.get());
+    }
+
+    @Test
+    public void testHedgingOnSingleThreadExecutor() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setHedging(true)
+                .build();
+        RequestMetrics metrics = new RequestMetrics();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        GetFeedsRequest request = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(r -> {
+                    if (requests.incrementAndGet() == RetryPolicy.MIN_HEDGE_SAMPLES + 1) {
+                        // Stuck request
+                        sleep(5000);
+                    }
+                    return ok();
+                })
+                .setRetryPolicy(policy)
+                .setListener(metrics)
+                .setExecutor(executor)
+                .build();
+        try {
+            // The executor's only thread runs call(), so attempts and hedges must not need a thread from it
+            for (int i = 0; i < RetryPolicy.MIN_HEDGE_SAMPLES; i++) {
+                request.callAsync().get(2, TimeUnit.SECONDS);
+            }
+            assertEquals("OK", request.callAsync().get(2, TimeUnit.SECONDS).getStatus());
+            assertEquals(1, metrics.getHedgeCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHedgingOnBoundedAttemptExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setHedging(true)
+                .setExecutor(executor)
+                .build();
+        RequestMetrics metrics = new RequestMetrics();
+        GetFeedsRequest request = new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(r -> ok())
+                .setRetryPolicy(policy)
+                .setListener(metrics)
+                .setExecutor(executor)
+                .build();
+        try {
+            // The executor's only thread runs call(), so attempts waiting for it are run by the waiting call instead
+            for (int i = 0; i < 2 * RetryPolicy.MIN_HEDGE_SAMPLES; i++) {
+                assertEquals("OK", request.callAsync().get(2, TimeUnit.SECONDS).getStatus());
+            }
+            assertTrue(policy.getHedgeDelayNanos() >= 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSetExecutor() throws IOException {
+        final AtomicInteger executed = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setDeadline(5, TimeUnit.SECONDS)
+                .setExecutor(command -> {
+                    executed.incrementAndGet();
+                    new Thread(command).start();
+                })
+                .build();
+        assertEquals("OK", request(r -> ok(), policy, null).call().getStatus());
+        assertEquals(1, executed.get());
+        try {
+            new RetryPolicy.Builder().setExecutor(null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testHedgeDelayExcludesHedgeWait() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setHedging(true)
+                .build();
+        GetFeedsRequest request = request(r -> {
+            if (requests.incrementAndGet() > RetryPolicy.MIN_HEDGE_SAMPLES && requests.get() % 2 == 1) {
+                // Every other request after warm up is stuck, so every call is won by its hedge
+                sleep(2000);
+            }
+            return ok();
+        }, policy, null);
+
+        for (int i = 0; i < RetryPolicy.MIN_HEDGE_SAMPLES; i++) {
+            request.call();
+        }
+        long delay = policy.getHedgeDelayNanos();
+        for (int i = 0; i < RetryPolicy.MIN_HEDGE_SAMPLES; i++) {
+            request.call();
+        }
+        // Only the winning hedges' own latencies are recorded, not the time spent waiting before they started
+        assertTrue(policy.getHedgeDelayNanos() <= Math.max(2 * delay, TimeUnit.MILLISECONDS.toNanos(50)));
+    }
+
+    @Test
+    public void testBackoffJitter() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setBackoff(100, 1000, TimeUnit.MILLISECONDS)
+                .build();
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(policy.backoffNanos(1) <= 100 * ms);
+            assertTrue(policy.backoffNanos(3) <= 400 * ms);
+            long delay = policy.backoffNanos(60);
+            assertTrue(delay >= 0 && delay <= 1000 * ms);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.LazyProperties;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that the hand-written deserializers in ShortKeyModule produce the same models as the annotation-based binding
+ */
+public class ShortKeyModuleTest extends TestCase {
+
+    private final ObjectReader mAnnotations = GetFeedsRequest.newReader(false, false);
+    private final ObjectReader mShortKeys = GetFeedsRequest.newReader(false, true);
+
+    private void assertSameResult(String json) throws IOException {
+        GetFeedsResponse expected = mAnnotations.readValue(json);
+        GetFeedsResponse actual = mShortKeys.readValue(json);
+        assertEquals(String.valueOf(expected), String.valueOf(actual));
+    }
+
+    @Test
+    public void testFixtures() throws IOException {
+        for (String fixture : new String[]{"get-feeds.json", "get-feeds-realtime.json",
+                "get-feeds-realtime-url-array.json"}) {
+            String json = new String(StubServer.readResource(fixture), "UTF-8");
+            GetFeedsResponse expected = mAnnotations.readValue(json);
+            GetFeedsResponse actual = mShortKeys.readValue(json);
+            assertEquals(fixture, expected.toString(), actual.toString());
+            assertFalse(actual.getResults().getFeeds().isEmpty());
+        }
+    }
+
+    @Test
+    public void testUnknownAndUnusualValues() throws IOException {
+        // Unknown keys at every level, including nested objects and arrays
+        assertSameResult("{\"status\":\"OK\",\"extra\":{\"a\":[1,2.5,\"x\",null,true]},\"results\":{\"feeds\":[" +
+                "{\"id\":\"a/1\",\"new\":[],\"l\":{\"id\":1,\"cc\":\"US\"},\"u\":{\"i\":\"x\",\"z\":1}," +
+                "\"latest\":{\"ts\":5,\"size\":123456789012}}],\"next\":null}}");
+        // Nulls, empty objects, and empty arrays for objects
+        assertSameResult("{\"status\":null,\"ts\":null,\"results\":{\"feeds\":[null,{},{\"l\":null,\"u\":[]," +
+                "\"latest\":[]}]}}");
+        assertSameResult("{\"results\":{\"feeds\":null}}");
+        assertSameResult("{\"results\":[]}");
+        assertSameResult("{}");
+        // Coercions - numbers as strings, integers for doubles, and numbers for strings
+        assertSameResult("{\"ts\":\"1506443652\",\"results\":{\"total\":\"5\",\"feeds\":[{\"id\":896," +
+                "\"l\":{\"id\":\"622\",\"lat\":49,\"lng\":\"8.4\"},\"latest\":{\"ts\":1.0}}]}}");
+    }
+
+    @Test
+    public void testLazyAdditionalProperties() throws IOException {
+        String json = "{\"status\":\"OK\",\"results\":{\"feeds\":[{\"id\":\"a/1\",\"new\":{\"a\":[1,\"x\",null]}," +
+                "\"n\":null,\"big\":123456789012},{\"id\":\"a/2\"}]}}";
+        List<Feed> feeds = mShortKeys.<GetFeedsResponse>readValue(json).getResults().getFeeds();
+        Feed feed = feeds.get(0);
+
+        // Unknown fields are held as tokens until the additional properties are accessed
+        Map<String, Object> properties = feed.getAdditionalProperties();
+        assertTrue(properties instanceof LazyProperties);
+        assertFalse(((LazyProperties) properties).isBound());
+        assertEquals(3, properties.size());
+        assertTrue(((LazyProperties) properties).isBound());
+
+        Map<String, Object> expected = mAnnotations.<GetFeedsResponse>readValue(json).getResults().getFeeds().get(0)
+                .getAdditionalProperties();
+        assertEquals(expected, properties);
+        assertEquals(Arrays.asList(1, "x", null), ((Map<?, ?>) properties.get("new")).get("a"));
+        assertTrue(properties.containsKey("n"));
+        assertEquals(123456789012L, properties.get("big"));
+
+        // Once bound, the properties can be modified like the default HashMap
+        feed.setAdditionalProperty("added", "value");
+        properties.remove("n");
+        assertEquals("value", feed.getAdditionalProperties().get("added"));
+        assertEquals(3, feed.getAdditionalProperties().size());
+
+        // Objects without unknown fields only allocate additional properties when they're accessed, and every
+        // access returns the same modifiable map
+        Feed plain = feeds.get(1);
+        plain.toString();
+        Map<String, Object> empty = plain.getAdditionalProperties();
+        assertFalse(empty instanceof LazyProperties);
+        assertTrue(empty.isEmpty());
+        empty.put("added", "value");
+        assertSame(empty, plain.getAdditionalProperties());
+    }
+
+    @Test
+    public void testAdditionalPropertiesSharedBetweenThreads() throws Exception {
+        final Feed feed = mShortKeys.<GetFeedsResponse>readValue("{\"results\":{\"feeds\":[{\"id\":\"a/1\"}]}}")
+                .getResults().getFeeds().get(0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(feed::getAdditionalProperties));
+            }
+            // All threads get the same map, rather than each publishing its own
+            for (Future<Map<String, Object>> future : futures) {
+                assertSame(feed.getAdditionalProperties(), future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidInput() throws IOException {
+        String json = "{\"results\":{\"feeds\":[{\"u\":[\"http://example.com\"]}]}}";
+        try {
+            mAnnotations.readValue(json);
+            fail("Expected JsonMappingException");
+        } catch (JsonMappingException e) {
+            // Expected
+        }
+        try {
+            mShortKeys.readValue(json);
+            fail("Expected JsonMappingException");
+        } catch (JsonMappingException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testClientAndStreaming() throws IOException {
+        TransitFeedsClient client = new TransitFeedsClient.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport("get-feeds-realtime-url-array.json"))
+                .setShortKeyDeserializer(true)
+                .build();
+        GetFeedsResponse expected = mAnnotations.readValue(StubServer.readResource("get-feeds-realtime-url-array.json"));
+        assertEquals(expected.toString(), client.newGetFeedsRequest().build().call().toString());
+
+        List<String> streamed = new ArrayList<>();
+        try (FeedIterator feeds = client.newGetFeedsRequest().build().callStreaming()) {
+            while (feeds.hasNext()) {
+                streamed.add(feeds.next().toString());
+            }
+        }
+        List<String> bound = new ArrayList<>();
+        for (Feed feed : expected.getResults().getFeeds()) {
+            bound.add(feed.toString());
+        }
+        assertEquals(bound, streamed);
+    }
+}
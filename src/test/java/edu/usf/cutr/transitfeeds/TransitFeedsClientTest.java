@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for TransitFeedsClient
+ */
+public class TransitFeedsClientTest extends TestCase {
+
+    @Test
+    public void testRequestsUseClientSettings() throws IOException {
+        FixtureTransport transport = new FixtureTransport("get-feeds.json");
+        RequestMetrics metrics = new RequestMetrics();
+        TransitFeedsClient client = new TransitFeedsClient.Builder("clientKey")
+                .setApiEndpoint("http://localhost/v1/getFeeds")
+                .setTransport(transport)
+                .setListener(metrics)
+                .build();
+
+        GetFeedsRequest request = client.newGetFeedsRequest().setPage(2).build();
+        assertEquals("http://localhost/v1/getFeeds?key=clientKey&page=2", request.getUrl().toString());
+        assertEquals("OK", request.call().getStatus());
+        assertEquals(1, transport.getRequestCount());
+        assertEquals(1, metrics.getStatusCount("OK"));
+    }
+
+    @Test
+    public void testClientsHaveIndependentReaders() throws IOException {
+        TransitFeedsClient strict = new TransitFeedsClient.Builder("key")
+                .setFailOnUnknownProperties(true)
+                .build();
+        TransitFeedsClient lenient = new TransitFeedsClient.Builder("key").build();
+
+        assertTrue(strict.getReader().isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        assertFalse(lenient.getReader().isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        assertTrue(lenient.getReader().isEnabled(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT));
+
+        // Changing the shared setting doesn't affect clients
+        GetFeedsRequest.setFailOnUnknownProperties(true);
+        try {
+            assertFalse(lenient.getReader().isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        } finally {
+            GetFeedsRequest.setFailOnUnknownProperties(false);
+        }
+    }
+
+    @Test
+    public void testParsesFixturesConcurrently() throws Exception {
+        final TransitFeedsClient client = new TransitFeedsClient.Builder("key")
+                .setTransport(new FixtureTransport("get-feeds-realtime-url-array.json"))
+                .build();
+        String expected = new GetFeedsRequest.Builder("key")
+                .setTransport(new FixtureTransport("get-feeds-realtime-url-array.json"))
+                .build()
+                .call()
+                .toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<GetFeedsResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(client.newGetFeedsRequest().build().callAsync(executor));
+            }
+            for (CompletableFuture<GetFeedsResponse> future : futures) {
+                assertEquals(expected, future.get(10, TimeUnit.SECONDS).toString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRetryPolicyUsesClientExecutor() throws IOException {
+        final AtomicInteger clientExecutions = new AtomicInteger();
+        final AtomicInteger policyExecutions = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .setDeadline(5, TimeUnit.SECONDS)
+                .build();
+        TransitFeedsClient.Builder builder = new TransitFeedsClient.Builder("key")
+                .setTransport(new FixtureTransport("get-feeds.json"))
+                .setExecutor(command -> {
+                    clientExecutions.incrementAndGet();
+                    new Thread(command).start();
+                })
+                .setRetryPolicy(policy);
+
+        assertEquals("OK", builder.build().newGetFeedsRequest().build().call().getStatus());
+        assertEquals(1, clientExecutions.get());
+        // Latencies are still recorded in the policy that was set on the client
+        assertEquals(1, policy.getLatencies().getCount());
+
+        // An executor set on the policy itself takes precedence
+        builder.setRetryPolicy(new RetryPolicy.Builder()
+                .setDeadline(5, TimeUnit.SECONDS)
+                .setExecutor(command -> {
+                    policyExecutions.incrementAndGet();
+                    new Thread(command).start();
+                })
+                .build());
+        assertEquals("OK", builder.build().newGetFeedsRequest().build().call().getStatus());
+        assertEquals(1, clientExecutions.get());
+        assertEquals(1, policyExecutions.get());
+    }
+}
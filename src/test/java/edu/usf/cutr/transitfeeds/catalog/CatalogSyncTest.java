@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Latest;
+import edu.usf.cutr.transitfeeds.model.Urls;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for CatalogSync
+ */
+public class CatalogSyncTest extends TestCase {
+
+    private static Feed feed(String id, String title, Integer latestTs, String downloadUrl) {
+        Feed feed = new Feed();
+        feed.setId(id);
+        feed.setTitle(title);
+        if (latestTs != null) {
+            Latest latest = new Latest();
+            latest.setTimestamp(latestTs);
+            feed.setLatest(latest);
+        }
+        if (downloadUrl != null) {
+            Urls urls = new Urls();
+            urls.setDownloadUrl(downloadUrl);
+            feed.setUrls(urls);
+        }
+        return feed;
+    }
+
+    @Test
+    public void testSync() {
+        CatalogSync sync = new CatalogSync();
+        final List<FeedChangeSet> notifications = new ArrayList<>();
+        sync.addListener(notifications::add);
+
+        FeedChangeSet first = sync.sync(Arrays.asList(
+                feed("a/1", "A", 100, "http://a/1.zip"),
+                feed("b/1", "B", 100, "http://b/1.zip"),
+                feed("c/1", "C", null, null),
+                feed("d/1", "D", 100, "http://d/1.zip")));
+        assertEquals(4, first.getAdded().size());
+        assertEquals(1, notifications.size());
+
+        FeedChangeSet second = sync.sync(Arrays.asList(
+                feed("a/1", "A", 200, "http://a/1.zip"),
+                feed("b/1", "B", 100, "http://b/2.zip"),
+                feed("c/1", "C renamed", null, null),
+                feed("e/1", "E", 100, null)));
+        assertEquals(1, second.getAdded().size());
+        assertEquals("e/1", second.getAdded().get(0).getId());
+        assertEquals(1, second.getRemoved().size());
+        assertEquals("d/1", second.getRemoved().get(0).getId());
+        assertEquals(3, second.getUpdated().size());
+        FeedChangeSet.Update update = second.getUpdated().get(0);
+        assertEquals(Integer.valueOf(100), update.getPrevious().getLatest().getTimestamp());
+        assertEquals(Integer.valueOf(200), update.getCurrent().getLatest().getTimestamp());
+        assertEquals(2, notifications.size());
+
+        // A pass without changes doesn't notify listeners
+        FeedChangeSet third = sync.sync(Arrays.asList(
+                feed("a/1", "A", 200, "http://a/1.zip"),
+                feed("b/1", "B", 100, "http://b/2.zip"),
+                feed("c/1", "C renamed", null, null),
+                feed("e/1", "E", 100, null)));
+        assertTrue(third.isEmpty());
+        assertEquals(2, notifications.size());
+    }
+
+    @Test
+    public void testDiff() {
+        FeedChangeSet changes = CatalogSync.diff(Collections.singletonList(feed("a/1", "A", 1, null)),
+                Collections.singletonList(feed("a/1", "A", 1, null)));
+        assertTrue(changes.isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.FixtureTransport;
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Results;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for FeedCatalog
+ */
+public class FeedCatalogTest extends TestCase {
+
+    static Results results(String fixture) throws IOException {
+        return new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(fixture))
+                .build()
+                .call()
+                .getResults();
+    }
+
+    @Test
+    public void testLookups() throws IOException {
+        FeedCatalog catalog = new FeedCatalog();
+        catalog.refreshFromResults(Arrays.asList(results("get-feeds.json"), results("get-feeds-realtime.json")));
+
+        Feed kvv = catalog.getById("karlsruher-verkehrsverbundes/896");
+        assertEquals("KVV GTFS", kvv.getTitle());
+        assertNull(catalog.getById("missing/1"));
+
+        // citymapper/895 appears in both fixtures, so it should only be indexed once
+        int total = catalog.size();
+        assertEquals(total, catalog.getByType("gtfs").size() + catalog.getByType("gtfsrealtime").size());
+        for (Feed feed : catalog.getByType("gtfsrealtime")) {
+            assertEquals("gtfsrealtime", feed.getType());
+        }
+        assertTrue(catalog.getByType("unknown").isEmpty());
+
+        List<Feed> london = catalog.getByLocationId(621);
+        assertFalse(london.isEmpty());
+        for (Feed feed : london) {
+            assertEquals(Integer.valueOf(621), feed.getLocation().getId());
+        }
+    }
+
+    @Test
+    public void testRefreshSwapsSnapshot() throws IOException {
+        FeedCatalog catalog = new FeedCatalog();
+        catalog.refreshFromResults(Collections.singletonList(results("get-feeds.json")));
+        FeedCatalog.Snapshot before = catalog.getSnapshot();
+
+        catalog.refreshFromResults(Collections.singletonList(results("get-feeds-realtime-url-array.json")));
+
+        // Existing snapshots are unaffected by a refresh
+        assertNotNull(before.getById("karlsruher-verkehrsverbundes/896"));
+        assertNull(catalog.getById("karlsruher-verkehrsverbundes/896"));
+        assertNotNull(catalog.getById("translink-vancouver/397"));
+        try {
+            catalog.getByType("gtfsrealtime").clear();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+}
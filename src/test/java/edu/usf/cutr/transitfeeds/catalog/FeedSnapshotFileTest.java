@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.usf.cutr.transitfeeds.catalog.FeedCatalogTest.results;
+
+/**
+ * Tests for FeedSnapshotFile
+ */
+public class FeedSnapshotFileTest extends TestCase {
+
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        mDirectory = Files.createTempDirectory("feed-snapshot").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        FeedCatalog catalog = new FeedCatalog();
+        catalog.refreshFromResults(Arrays.asList(results("get-feeds.json"), results("get-feeds-realtime.json"),
+                results("get-feeds-realtime-url-array.json")));
+        List<Feed> feeds = catalog.getSnapshot().getFeeds();
+
+        File file = new File(mDirectory, "catalog.snapshot");
+        FeedSnapshotFile.write(feeds, file);
+        FeedSnapshotFile snapshot = FeedSnapshotFile.open(file);
+
+        assertEquals(feeds.size(), snapshot.size());
+        for (int i = 0; i < feeds.size(); i++) {
+            assertEquals(feeds.get(i).getId(), snapshot.getId(i));
+            assertEquals(feeds.get(i).getType(), snapshot.getType(i));
+            assertEquals(feeds.get(i).toString(), snapshot.getFeed(i).toString());
+        }
+        for (Feed feed : feeds) {
+            assertEquals(feed.toString(), snapshot.getById(feed.getId()).toString());
+        }
+        assertNull(snapshot.getById("missing/1"));
+        assertNull(snapshot.getById(""));
+        assertEquals(feeds.toString(), new ArrayList<>(snapshot.getFeeds()).toString());
+    }
+
+    @Test
+    public void testNullFields() throws IOException {
+        Feed empty = new Feed();
+        Feed partial = new Feed();
+        partial.setId("partial/1");
+        File file = new File(mDirectory, "partial.snapshot");
+        FeedSnapshotFile.write(Arrays.asList(empty, partial), file);
+
+        FeedSnapshotFile snapshot = FeedSnapshotFile.open(file);
+        assertEquals(2, snapshot.size());
+        assertEquals(partial.toString(), snapshot.getById("partial/1").toString());
+        assertEquals(empty.toString(), snapshot.getFeed(1).toString());
+        assertNull(snapshot.getId(1));
+
+        FeedSnapshotFile.write(new ArrayList<Feed>(), file);
+        snapshot = FeedSnapshotFile.open(file);
+        assertEquals(0, snapshot.size());
+        assertNull(snapshot.getById("partial/1"));
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        File file = new File(mDirectory, "invalid.snapshot");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("{\"status\": \"OK\"}".getBytes("UTF-8"));
+        }
+        try {
+            FeedSnapshotFile.open(file);
+            fail("Expected IOException for a file that isn't a snapshot");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Location;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for FeedSpatialIndex, checked against brute-force scans
+ */
+public class FeedSpatialIndexTest extends TestCase {
+
+    private static Feed feed(String id, String type, double lat, double lng) {
+        Location location = new Location();
+        location.setLat(lat);
+        location.setLng(lng);
+        Feed feed = new Feed();
+        feed.setId(id);
+        feed.setType(type);
+        feed.setLocation(location);
+        return feed;
+    }
+
+    private static List<Feed> randomFeeds(int count, long seed) {
+        Random random = new Random(seed);
+        List<Feed> feeds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            feeds.add(feed("feed/" + i, random.nextBoolean() ? "gtfs" : "gtfsrealtime",
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        return feeds;
+    }
+
+    private static double distance(Feed feed, double lat, double lng) {
+        return FeedSpatialIndex.distanceMeters(lat, lng, feed.getLocation().getLat(), feed.getLocation().getLng());
+    }
+
+    @Test
+    public void testFixture() throws IOException {
+        FeedSpatialIndex index = new FeedSpatialIndex(FeedCatalogTest.results("get-feeds.json").getFeeds());
+
+        // Karlsruhe city center
+        List<Feed> nearby = index.withinRadius(49.0069, 8.4037, 50000, null);
+        assertEquals("karlsruher-verkehrsverbundes/896", nearby.get(0).getId());
+        for (Feed feed : nearby) {
+            assertEquals(Integer.valueOf(622), feed.getLocation().getId());
+        }
+
+        // From central London, the nearest realtime feed should be in London
+        List<Feed> nearest = index.nearest(51.5, -0.12, 1, "gtfsrealtime");
+        assertEquals(1, nearest.size());
+        assertEquals("London", nearest.get(0).getLocation().getTitle());
+    }
+
+    @Test
+    public void testRadiusMatchesBruteForce() {
+        List<Feed> feeds = randomFeeds(5000, 42);
+        FeedSpatialIndex index = new FeedSpatialIndex(feeds);
+        Random random = new Random(7);
+        for (int q = 0; q < 200; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+            double radius = random.nextDouble() * 2000000;
+            String type = q % 2 == 0 ? null : "gtfs";
+
+            Set<String> expected = new HashSet<>();
+            for (Feed feed : feeds) {
+                if ((type == null || type.equals(feed.getType())) && distance(feed, lat, lng) <= radius) {
+                    expected.add(feed.getId());
+                }
+            }
+            List<Feed> actual = index.withinRadius(lat, lng, radius, type);
+            Set<String> actualIds = new HashSet<>();
+            double previous = 0;
+            for (Feed feed : actual) {
+                actualIds.add(feed.getId());
+                double d = distance(feed, lat, lng);
+                assertTrue(d >= previous - 1e-6);
+                previous = d;
+            }
+            assertEquals(expected, actualIds);
+        }
+    }
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        final List<Feed> feeds = randomFeeds(5000, 43);
+        FeedSpatialIndex index = new FeedSpatialIndex(feeds);
+        Random random = new Random(8);
+        for (int q = 0; q < 200; q++) {
+            final double lat = random.nextDouble() * 180 - 90;
+            final double lng = random.nextDouble() * 360 - 180;
+            String type = q % 2 == 0 ? null : "gtfsrealtime";
+
+            List<Feed> expected = new ArrayList<>();
+            for (Feed feed : feeds) {
+                if (type == null || type.equals(feed.getType())) {
+                    expected.add(feed);
+                }
+            }
+            expected.sort((a, b) -> Double.compare(distance(a, lat, lng), distance(b, lat, lng)));
+
+            List<Feed> actual = index.nearest(lat, lng, 10, type);
+            assertEquals(10, actual.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(distance(expected.get(i), lat, lng), distance(actual.get(i), lat, lng), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void testBoundingBox() {
+        List<Feed> feeds = randomFeeds(5000, 44);
+        FeedSpatialIndex index = new FeedSpatialIndex(feeds);
+
+        // Box crossing the antimeridian
+        Set<String> expected = new HashSet<>();
+        for (Feed feed : feeds) {
+            double lat = feed.getLocation().getLat();
+            double lng = feed.getLocation().getLng();
+            if (lat >= -10 && lat <= 20 && (lng >= 170 || lng <= -160)) {
+                expected.add(feed.getId());
+            }
+        }
+        Set<String> actual = new HashSet<>();
+        for (Feed feed : index.withinBoundingBox(-10, 170, 20, -160, null)) {
+            actual.add(feed.getId());
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testFeedsWithoutLocation() {
+        List<Feed> feeds = new ArrayList<>();
+        Feed noLocation = new Feed();
+        noLocation.setId("none/1");
+        feeds.add(noLocation);
+        FeedSpatialIndex index = new FeedSpatialIndex(feeds);
+
+        assertEquals(0, index.size());
+        assertTrue(index.nearest(0, 0, 5, null).isEmpty());
+        assertTrue(index.withinRadius(0, 0, 1000, null).isEmpty());
+    }
+}
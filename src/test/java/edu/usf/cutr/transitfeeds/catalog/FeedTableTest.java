@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Results;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static edu.usf.cutr.transitfeeds.catalog.FeedCatalogTest.results;
+
+/**
+ * Tests for FeedTable
+ */
+public class FeedTableTest extends TestCase {
+
+    private static List<Feed> feeds(List<Results> results) {
+        List<Feed> feeds = new ArrayList<>();
+        for (Results r : results) {
+            feeds.addAll(r.getFeeds());
+        }
+        return feeds;
+    }
+
+    @Test
+    public void testColumns() throws IOException {
+        List<Results> results = Arrays.asList(results("get-feeds.json"), results("get-feeds-realtime.json"));
+        List<Feed> feeds = feeds(results);
+        FeedTable table = FeedTable.fromResults(results);
+
+        assertEquals(feeds.size(), table.size());
+        for (int row = 0; row < feeds.size(); row++) {
+            Feed feed = feeds.get(row);
+            assertEquals(feed.getId(), table.getId(row));
+            assertEquals(feed.getTitle(), table.getTitle(row));
+            assertEquals(feed.getType(), table.getType(row));
+            assertEquals(feed.getLocation().getId().intValue(), table.getLocationId(row));
+            assertEquals(feed.getLocation().getLat(), table.getLat(row));
+            if (feed.getLatest() == null) {
+                assertEquals(FeedTable.NO_TIMESTAMP, table.getLatestTimestamp(row));
+            } else {
+                assertEquals(feed.getLatest().getTimestamp().intValue(), table.getLatestTimestamp(row));
+            }
+        }
+        // citymapper/895 appears in both pages, so its ID and title are only pooled once
+        assertTrue(table.getStringPoolSize() < 2 * feeds.size());
+    }
+
+    @Test
+    public void testAggregates() throws IOException {
+        List<Results> results = Arrays.asList(results("get-feeds.json"), results("get-feeds-realtime.json"));
+        List<Feed> feeds = feeds(results);
+        FeedTable table = FeedTable.fromResults(results);
+
+        Map<String, Integer> byType = table.countByType();
+        assertEquals(5, byType.get("gtfs").intValue());
+        assertEquals(15, byType.get("gtfsrealtime").intValue());
+        assertEquals(15, table.countByType("gtfsrealtime"));
+        assertEquals(0, table.countByType("unknown"));
+        assertEquals(0, table.selectByType("unknown").length);
+
+        int since = 1505797526;
+        int expectedUpdated = 0;
+        Map<Integer, Integer> expectedByLocation = new HashMap<>();
+        for (Feed feed : feeds) {
+            if (feed.getLatest() != null && feed.getLatest().getTimestamp() >= since &&
+                    "gtfs".equals(feed.getType())) {
+                expectedUpdated++;
+                Integer id = feed.getLocation().getId();
+                expectedByLocation.put(id, expectedByLocation.containsKey(id) ? expectedByLocation.get(id) + 1 : 1);
+            }
+        }
+        int[] rows = FeedTable.intersect(table.selectUpdatedSince(since), table.selectByType("gtfs"));
+        assertEquals(expectedUpdated, rows.length);
+        assertEquals(expectedByLocation, table.countByLocation(rows));
+
+        int london = 0;
+        for (Feed feed : feeds) {
+            london += feed.getLocation().getId() == 621 ? 1 : 0;
+        }
+        assertEquals(london, table.countByLocation().get(621).intValue());
+
+        // Greater London
+        int[] box = table.selectWithinBoundingBox(51.2, -0.6, 51.7, 0.4);
+        assertEquals(london, box.length);
+    }
+
+    @Test
+    public void testEmpty() {
+        FeedTable table = FeedTable.fromFeeds(new ArrayList<Feed>());
+        assertEquals(0, table.size());
+        assertEquals(0, table.countUpdatedSince(0));
+        assertTrue(table.countByType().isEmpty());
+        assertTrue(table.countByLocation().isEmpty());
+    }
+}
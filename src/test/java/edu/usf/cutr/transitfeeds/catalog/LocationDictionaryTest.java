@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.FixtureTransport;
+import edu.usf.cutr.transitfeeds.GetLocationsRequest;
+import edu.usf.cutr.transitfeeds.http.HttpResponse;
+import edu.usf.cutr.transitfeeds.model.Location;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests for LocationDictionary and LocationDictionaryCache
+ */
+public class LocationDictionaryTest extends TestCase {
+
+    private static List<Integer> ids(List<Location> locations) {
+        List<Integer> ids = new ArrayList<>();
+        for (Location location : locations) {
+            ids.add(location.getId());
+        }
+        return ids;
+    }
+
+    private static LocationDictionary load() throws IOException {
+        return LocationDictionary.fromLocations(new GetLocationsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport("get-locations.json"))
+                .build().call().getResults().getLocations());
+    }
+
+    @Test
+    public void testLookups() throws IOException {
+        LocationDictionary dictionary = load();
+        assertEquals(10, dictionary.size());
+        assertEquals("Karlsruhe", dictionary.getLocation(622).getTitle());
+        assertNull(dictionary.getLocation(999));
+
+        // Names are matched ignoring case and whitespace, with or without the region
+        assertEquals("[622]", ids(dictionary.findByName("Karlsruhe")).toString());
+        assertEquals("[622]", ids(dictionary.findByName(" karlsruhe, GERMANY ")).toString());
+        assertEquals("[70, 621]", ids(dictionary.findByName("London")).toString());
+        assertEquals("[621]", ids(dictionary.findByName("London, UK")).toString());
+        assertEquals("[168]", ids(dictionary.findByName("Germany")).toString());
+        assertTrue(dictionary.findByName("Atlantis").isEmpty());
+
+        // Parent links
+        assertEquals(Integer.valueOf(168), dictionary.getParent(622).getId());
+        assertNull(dictionary.getParent(4));
+        assertNull(dictionary.getParent(999));
+        assertEquals("[168, 4]", ids(dictionary.getAncestors(622)).toString());
+        assertEquals("[70, 212]", ids(dictionary.getChildren(46)).toString());
+        assertTrue(dictionary.getTree().isDescendant(212, 1));
+    }
+
+    @Test
+    public void testCacheReloadsInBackground() throws IOException, InterruptedException {
+        FixtureTransport transport = new FixtureTransport("get-locations.json");
+        GetLocationsRequest request = new GetLocationsRequest.Builder("dummyApiKey").setTransport(transport).build();
+        try (LocationDictionaryCache cache = new LocationDictionaryCache.Builder(request)
+                .setTtl(50, TimeUnit.MILLISECONDS)
+                .build()) {
+            assertEquals(0, transport.getRequestCount());
+            LocationDictionary first = cache.get();
+            assertSame(first, cache.get());
+            assertEquals(1, transport.getRequestCount());
+            assertEquals("[622]", ids(first.findByName("Karlsruhe")).toString());
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.get() == first && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotSame(first, cache.get());
+            assertTrue(transport.getRequestCount() >= 2);
+            assertNull(cache.getLastError());
+        }
+    }
+
+    @Test
+    public void testCacheKeepsDictionaryWhenReloadFails() throws IOException, InterruptedException {
+        FixtureTransport fixture = new FixtureTransport("get-locations.json");
+        AtomicBoolean failing = new AtomicBoolean();
+        GetLocationsRequest request = new GetLocationsRequest.Builder("dummyApiKey")
+                .setTransport(r -> failing.get() ? new HttpResponse(503, null, null) : fixture.execute(r))
+                .build();
+        try (LocationDictionaryCache cache = new LocationDictionaryCache.Builder(request)
+                .setTtl(1, TimeUnit.HOURS)
+                .setRetryInterval(20, TimeUnit.MILLISECONDS)
+                .build()) {
+            LocationDictionary first = cache.get();
+            long loadedAt = cache.getLoadedAt();
+            assertTrue(loadedAt > 0);
+
+            failing.set(true);
+            try {
+                cache.reload();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // Expected
+            }
+            assertSame(first, cache.get());
+            assertEquals(loadedAt, cache.getLoadedAt());
+            assertNotNull(cache.getLastError());
+
+            // The failed reload is retried after the retry interval
+            failing.set(false);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (cache.get() == first && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotSame(first, cache.get());
+            assertNull(cache.getLastError());
+        }
+    }
+}
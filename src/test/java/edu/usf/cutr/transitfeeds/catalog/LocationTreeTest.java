@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.catalog;
+
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Location;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for LocationTree
+ */
+public class LocationTreeTest extends TestCase {
+
+    private static Location location(int id, int parentId) {
+        Location location = new Location();
+        location.setId(id);
+        location.setParentId(parentId);
+        return location;
+    }
+
+    private static Feed feed(String id, Location location) {
+        Feed feed = new Feed();
+        feed.setId(id);
+        feed.setLocation(location);
+        return feed;
+    }
+
+    @Test
+    public void testHierarchy() {
+        // 1 (country) -> 2 (state) -> 3, 4 (cities); 1 -> 5 (city); 6 is a separate country
+        Location state = location(2, 1);
+        Location city3 = location(3, 2);
+        Location city4 = location(4, 2);
+        Location city5 = location(5, 1);
+        Location other = location(6, 0);
+        List<Feed> feeds = Arrays.asList(feed("a/1", city3), feed("a/2", city4), feed("a/3", city3),
+                feed("b/1", city5), feed("c/1", other), feed("s/1", state));
+        LocationTree tree = LocationTree.fromFeeds(feeds);
+
+        assertEquals(6, tree.size());
+        assertTrue(tree.contains(1));
+        // Country 1 is only known as a parent
+        assertNull(tree.getLocation(1));
+        assertSame(city3, tree.getLocation(3));
+
+        assertTrue(Arrays.equals(new int[]{1, 6}, tree.getRootIds()));
+        assertTrue(Arrays.equals(new int[]{3, 4}, tree.getChildIds(2)));
+        assertTrue(Arrays.equals(new int[]{2, 1}, tree.getAncestorIds(3)));
+        assertTrue(Arrays.equals(new int[0], tree.getAncestorIds(1)));
+        assertEquals(4, tree.getDescendantIds(1).length);
+
+        assertTrue(tree.isDescendant(3, 1));
+        assertTrue(tree.isDescendant(4, 2));
+        assertFalse(tree.isDescendant(5, 2));
+        assertFalse(tree.isDescendant(1, 3));
+        assertFalse(tree.isDescendant(2, 2));
+        assertFalse(tree.isDescendant(3, 99));
+
+        assertEquals(Arrays.asList("s/1", "a/1", "a/3", "a/2", "b/1"), ids(tree.getFeedsInSubtree(1)));
+        assertEquals(Arrays.asList("a/1", "a/3"), ids(tree.getFeedsInSubtree(3)));
+        assertEquals(Arrays.asList("c/1"), ids(tree.getFeedsInSubtree(6)));
+        assertTrue(tree.getFeedsInSubtree(99).isEmpty());
+    }
+
+    @Test
+    public void testFixture() throws IOException {
+        List<Feed> feeds = FeedCatalogTest.results("get-feeds.json").getFeeds();
+        LocationTree tree = LocationTree.fromFeeds(feeds);
+
+        // Karlsruhe (622) is in Germany (168)
+        assertTrue(tree.isDescendant(622, 168));
+        List<Feed> germany = tree.getFeedsInSubtree(168);
+        assertFalse(germany.isEmpty());
+        for (Feed feed : germany) {
+            assertEquals(Integer.valueOf(168), feed.getLocation().getParentId());
+        }
+    }
+
+    @Test
+    public void testCycle() {
+        LocationTree tree = LocationTree.fromLocations(Arrays.asList(location(1, 2), location(2, 1)));
+        assertEquals(2, tree.size());
+        // The cycle is broken at the first location, which becomes a root
+        assertTrue(Arrays.equals(new int[]{1}, tree.getRootIds()));
+        assertTrue(Arrays.equals(new int[0], tree.getAncestorIds(1)));
+        assertTrue(Arrays.equals(new int[]{1}, tree.getAncestorIds(2)));
+        assertTrue(tree.isDescendant(2, 1));
+    }
+
+    private static List<String> ids(List<Feed> feeds) {
+        List<String> ids = new ArrayList<>();
+        for (Feed feed : feeds) {
+            ids.add(feed.getId());
+        }
+        return ids;
+    }
+}
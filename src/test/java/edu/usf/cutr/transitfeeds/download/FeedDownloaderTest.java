@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import edu.usf.cutr.transitfeeds.StubServer;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Latest;
+import edu.usf.cutr.transitfeeds.model.Urls;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for FeedDownloader, using a local stub server
+ */
+public class FeedDownloaderTest extends TestCase {
+
+    private static final int SIZE = 256 * 1024;
+
+    private StubServer mServer;
+    private File mDirectory;
+    private final byte[] mPayload = new byte[SIZE];
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxInFlight = new AtomicInteger();
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicBoolean mFailNext = new AtomicBoolean();
+
+    @Override
+    protected void setUp() throws IOException {
+        new Random(1).nextBytes(mPayload);
+        mDirectory = Files.createTempDirectory("feed-downloads").toFile();
+        mServer = new StubServer();
+        mServer.handle("/gtfs", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                mMaxInFlight.accumulateAndGet(mInFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    int offset = range != null ? Integer.parseInt(range.replaceAll("bytes=(\\d+)-", "$1")) : 0;
+                    if (range != null) {
+                        exchange.getResponseHeaders().set("Content-Range",
+                                "bytes " + offset + "-" + (SIZE - 1) + "/" + SIZE);
+                    }
+                    exchange.sendResponseHeaders(range != null ? 206 : 200, SIZE - offset);
+                    OutputStream out = exchange.getResponseBody();
+                    if (mFailNext.getAndSet(false)) {
+                        // Send half of the body, then drop the connection
+                        out.write(mPayload, offset, (SIZE - offset) / 2);
+                        out.flush();
+                        throw new IOException("Simulated connection drop");
+                    }
+                    out.write(mPayload, offset, SIZE - offset);
+                    out.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    mInFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() {
+        mServer.stop();
+        for (File file : mDirectory.listFiles()) {
+            file.delete();
+        }
+        mDirectory.delete();
+    }
+
+    private Feed feed(String id, int latestTs) {
+        Feed feed = new Feed();
+        feed.setId(id);
+        feed.setType("gtfs");
+        Urls urls = new Urls();
+        urls.setDownloadUrl(mServer.url("/gtfs/" + id.replace('/', '-') + ".zip"));
+        feed.setUrls(urls);
+        Latest latest = new Latest();
+        latest.setTimestamp(latestTs);
+        feed.setLatest(latest);
+        return feed;
+    }
+
+    @Test
+    public void testDownloadAll() throws Exception {
+        List<Feed> feeds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            feeds.add(feed("agency/" + i, 100));
+        }
+        Feed noUrl = new Feed();
+        noUrl.setId("agency/none");
+        feeds.add(noUrl);
+
+        FeedDownloader downloader = new FeedDownloader.Builder(mDirectory)
+                .setMaxConnectionsPerHost(2)
+                .build();
+        List<DownloadResult> results = downloader.downloadAll(feeds);
+
+        assertEquals(7, results.size());
+        for (int i = 0; i < 6; i++) {
+            DownloadResult result = results.get(i);
+            assertEquals(DownloadResult.Status.DOWNLOADED, result.getStatus());
+            assertEquals("agency_" + i + ".zip", result.getFile().getName());
+            assertTrue(Arrays.equals(mPayload, Files.readAllBytes(result.getFile().toPath())));
+        }
+        assertEquals(DownloadResult.Status.NO_URL, results.get(6).getStatus());
+        assertTrue(mMaxInFlight.get() <= 2);
+
+        // A new run (e.g., the next night) skips feeds whose latest version hasn't changed
+        FeedDownloader nextRun = new FeedDownloader.Builder(mDirectory).build();
+        feeds.set(0, feed("agency/0", 200));
+        results = nextRun.downloadAll(feeds);
+        assertEquals(DownloadResult.Status.DOWNLOADED, results.get(0).getStatus());
+        for (int i = 1; i < 6; i++) {
+            assertEquals(DownloadResult.Status.UNCHANGED, results.get(i).getStatus());
+        }
+        assertEquals(7, mRequests.get());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        FeedDownloader downloader = new FeedDownloader.Builder(mDirectory).build();
+        Feed feed = feed("agency/1", 100);
+
+        mFailNext.set(true);
+        DownloadResult failed = downloader.download(feed);
+        assertEquals(DownloadResult.Status.FAILED, failed.getStatus());
+        assertFalse(failed.getFile().exists());
+
+        DownloadResult resumed = new FeedDownloader.Builder(mDirectory).build().download(feed);
+        assertEquals(DownloadResult.Status.RESUMED, resumed.getStatus());
+        assertTrue(resumed.getBytesTransferred() < SIZE);
+        assertTrue(Arrays.equals(mPayload, Files.readAllBytes(resumed.getFile().toPath())));
+    }
+
+    @Test
+    public void testNonSuccessStatusIsNotSaved() throws Exception {
+        mServer.handle("/moved", exchange -> {
+            exchange.getResponseHeaders().set("Location", "https://example.com/gtfs.zip");
+            StubServer.sendBody(exchange, 302, "<html>Moved</html>".getBytes("UTF-8"));
+        });
+        mServer.handle("/empty", exchange -> StubServer.sendBody(exchange, 204, new byte[0]));
+
+        for (String path : new String[]{"/moved/gtfs.zip", "/empty/gtfs.zip"}) {
+            Feed feed = feed("agency" + path.substring(0, path.lastIndexOf('/')), 100);
+            feed.getUrls().setDownloadUrl(mServer.url(path));
+            DownloadResult result = new FeedDownloader.Builder(mDirectory).build().download(feed);
+            assertEquals(path, DownloadResult.Status.FAILED, result.getStatus());
+            assertFalse(path, result.getFile().exists());
+
+            // No version was recorded, so the feed isn't reported UNCHANGED on the next run
+            Properties state = new Properties();
+            File stateFile = new File(mDirectory, "feed-downloads.properties");
+            if (stateFile.exists()) {
+                try (InputStream in = new FileInputStream(stateFile)) {
+                    state.load(in);
+                }
+            }
+            assertNull(path, state.getProperty(feed.getId()));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import edu.usf.cutr.transitfeeds.GetFeedsResponse;
+import edu.usf.cutr.transitfeeds.StubServer;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipException;
+
+/**
+ * Tests for UrlConnectionTransport, using a local stub server
+ */
+public class UrlConnectionTransportTest extends TestCase {
+
+    private static final String API_KEY = "dummyApiKey";
+
+    private StubServer mServer;
+
+    @Override
+    protected void setUp() throws IOException {
+        mServer = new StubServer();
+        mServer.serveResource("get-feeds.json");
+    }
+
+    @Override
+    protected void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void testGzipResponse() throws IOException {
+        final AtomicReference<String> acceptEncoding = new AtomicReference<String>();
+        mServer.handle("/gzip", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                StubServer.sendBody(exchange, 200, StubServer.readResource("get-feeds.json"));
+            }
+        });
+        UrlConnectionTransport transport = new UrlConnectionTransport.Builder().setMaxConnections(2).build();
+
+        GetFeedsResponse response = new GetFeedsRequest.Builder(API_KEY)
+                .setApiEndpoint(mServer.url("/gzip"))
+                .setTransport(transport)
+                .build()
+                .call();
+
+        assertEquals("gzip", acceptEncoding.get());
+        assertEquals("OK", response.getStatus());
+        assertEquals(Integer.valueOf(858), response.getResults().getTotal());
+        assertEquals("karlsruher-verkehrsverbundes/896", response.getResults().getFeeds().get(0).getId());
+        // Connection should be released once the response has been parsed
+        assertEquals(2, transport.getAvailableConnections());
+    }
+
+    @Test
+    public void testConnectionsReleasedAcrossRequests() throws IOException {
+        UrlConnectionTransport transport = new UrlConnectionTransport.Builder().setMaxConnections(1).build();
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setApiEndpoint(mServer.url("/get-feeds.json"))
+                .setTransport(transport)
+                .build();
+
+        // With a single connection, a leaked permit would block the second call forever
+        for (int i = 0; i < 3; i++) {
+            assertEquals("OK", request.call().getStatus());
+        }
+        assertEquals(1, transport.getAvailableConnections());
+    }
+
+    @Test
+    public void testErrorStatus() throws IOException {
+        UrlConnectionTransport transport = new UrlConnectionTransport.Builder().build();
+        GetFeedsRequest request = new GetFeedsRequest.Builder(API_KEY)
+                .setApiEndpoint(mServer.url("/missing"))
+                .setTransport(transport)
+                .build();
+        try {
+            request.call();
+            fail("Expected HttpResponseException");
+        } catch (HttpResponseException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        assertEquals(UrlConnectionTransport.DEFAULT_MAX_CONNECTIONS, transport.getAvailableConnections());
+    }
+
+    @Test
+    public void testReadTimeout() throws IOException {
+        mServer.handle("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                StubServer.sendBody(exchange, 200, StubServer.readResource("get-feeds.json"));
+            }
+        });
+        UrlConnectionTransport transport = new UrlConnectionTransport.Builder().setReadTimeout(200).build();
+        try {
+            transport.execute(new HttpRequest(new URL(mServer.url("/slow"))));
+            fail("Expected SocketTimeoutException");
+        } catch (SocketTimeoutException e) {
+            // Expected
+        }
+        assertEquals(UrlConnectionTransport.DEFAULT_MAX_CONNECTIONS, transport.getAvailableConnections());
+    }
+
+    @Test
+    public void testCorruptGzipReleasesConnection() throws IOException {
+        mServer.handle("/corrupt", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = StubServer.readResource("get-feeds.json");
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        UrlConnectionTransport transport = new UrlConnectionTransport.Builder().setMaxConnections(1).build();
+        try {
+            transport.execute(new HttpRequest(new URL(mServer.url("/corrupt"))));
+            fail("Expected ZipException");
+        } catch (ZipException e) {
+            // Expected
+        }
+        assertEquals(1, transport.getAvailableConnections());
+    }
+
+    @Test
+    public void testConnectionWaitTimesOut() throws IOException {
+        UrlConnectionTransport transport = new UrlConnectionTransport.Builder()
+                .setMaxConnections(1)
+                .setConnectTimeout(200)
+                .build();
+        URL url = new URL(mServer.url("/get-feeds.json"));
+        HttpResponse leaked = transport.execute(new HttpRequest(url));
+        try {
+            // The only connection is held by a response that hasn't been closed
+            transport.execute(new HttpRequest(url));
+            fail("Expected SocketTimeoutException");
+        } catch (SocketTimeoutException e) {
+            // Expected
+        }
+        leaked.close();
+        transport.execute(new HttpRequest(url)).close();
+        assertEquals(1, transport.getAvailableConnections());
+    }
+
+    @Test
+    public void testStubTransport() throws IOException {
+        HttpTransport stub = new HttpTransport() {
+            @Override
+            public HttpResponse execute(HttpRequest request) throws IOException {
+                return new HttpResponse(200, null,
+                        getClass().getResourceAsStream("/get-feeds-realtime.json"));
+            }
+        };
+
+        GetFeedsResponse response = new GetFeedsRequest.Builder(API_KEY)
+                .setTransport(stub)
+                .build()
+                .call();
+
+        assertEquals(Integer.valueOf(134), response.getResults().getTotal());
+        assertEquals("gtfsrealtime", response.getResults().getFeeds().get(0).getType());
+    }
+}
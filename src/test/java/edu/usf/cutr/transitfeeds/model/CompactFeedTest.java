@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.model;
+
+import edu.usf.cutr.transitfeeds.FixtureTransport;
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Tests for CompactFeed, CompactLocation and CompactFeedFactory
+ */
+public class CompactFeedTest extends TestCase {
+
+    private static List<Feed> feeds(String fixture) throws IOException {
+        return new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport(fixture))
+                .build()
+                .call()
+                .getResults()
+                .getFeeds();
+    }
+
+    @Test
+    public void testCompactFeeds() throws IOException {
+        CompactFeedFactory factory = new CompactFeedFactory();
+        List<Feed> feeds = feeds("get-feeds.json");
+        List<CompactFeed> compact = factory.createAll(feeds);
+        compact.addAll(factory.createAll(feeds("get-feeds-realtime.json")));
+
+        CompactFeed kvv = compact.get(0);
+        assertEquals("karlsruher-verkehrsverbundes/896", kvv.getId());
+        assertSame(CompactFeedFactory.TYPE_GTFS, kvv.getType());
+        assertEquals("KVV GTFS", kvv.getTitle());
+        assertEquals("http://213.144.24.66/GTFS/google_transit.zip", kvv.getDownloadUrl());
+        assertEquals(1506430166, kvv.getLatestTimestamp());
+
+        CompactLocation location = kvv.getLocation();
+        assertEquals(622, location.getId());
+        assertEquals(168, location.getParentId());
+        assertEquals(49.00689d, location.getLat());
+        assertEquals(8.403653d, location.getLng());
+
+        // citymapper/895 has no latest version
+        CompactFeed citymapper = compact.get(1);
+        assertEquals(CompactFeed.NO_TIMESTAMP, citymapper.getLatestTimestamp());
+        assertNull(citymapper.toFeed().getLatest());
+
+        // All London feeds, across both pages, share one location instance
+        int london = 0;
+        for (CompactFeed feed : compact) {
+            if (feed.getLocation() != null && feed.getLocation().getId() == 621) {
+                assertSame(factory.getLocation(621), feed.getLocation());
+                london++;
+            }
+        }
+        assertTrue(london > 2);
+        assertTrue(factory.getLocationCount() < compact.size());
+    }
+
+    @Test
+    public void testToFeed() throws IOException {
+        CompactFeedFactory factory = new CompactFeedFactory();
+        for (Feed feed : feeds("get-feeds-realtime-url-array.json")) {
+            assertEquals(feed.toString(), factory.create(feed).toFeed().toString());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2017 University of South Florida
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.usf.cutr.transitfeeds.realtime;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import edu.usf.cutr.transitfeeds.FixtureTransport;
+import edu.usf.cutr.transitfeeds.GetFeedsRequest;
+import edu.usf.cutr.transitfeeds.StubServer;
+import edu.usf.cutr.transitfeeds.http.HttpResponseException;
+import edu.usf.cutr.transitfeeds.model.Feed;
+import edu.usf.cutr.transitfeeds.model.Urls;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for RealtimePoller, using a local stub server
+ */
+public class RealtimePollerTest extends TestCase {
+
+    private StubServer mServer;
+    private final AtomicReference<String> mContent = new AtomicReference<>("v1");
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws IOException {
+        mServer = new StubServer();
+        mServer.handle("/rt", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                mMaxInFlight.accumulateAndGet(mInFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(10);
+                    byte[] body = mContent.get().getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    mInFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() {
+        mServer.stop();
+    }
+
+    private Feed feed(String id) {
+        Feed feed = new Feed();
+        feed.setId(id);
+        feed.setType(RealtimePoller.TYPE_GTFS_REALTIME);
+        Urls urls = new Urls();
+        urls.setDownloadUrl(mServer.url("/rt/" + id));
+        feed.setUrls(urls);
+        return feed;
+    }
+
+    @Test
+    public void testRealtimeFeeds() throws IOException {
+        List<Feed> feeds = RealtimePoller.realtimeFeeds(new GetFeedsRequest.Builder("dummyApiKey")
+                .setTransport(new FixtureTransport("get-feeds.json"))
+                .build()
+                .call());
+        assertFalse(feeds.isEmpty());
+        for (Feed feed : feeds) {
+            assertEquals("gtfsrealtime", feed.getType());
+        }
+    }
+
+    @Test
+    public void testPollingWithBackoff() throws Exception {
+        final BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        RealtimePoller poller = new RealtimePoller.Builder((feed, data) ->
+                delivered.add(feed.getId() + ":" + new String(data, StandardCharsets.UTF_8)))
+                .setInterval(20, TimeUnit.MILLISECONDS)
+                .setMaxInterval(160, TimeUnit.MILLISECONDS)
+                .build();
+        try {
+            assertTrue(poller.add(feed("a")));
+            assertFalse(poller.add(feed("a")));
+            assertEquals("a:v1", delivered.poll(5, TimeUnit.SECONDS));
+
+            // Unchanged content isn't delivered again, and the interval backs off to the maximum
+            long deadline = System.currentTimeMillis() + 5000;
+            while (poller.getCurrentIntervalMillis("a") < 160 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(160, poller.getCurrentIntervalMillis("a"));
+            assertTrue(delivered.isEmpty());
+
+            // New content is delivered, and the interval resets
+            mContent.set("v2");
+            assertEquals("a:v2", delivered.poll(5, TimeUnit.SECONDS));
+            assertTrue(poller.getCurrentIntervalMillis("a") < 160);
+
+            assertTrue(poller.remove("a"));
+            assertEquals(0, poller.size());
+        } finally {
+            poller.close();
+        }
+    }
+
+    @Test
+    public void testPerHostLimit() throws Exception {
+        final AtomicInteger deliveries = new AtomicInteger();
+        RealtimePoller poller = new RealtimePoller.Builder((feed, data) -> deliveries.incrementAndGet())
+                .setInterval(10, TimeUnit.MILLISECONDS)
+                .setMaxConnectionsPerHost(2)
+                .build();
+        try {
+            for (int i = 0; i < 50; i++) {
+                poller.add(feed("feed" + i));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (deliveries.get() < 50 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(50, deliveries.get());
+            assertTrue(mMaxInFlight.get() <= 2);
+        } finally {
+            poller.close();
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        final BlockingQueue<IOException> errors = new LinkedBlockingQueue<>();
+        RealtimePoller poller = new RealtimePoller.Builder(new RealtimeListener() {
+            @Override
+            public void onData(Feed feed, byte[] data) {
+            }
+
+            @Override
+            public void onError(Feed feed, IOException error) {
+                errors.add(error);
+            }
+        }).setInterval(10, TimeUnit.MILLISECONDS).build();
+        try {
+            Feed missing = feed("missing");
+            missing.getUrls().setDownloadUrl(mServer.url("/missing"));
+            poller.add(missing);
+            assertNotNull(errors.poll(5, TimeUnit.SECONDS));
+        } finally {
+            poller.close();
+        }
+    }
+
+    @Test
+    public void testNonSuccessStatusIsNotDelivered() throws Exception {
+        mServer.handle("/empty", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("ETag", "\"empty\"");
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        mServer.handle("/moved", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // No Location header, so the redirect isn't followed
+                StubServer.sendBody(exchange, 302, "moved".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        final BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+        final BlockingQueue<IOException> errors = new LinkedBlockingQueue<>();
+        RealtimePoller poller = new RealtimePoller.Builder(new RealtimeListener() {
+            @Override
+            public void onData(Feed feed, byte[] data) {
+                delivered.add(feed.getId());
+            }
+
+            @Override
+            public void onError(Feed feed, IOException error) {
+                errors.add(error);
+            }
+        }).setInterval(10, TimeUnit.MILLISECONDS).build();
+        try {
+            Feed empty = feed("empty");
+            empty.getUrls().setDownloadUrl(mServer.url("/empty"));
+            Feed moved = feed("moved");
+            moved.getUrls().setDownloadUrl(mServer.url("/moved"));
+            poller.add(empty);
+            poller.add(moved);
+
+            boolean sawEmpty = false;
+            boolean sawMoved = false;
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!(sawEmpty && sawMoved) && System.currentTimeMillis() < deadline) {
+                IOException error = errors.poll(100, TimeUnit.MILLISECONDS);
+                if (error instanceof HttpResponseException) {
+                    int status = ((HttpResponseException) error).getStatusCode();
+                    sawEmpty |= status == 204;
+                    sawMoved |= status == 302;
+                }
+            }
+            assertTrue(sawEmpty);
+            assertTrue(sawMoved);
+            assertTrue(delivered.isEmpty());
+        } finally {
+            poller.close();
+        }
+    }
+}